@@ -0,0 +1,49 @@
+package com.lyders.properties;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/* the properties a request handler reads in a row: one get() per key versus resolving a prepared key set in one call
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchGetBenchmark {
+
+    @Param({"30"})
+    int batch;
+
+    private ApplicationProperties props;
+    private String[] names;
+    private KeySet keys;
+
+    @Setup
+    public void setup() throws IOException {
+        props = CorpusGenerator.load(1, 1000, 0.0);
+        names = new String[batch];
+        for (int i = 0; i < batch; i++) {
+            names[i] = CorpusGenerator.key(i * 7);
+        }
+        keys = KeySet.of(names);
+    }
+
+    @Benchmark
+    public String[] getEach() throws PropertyEvaluatorException {
+        String[] values = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            values[i] = props.get(names[i]);
+        }
+        return values;
+    }
+
+    @Benchmark
+    public KeyValues resolveKeySet() throws PropertyEvaluatorException {
+        return props.resolve(keys);
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.lyders.properties;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/* get() from many threads at once, with and without a thread that keeps changing a property (and so publishing a
+ * new view) at the same time
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentionBenchmark {
+
+    static final int KEYS = 1000;
+
+    private ApplicationProperties props;
+    private String[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        props = CorpusGenerator.load(1, KEYS, 0.0);
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = CorpusGenerator.key(i);
+        }
+    }
+
+    private String read(Cursor cursor) throws PropertyEvaluatorException {
+        String key = keys[cursor.next];
+        cursor.next = cursor.next + 1 == keys.length ? 0 : cursor.next + 1;
+        return props.get(key);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String readOnly(Cursor cursor) throws PropertyEvaluatorException {
+        return read(cursor);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public String reader(Cursor cursor) throws PropertyEvaluatorException {
+        return read(cursor);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public String writer(Cursor cursor) {
+        String key = keys[cursor.next];
+        cursor.next = cursor.next + 1 == keys.length ? 0 : cursor.next + 1;
+        return props.put(key, "changed-" + cursor.next);
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.lyders.properties;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes a synthetic set of properties files for the benchmarks: one directory per source, each with a properties file
+ * that defines the same keys so that every source overrides the one before it, like a defaults file followed by
+ * environment-specific files.
+ * <p>
+ * A given fraction of the values contain "${prop:...}" placeholders for the system properties set by
+ * {@link #setPlaceholderSystemProperties()}. Run it on its own to keep a corpus around, e.g., for a profiler:
+ * <pre>
+ * java -cp target/benchmarks.jar com.lyders.properties.CorpusGenerator /tmp/corpus 8 1000000 0.1
+ * </pre>
+ */
+public final class CorpusGenerator {
+
+    public static final String PROPERTIES_FILE_NAME = "bench.properties";
+    public static final int GROUPS = 100;
+    public static final int PLACEHOLDER_PROPS = 16;
+
+    private CorpusGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("usage: CorpusGenerator <dir> <sources> <keys> [placeholderRatio]");
+            System.exit(1);
+        }
+        double placeholderRatio = args.length > 3 ? Double.parseDouble(args[3]) : 0.0;
+        List<String> paths = generate(Paths.get(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]), placeholderRatio);
+        paths.forEach(System.out::println);
+    }
+
+    /* write the given number of sources with the given number of keys each and return their paths as "file:" path strings in load order
+     * */
+    public static List<String> generate(Path dir, int sources, int keys, double placeholderRatio) throws IOException {
+        List<String> paths = new ArrayList<>(sources);
+        // every n-th value gets placeholders so that they are spread evenly over the keys
+        int placeholderEvery = placeholderRatio > 0 ? Math.max(1, (int) Math.round(1 / placeholderRatio)) : 0;
+        for (int source = 0; source < sources; source++) {
+            Path sourceDir = Files.createDirectories(dir.resolve("source-" + source));
+            try (BufferedWriter out = Files.newBufferedWriter(sourceDir.resolve(PROPERTIES_FILE_NAME), StandardCharsets.UTF_8)) {
+                out.write("# generated by " + CorpusGenerator.class.getName() + ": source " + source + " of " + sources + "\n");
+                for (int i = 0; i < keys; i++) {
+                    out.write(key(i));
+                    out.write('=');
+                    if (placeholderEvery > 0 && i % placeholderEvery == 0) {
+                        out.write("jdbc:${prop:" + placeholderProp(i) + "}:5432/${prop:" + placeholderProp(i + 1) + "}?source=" + source);
+                    } else {
+                        out.write("value-" + source + "-" + i);
+                    }
+                    out.write('\n');
+                }
+            }
+            paths.add(ApplicationProperties.PATH_TYPE.FILEPATH_PREFIX.value + sourceDir.toAbsolutePath());
+        }
+        return paths;
+    }
+
+    public static String key(int i) {
+        return "bench.group" + (i % GROUPS) + ".key" + i;
+    }
+
+    public static String placeholderProp(int i) {
+        return "bench.placeholder." + (i % PLACEHOLDER_PROPS);
+    }
+
+    public static void setPlaceholderSystemProperties() {
+        for (int i = 0; i < PLACEHOLDER_PROPS; i++) {
+            System.setProperty(placeholderProp(i), "host-" + i + ".example.com");
+        }
+    }
+
+    public static ApplicationPropertiesConfig config(List<String> paths) {
+        return new ApplicationPropertiesConfig(PROPERTIES_FILE_NAME, null,
+                ApplicationPropertiesConfig.LoadClassPathRootPropertiesAsDefaults.NO, paths.toArray(new String[0]));
+    }
+
+    /* generate a corpus in a temporary directory, load it and delete it again
+     * */
+    public static ApplicationProperties load(int sources, int keys, double placeholderRatio) throws IOException {
+        Path dir = Files.createTempDirectory("corpus");
+        try {
+            return new ApplicationProperties(config(generate(dir, sources, keys, placeholderRatio)));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    public static void delete(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
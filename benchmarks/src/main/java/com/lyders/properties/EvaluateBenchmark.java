@@ -0,0 +1,56 @@
+package com.lyders.properties;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/* evaluating placeholder-heavy values: compiling and resolving from scratch, resolving an already compiled template,
+ * and get() once the result is cached
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluateBenchmark {
+
+    @Param({"1", "8"})
+    int placeholders;
+
+    private String value;
+    private PropertyTemplate template;
+    private PlaceholderResolverChain resolvers;
+    private ApplicationProperties props;
+
+    @Setup
+    public void setup() throws IOException {
+        CorpusGenerator.setPlaceholderSystemProperties();
+        StringBuilder sb = new StringBuilder("jdbc:");
+        for (int i = 0; i < placeholders; i++) {
+            sb.append("${prop:").append(CorpusGenerator.placeholderProp(i)).append("}/segment-").append(i).append('/');
+        }
+        value = sb.toString();
+        template = PropertyTemplate.compile(value);
+        resolvers = new PlaceholderResolverChain(null);
+        props = CorpusGenerator.load(1, 1, 0.0);
+        props.put("bench.evaluate", value);
+    }
+
+    @Benchmark
+    public String compileAndResolve() throws PropertyEvaluatorException {
+        return PropertyTemplate.compile(value).resolve(resolvers, name -> null, "bench.evaluate", null);
+    }
+
+    @Benchmark
+    public String resolveCompiled() throws PropertyEvaluatorException {
+        return template.resolve(resolvers, name -> null, "bench.evaluate", null);
+    }
+
+    @Benchmark
+    public String cachedGet() throws PropertyEvaluatorException {
+        return props.get("bench.evaluate");
+    }
+
+}
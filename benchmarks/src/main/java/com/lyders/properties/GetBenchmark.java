@@ -0,0 +1,68 @@
+package com.lyders.properties;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/* get() of a single hot key that is always cached versus cold keys spread over a key space much larger than the
+ * resolution cache, so that nearly every call resolves the value again
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetBenchmark {
+
+    static final int COLD_CACHE_SIZE = 1024;
+
+    @Param({"1000", "100000"})
+    int keys;
+
+    private ApplicationProperties hotProps;
+    private ApplicationProperties coldProps;
+    private String hotKey;
+    private String[] coldKeys;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        Path dir = Files.createTempDirectory("get-benchmark");
+        try {
+            ApplicationPropertiesConfig cfg = CorpusGenerator.config(CorpusGenerator.generate(dir, 1, keys, 0.0));
+            hotProps = new ApplicationProperties(cfg);
+            cfg.setResolutionCacheMaxSize(COLD_CACHE_SIZE);
+            coldProps = new ApplicationProperties(cfg);
+        } finally {
+            CorpusGenerator.delete(dir);
+        }
+        hotKey = CorpusGenerator.key(keys / 2);
+        coldKeys = new String[keys];
+        // a fixed stride through the keys so that the access pattern does not favor any part of the cache
+        for (int i = 0, k = 0; i < keys; i++, k = (k + 7919) % keys) {
+            coldKeys[i] = CorpusGenerator.key(k);
+        }
+    }
+
+    @Benchmark
+    public String hotGet() throws PropertyEvaluatorException {
+        return hotProps.get(hotKey);
+    }
+
+    @Benchmark
+    public String coldGet() throws PropertyEvaluatorException {
+        String key = coldKeys[next];
+        next = next + 1 == coldKeys.length ? 0 : next + 1;
+        return coldProps.get(key);
+    }
+
+    @Benchmark
+    public String missingGet() throws PropertyEvaluatorException {
+        return hotProps.get("bench.missing", "default");
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.lyders.properties;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/* the cost of constructing ApplicationProperties from N sources with M keys each
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({"1", "8"})
+    int sources;
+
+    @Param({"1000", "100000"})
+    int keys;
+
+    @Param({"NO", "YES"})
+    ApplicationPropertiesConfig.LoadSourcesInParallel parallel;
+
+    private Path dir;
+    private ApplicationPropertiesConfig cfg;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("load-benchmark");
+        List<String> paths = CorpusGenerator.generate(dir, sources, keys, 0.1);
+        cfg = CorpusGenerator.config(paths);
+        cfg.setLoadSourcesInParallel(parallel);
+    }
+
+    @TearDown
+    public void tearDown() {
+        CorpusGenerator.delete(dir);
+    }
+
+    @Benchmark
+    public ApplicationProperties load() throws FileNotFoundException {
+        return new ApplicationProperties(cfg);
+    }
+
+}
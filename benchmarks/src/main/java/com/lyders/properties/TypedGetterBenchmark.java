@@ -0,0 +1,64 @@
+package com.lyders.properties;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/* the boxed typed getters versus the primitive ones that parse each value only once
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypedGetterBenchmark {
+
+    private ApplicationProperties props;
+
+    @Setup
+    public void setup() throws IOException {
+        props = CorpusGenerator.load(1, 1, 0.0);
+        props.put("bench.int", "250");
+        props.put("bench.long", "1234567891234");
+        props.put("bench.boolean", "true");
+        props.put("bench.invalid", "not-a-number");
+    }
+
+    @Benchmark
+    public Integer getInteger() throws PropertyEvaluatorException {
+        return props.getInteger("bench.int");
+    }
+
+    @Benchmark
+    public int getIntValue() throws PropertyEvaluatorException {
+        return props.getIntValue("bench.int", 0);
+    }
+
+    @Benchmark
+    public Long getLong() throws PropertyEvaluatorException {
+        return props.getLong("bench.long");
+    }
+
+    @Benchmark
+    public long getLongValue() throws PropertyEvaluatorException {
+        return props.getLongValue("bench.long", 0L);
+    }
+
+    @Benchmark
+    public Boolean getBoolean() throws PropertyEvaluatorException {
+        return props.getBoolean("bench.boolean");
+    }
+
+    @Benchmark
+    public boolean getBooleanValue() throws PropertyEvaluatorException {
+        return props.getBooleanValue("bench.boolean", false);
+    }
+
+    @Benchmark
+    public int getIntValueInvalid() throws PropertyEvaluatorException {
+        return props.getIntValue("bench.invalid", -1);
+    }
+
+}
@@ -1,38 +1,77 @@
 package com.lyders.properties;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.lyders.properties.ApplicationProperties.PATH_TYPE.*;
 
 /**
+ * The get() methods and the typed getters can be shared by any number of threads without locking: they read from an
+ * immutable view of the merged properties that is replaced as a whole whenever the properties change, and cache the
+ * evaluated values in a lock-free table that belongs to that view. The inherited Map methods read the same view, so an
+ * iteration running at the same time as a reload or a put() sees the properties from before or after it, never a mix;
+ * every change made through them (put(), merge(), compute(), ...) is published like a reloaded file, and their key,
+ * value and entry sets are read-only. With WatchSourcesForChanges=YES those changes are kept on top of the files: a
+ * reloaded file never overrides a value set, or brings back a property removed, through the Map methods.
+ * <p>
+ * With SharedSegmentMode=ATTACH nothing is loaded: get(), the typed getters and the prefix lookups read the properties
+ * published by another process straight from a memory-mapped file, and so do the inherited Map methods; only an
+ * iteration copies the entries, all of them from the same version of the file. Such an instance is read-only.
+ *
  * @author Richard@Lyders.com
  */
 @Data
-public class ApplicationProperties extends HashMap<String, String> implements Serializable {
+public class ApplicationProperties extends HashMap<String, String> implements Serializable, Closeable {
 
     private static final long serialVersionUID = 240517204195025182L;
 
     private static final Log LOG = LogFactory.getLog(ApplicationProperties.class);
 
-    private static final String PROPERTY_SOURCE_ENV = "env";
-    private static final String PROPERTY_SOURCE_PROP = "prop";
-
     public enum PATH_TYPE {
         CLASSPATH_PREFIX("classpath:"),
         FILEPATH_PREFIX("file:"),
-        SERVLET_PREFIX("servlet:");
+        SERVLET_PREFIX("servlet:"),
+        HTTP_PREFIX("http:"),
+        HTTPS_PREFIX("https:"),
+        DIR_PREFIX("dir:");
 
         public final String value;
 
@@ -47,17 +86,81 @@ public class ApplicationProperties extends HashMap<String, String> implements Se
 
     }
 
+    /* the formats export() can write, see PropertiesExporter
+     * */
+    public enum ExportFormat {PROPERTIES, JSON, ENV}
+
     public static final String PATH_TYPE_REGEX = "^([^:]+:)?([^:]+)$";
     public static final String FAILED_TO_LOAD_PROPERTIES_FROM_CLASS_PATH_MSG_TEMPLATE = "Failed to load '%s' properties file named '%s' from path: %s";
+    public static final String MBEAN_DOMAIN = "com.lyders.properties";
+
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
+    private static final AtomicLong MBEAN_IDS = new AtomicLong();
+    // PreResolveValues=YES resolves at least this many values on the common fork-join pool instead of one after another
+    static final int PRE_RESOLVE_PARALLEL_THRESHOLD = 1024;
 
     private final ApplicationPropertiesConfig cfg;
 
     private final String propertiesFileName;
     private final String suffixedFileName;
 
-    private final LinkedHashMap<String, Properties> sources = new LinkedHashMap<>();
+    // which file each property came from, only kept when LogSourceFilePathsAndProperties=YES
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private volatile ProvenanceIndex provenance = new ProvenanceIndex();
+
+    // publishes the merged properties to get() as a whole whenever they change, see PropertiesPublisher
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient PropertiesPublisher publisher;
+
+    // only kept when WatchSourcesForChanges=YES so that a single changed file can be read again and merged with the others
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient List<PropertiesSourceLoader> sourceLoaders;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient List<PropertiesSource> loadedSources;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient PropertiesSourceWatcher watcher;
 
-    private final HashMap<String, String> cachedProps = new HashMap<>();
+    // null unless a listener was configured or the MBean is registered, so that nothing is measured otherwise
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient ApplicationPropertiesListener listener;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient ObjectName mbeanName;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient int loadedSourceCount;
+
+    // the memory-mapped file shared with other processes when SharedSegmentMode is PUBLISH or ATTACH
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient SharedConfigSegment sharedSegment;
+    // when publishing: the latest values that are not written to the shared segment yet, or null if there are none
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient AtomicReference<Map<String, String>> pendingSegmentValues = new AtomicReference<>();
+    // created by the first subscribe() call
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient volatile PropertiesSubscriptions subscriptions;
+
+    // when attached: the version of the segment the current view was published for
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient volatile long sharedSegmentVersion;
+
+    // the configured placeholder resolvers along with every value they have supplied so far
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private transient PlaceholderResolverChain placeholderResolvers;
 
     /* Overloaded constructor that passes null for config parameter of main constructor
      * */
@@ -87,65 +190,548 @@ public class ApplicationProperties extends HashMap<String, String> implements Se
 
         propertiesFileName = this.cfg.getPropertiesFileName();
         suffixedFileName = this.cfg.getSuffixFileName();
+        placeholderResolvers = new PlaceholderResolverChain(this.cfg.getPlaceholderResolvers());
+        publisher = newPublisher();
+
+        listener = this.cfg.getListener();
+        if (this.cfg.isRegisterMBean()) {
+            registerMBean();
+        }
+        long start = listener != null ? System.nanoTime() : 0;
+        try {
+            init();
+        } catch (FileNotFoundException | RuntimeException e) {
+            unregisterMBean();
+            throw e;
+        }
+        if (listener != null) {
+            listener.onInitialized(System.nanoTime() - start, loadedSourceCount, publisher.getView().getValues().size());
+        }
+    }
+
+    /* load the properties on the default executor: virtual threads on JDK 21+, otherwise a pool of daemon threads
+     * */
+    public static CompletableFuture<ApplicationProperties> loadAsync(ApplicationPropertiesConfig cfg) {
+        return loadAsync(cfg, null);
+    }
+
+    /**
+     * load the properties on the given executor so that the caller can do other work in the meantime
+     *
+     * @param cfg      config settings to use for the new instance of ApplicationProperties
+     * @param executor the executor to construct the instance on, or null for the default executor
+     * @return a future that completes with the new instance, or exceptionally with the FileNotFoundException (or
+     * RuntimeException) the constructor would have thrown; each file that failed is also reported to the listener
+     */
+    public static CompletableFuture<ApplicationProperties> loadAsync(ApplicationPropertiesConfig cfg, Executor executor) {
+        return AsyncLoad.load(cfg, executor, null);
+    }
+
+    /**
+     * load the properties on the given executor and complete once each of the given properties has been resolved to a
+     * non-empty value. With WatchSourcesForChanges=YES a property that is still missing after loading is waited for (use
+     * orTimeout() on the future to bound the wait); otherwise it fails the future with a PropertyEvaluatorException. When
+     * the future fails, times out or is cancelled, the instance it loaded is closed since the caller never gets it.
+     *
+     * @param cfg       config settings to use for the new instance of ApplicationProperties
+     * @param executor  the executor to construct the instance on, or null for the default executor
+     * @param awaitKeys the names of the properties to wait for
+     * @return a future that completes with the new instance once every one of the given properties has a value
+     */
+    public static CompletableFuture<ApplicationProperties> loadAsync(ApplicationPropertiesConfig cfg, Executor executor, Collection<String> awaitKeys) {
+        return AsyncLoad.load(cfg, executor, awaitKeys);
+    }
 
-        init();
+    /* register the load and lookup metrics of this instance as a JMX MBean, see ApplicationPropertiesMetricsMBean
+     * */
+    private void registerMBean() {
+        ApplicationPropertiesMetrics metrics = new ApplicationPropertiesMetrics(this::getResolutionCacheStats, () -> publisher.getView().getValues().size());
+        listener = listener != null ? new CompositeListener(listener, metrics) : metrics;
+        try {
+            ObjectName name = new ObjectName(String.format("%s:type=ApplicationProperties,name=%s,id=%d",
+                    MBEAN_DOMAIN, ObjectName.quote(String.valueOf(propertiesFileName)), MBEAN_IDS.incrementAndGet()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            mbeanName = name;
+        } catch (JMException e) {
+            LOG.warn(String.format("Failed to register the ApplicationProperties MBean: %s", e.getMessage()));
+        }
+    }
+
+    private void unregisterMBean() {
+        if (mbeanName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+            } catch (JMException e) {
+                LOG.warn(String.format("Failed to unregister the ApplicationProperties MBean '%s': %s", mbeanName, e.getMessage()));
+            }
+            mbeanName = null;
+        }
+    }
+
+    /* the name of the JMX MBean of this instance, or null if it is not registered
+     * */
+    public ObjectName getMBeanName() {
+        return mbeanName;
     }
 
     void init() throws FileNotFoundException {
-        loadDefaults(this.cfg);
-        loadPropertiesFromPaths(this.cfg);
+        if (cfg.isAttachSharedSegment()) {
+            attachSharedSegment();
+            return;
+        }
+        Path snapshotFile = cfg.getSnapshotFilePath() != null ? Paths.get(cfg.getSnapshotFilePath()) : null;
+        // watching needs each of the files loaded on their own, which a snapshot no longer has
+        if (snapshotFile != null && !cfg.isWatchSourcesForChanges() && loadFromSnapshot(snapshotFile)) {
+            failOnPreResolveErrors(publisher.publish());
+            return;
+        }
+        List<PropertiesSourceLoader> loaders = new ArrayList<>();
+        loadDefaults(this.cfg, loaders);
+        loadPropertiesFromPaths(this.cfg, loaders);
+        List<PropertiesSource> loaded = loadSources(loaders);
+        loadedSourceCount = loaded.size();
+        failOnPreResolveErrors(publisher.publish());
+        if (snapshotFile != null) {
+            writeSnapshot(snapshotFile, loaded);
+        }
+        if (cfg.isWatchSourcesForChanges()) {
+            watchSources(loaders, loaded);
+        }
     }
 
-    void loadPropertiesFromClassPath(String pathStr, String propertiesFileName) throws FileNotFoundException {
+    private void watchSources(List<PropertiesSourceLoader> loaders, List<PropertiesSource> loaded) {
+        sourceLoaders = loaders;
+        loadedSources = loaded;
+        try {
+            watcher = new PropertiesSourceWatcher(loaded, this::reloadSources);
+            if (!watcher.isWatching()) {
+                LOG.info("None of the properties files are \"file:\" or \"servlet:\" paths, so there are no changes to watch for");
+            }
+        } catch (IOException e) {
+            LOG.warn(String.format("Failed to watch properties files for changes: %s", e.getMessage()));
+        }
+    }
+
+    /* read the given sources (by their index in the load order) again, merge them with all of the other sources and the
+     * changes made through the Map methods, and then publish the result as a whole. A file that fails to load keeps its
+     * previous properties.
+     * */
+    synchronized void reloadSources(Set<Integer> changed) {
+        List<PropertiesSource> reloaded = new ArrayList<>(loadedSources);
+        for (int idx : changed) {
+            try {
+                reloaded.set(idx, load(sourceLoaders.get(idx)));
+                LOG.info(String.format("Reloaded changed properties file: %s", reloaded.get(idx).getPath()));
+            } catch (FileNotFoundException | RuntimeException | InternalError e) {
+                // an InternalError is how a memory-mapped file that was truncated while being parsed (e.g., rewritten in place) fails
+                LOG.warn(String.format("Failed to reload properties file '%s', so keeping its previous properties: %s", loadedSources.get(idx).getPath(), e.getMessage()));
+            }
+        }
+        loadedSources = reloaded;
+        ProvenanceIndex reloadedProvenance = new ProvenanceIndex();
+        super.clear();
+        for (PropertiesSource source : reloaded) {
+            mergeSource(source, reloadedProvenance);
+        }
+        provenance = reloadedProvenance;
+        publisher.publishReloaded();
+    }
+
+    /* the publisher of the merged properties, which are the inherited HashMap that the loaders and the Map methods write to
+     * */
+    private PropertiesPublisher newPublisher() {
+        return new PropertiesPublisher(new MergedValues(), cfg.getResolutionCacheMaxSize(), cfg.isWatchSourcesForChanges(),
+                cfg.isPreResolveValues() ? (next, previous, stale, errors) -> preResolve(next, previous, stale, true, errors) : null,
+                this::onPublished);
+    }
+
+    /* write a newly published view to the shared segment and deliver its changes to the subscriptions
+     * */
+    private void onPublished(PropertiesView previous, PropertiesView next, Collection<String> changedKeys) {
+        if (cfg.isPublishSharedSegment()) {
+            publishSharedSegment(next.getValues());
+        }
+        PropertiesSubscriptions currentSubscriptions = subscriptions;
+        if (currentSubscriptions != null && !currentSubscriptions.isEmpty()) {
+            currentSubscriptions.publish(previous.getValues(), next.getValues(), changedKeys);
+        }
+    }
+
+    /* the inherited HashMap as a map of its own, since the overridden Map methods read the published view instead
+     * */
+    private final class MergedValues extends AbstractMap<String, String> {
+
+        @Override
+        public String get(Object key) {
+            return ApplicationProperties.super.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return ApplicationProperties.super.containsKey(key);
+        }
+
+        @Override
+        public String put(String key, String value) {
+            return ApplicationProperties.super.put(key, value);
+        }
+
+        @Override
+        public String remove(Object key) {
+            return ApplicationProperties.super.remove(key);
+        }
+
+        @Override
+        public int size() {
+            return ApplicationProperties.super.size();
+        }
+
+        @Override
+        public Set<Map.Entry<String, String>> entrySet() {
+            return ApplicationProperties.super.entrySet();
+        }
+    }
+
+    private Path getSharedSegmentFile() {
+        if (StringUtils.isEmpty(cfg.getSharedSegmentFilePath())) {
+            throw new IllegalStateException(String.format("SharedSegmentMode=%s requires a sharedSegmentFilePath", cfg.getSharedSegmentMode()));
+        }
+        return Paths.get(cfg.getSharedSegmentFilePath());
+    }
+
+    /* write the given merged properties to the shared segment for the processes attached to it. The first ones are
+     * written right away; later ones are handed to a background thread that writes only the latest values it finds, so
+     * that a burst of put() calls rewrites the segment once instead of once per call and doesn't wait for it.
+     * */
+    private void publishSharedSegment(Map<String, String> values) {
+        if (sharedSegment == null) {
+            writeSharedSegment(values);
+            return;
+        }
+        if (pendingSegmentValues.getAndSet(values) == null) {
+            Executor executor = cfg.getChangeExecutor() != null ? cfg.getChangeExecutor() : PropertiesSubscriptions.defaultExecutor();
+            try {
+                executor.execute(this::flushSharedSegment);
+            } catch (RejectedExecutionException e) {
+                flushSharedSegment();
+            }
+        }
+    }
+
+    /* write the latest values that were published since the shared segment was last written, if any
+     * */
+    private void flushSharedSegment() {
+        SharedConfigSegment segment = sharedSegment;
+        if (segment == null) {
+            return;
+        }
+        synchronized (segment) {
+            Map<String, String> values = pendingSegmentValues.getAndSet(null);
+            if (values != null) {
+                writeSharedSegment(values);
+            }
+        }
+    }
+
+    /* a failure only costs the attached processes the update, so it is logged rather than thrown
+     * */
+    private void writeSharedSegment(Map<String, String> values) {
+        Path file = getSharedSegmentFile();
+        try {
+            ByteBuffer bytes = ConfigSnapshotFile.toBytes(cfg.getSourcesKey(), Collections.emptyList(), values);
+            if (sharedSegment == null) {
+                sharedSegment = SharedConfigSegment.publish(file, bytes);
+            } else {
+                sharedSegment.update(bytes);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.warn(String.format("Failed to publish properties to shared segment '%s': %s", file, e.getMessage()));
+        }
+    }
+
+    /* map the segment published by another process instead of loading any properties files
+     * */
+    private void attachSharedSegment() throws FileNotFoundException {
+        Path file = getSharedSegmentFile();
+        long start = System.nanoTime();
+        SharedConfigSegment segment;
+        try {
+            segment = SharedConfigSegment.attach(file);
+        } catch (IOException e) {
+            throw new FileNotFoundException(String.format("Failed to attach to shared properties segment '%s': %s", file, e.getMessage()));
+        }
+        sharedSegment = segment;
+        sharedSegmentVersion = segment.getVersion();
+        PropertiesView attached = PropertiesView.ofSharedSegment(segment, null, cfg.getResolutionCacheMaxSize());
+        if (cfg.isPreResolveValues()) {
+            List<PropertyEvaluatorException> errors = new ArrayList<>();
+            attached = attached.withResolved(preResolve(attached, null, null, true, errors));
+            failOnPreResolveErrors(errors);
+        }
+        publisher.setView(attached);
+        loadedSourceCount = 1;
+        if (listener != null) {
+            try {
+                listener.onSourceLoaded(file.toString(), System.nanoTime() - start, Files.size(file), segment.size());
+            } catch (IOException e) {
+                listener.onSourceLoaded(file.toString(), System.nanoTime() - start, -1, segment.size());
+            }
+        }
+    }
+
+    /* the current view; when attached to a shared segment that was updated since, a new view so that none of the values
+     * cached from the previous version are returned
+     * */
+    private PropertiesView currentView() {
+        SharedConfigSegment segment = sharedSegment;
+        if (segment != null && !cfg.isPublishSharedSegment() && segment.getVersion() != sharedSegmentVersion) {
+            return refreshSharedView(segment);
+        }
+        return publisher.getView();
+    }
+
+    private synchronized PropertiesView refreshSharedView(SharedConfigSegment segment) {
+        long version = segment.getVersion();
+        if (version != sharedSegmentVersion) {
+            PropertiesView next = PropertiesView.ofSharedSegment(segment, publisher.getView(), cfg.getResolutionCacheMaxSize());
+            if (cfg.isPreResolveValues()) {
+                next = next.withResolved(preResolve(next, null, null, true, new ArrayList<>()));
+            }
+            publisher.setView(next);
+            sharedSegmentVersion = version;
+        }
+        return publisher.getView();
+    }
+
+    private void checkNotAttached() {
+        if (cfg.isAttachSharedSegment()) {
+            throw new UnsupportedOperationException("Properties attached to a shared segment are read-only");
+        }
+    }
+
+    /* the published views can't hold a null property name, so one is rejected before the merged properties change
+     * */
+    private static void checkPropertyName(Object key) {
+        if (key == null) {
+            throw new NullPointerException("Property names can't be null");
+        }
+    }
+
+    private static void failOnPreResolveErrors(List<PropertyEvaluatorException> errors) {
+        if (!errors.isEmpty()) {
+            throw new PropertiesResolutionException(errors);
+        }
+    }
+
+    /* evaluate and decode every non-empty value of the given view the same way get(name) would. A value that did not
+     * change since the previous view is reused as it is, unless it has placeholders and reuseEvaluated is false, or it
+     * references another property and is not known to be outside of the given stale names (null if unknown). When the
+     * stale names are known, only they are resolved again and every other value is shared with the previous view.
+     * */
+    private Map<String, String> preResolve(PropertiesView next, PropertiesView previous, Set<String> stale, boolean reuseEvaluated, List<PropertyEvaluatorException> errors) {
+        Map<String, String> previousResolved = previous != null ? previous.getResolved() : null;
+        Map<String, String> previousValues = previous != null ? previous.getValues() : null;
+        if (previousResolved != null && stale != null && reuseEvaluated) {
+            return preResolveStale(next, PersistentMap.of(previousResolved), stale, errors);
+        }
+        Queue<PropertyEvaluatorException> failures = new ConcurrentLinkedQueue<>();
+        Stream<Map.Entry<String, String>> entries = next.getValues().entrySet().stream();
+        if (next.getValues().size() >= PRE_RESOLVE_PARALLEL_THRESHOLD) {
+            entries = entries.parallel();
+        }
+        Map<String, String> resolved = entries
+                .filter(e -> !StringUtils.isEmpty(e.getValue()))
+                .map(e -> {
+                    String propertyName = e.getKey();
+                    PropertyTemplate template = next.getTemplate(propertyName);
+                    boolean reusable = template == null || (reuseEvaluated && (!template.hasReferences() || (stale != null && !stale.contains(propertyName))));
+                    if (previousResolved != null && reusable && e.getValue().equals(previousValues.get(propertyName))) {
+                        String value = previousResolved.get(propertyName);
+                        if (value != null) {
+                            return new AbstractMap.SimpleImmutableEntry<>(propertyName, value);
+                        }
+                    }
+                    try {
+                        checkNotCircular(next, template, propertyName);
+                        String value = template != null ? evaluate(next, template, propertyName, null) : e.getValue();
+                        return new AbstractMap.SimpleImmutableEntry<>(propertyName, value.replace("\\n", "\n"));
+                    } catch (PropertyEvaluatorException ex) {
+                        failures.add(ex);
+                        return null;
+                    }
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        failures.stream().sorted(Comparator.comparing(Throwable::getMessage)).forEach(errors::add);
+        return resolved;
+    }
+
+    /* the given pre-resolved values of the previous view with only the given stale names resolved again
+     * */
+    private Map<String, String> preResolveStale(PropertiesView next, PersistentMap<String, String> resolved, Set<String> stale, List<PropertyEvaluatorException> errors) {
+        List<PropertyEvaluatorException> failures = new ArrayList<>();
+        for (String propertyName : stale) {
+            String value = next.getValues().get(propertyName);
+            if (StringUtils.isEmpty(value)) {
+                resolved = resolved.without(propertyName);
+                continue;
+            }
+            PropertyTemplate template = next.getTemplate(propertyName);
+            try {
+                checkNotCircular(next, template, propertyName);
+                String evaluated = template != null ? evaluate(next, template, propertyName, null) : value;
+                resolved = resolved.with(propertyName, evaluated.replace("\\n", "\n"));
+            } catch (PropertyEvaluatorException ex) {
+                failures.add(ex);
+                resolved = resolved.without(propertyName);
+            }
+        }
+        failures.stream().sorted(Comparator.comparing(Throwable::getMessage)).forEach(errors::add);
+        return resolved;
+    }
+
+    /* resolve the pre-resolved values of the current view again after its environment variables or system properties
+     * were invalidated, and return how many of them changed
+     * */
+    private synchronized int refreshResolvedView() {
+        PropertiesView current = publisher.getView();
+        Map<String, String> previousResolved = current.getResolved();
+        if (previousResolved == null) {
+            return 0;
+        }
+        Map<String, String> resolved = preResolve(current, current, null, false, new ArrayList<>());
+        int changed = 0;
+        for (String propertyName : current.getValues().keySet()) {
+            if (!Objects.equals(resolved.get(propertyName), previousResolved.get(propertyName))) {
+                changed++;
+            }
+        }
+        publisher.setView(current.withResolved(resolved));
+        return changed;
+    }
+
+    /* load all of the merged properties from a snapshot written by an earlier start, as long as it was written for the
+     * same config and none of its source files have changed since
+     * */
+    boolean loadFromSnapshot(Path snapshotFile) {
+        if (!Files.isRegularFile(snapshotFile)) {
+            return false;
+        }
+        try {
+            long start = System.nanoTime();
+            ConfigSnapshotFile snapshot = ConfigSnapshotFile.open(snapshotFile);
+            if (!cfg.getSourcesKey().equals(snapshot.getConfigKey()) || !snapshot.isFresh()) {
+                LOG.info(String.format("Properties snapshot is out of date, so reloading all properties files: %s", snapshotFile));
+                return false;
+            }
+            int entryCount = snapshot.getEntryCount();
+            Map<String, String> merged = new HashMap<>(entryCount * 2);
+            List<List<String>> sourceKeys = new ArrayList<>();
+            for (int source = 0; source < snapshot.getSourceCount(); source++) {
+                sourceKeys.add(new ArrayList<>());
+            }
+            for (int entry = 0; entry < entryCount; entry++) {
+                String key = snapshot.getKey(entry);
+                merged.put(key, snapshot.getValue(entry));
+                int source = snapshot.getSource(entry);
+                if (source >= 0 && cfg.isLogSourceFilePathsAndProperties()) {
+                    // only the final value of each property is kept in the snapshot, so each source lists the properties it won
+                    sourceKeys.get(source).add(key);
+                }
+            }
+            for (int source = 0; source < snapshot.getSourceCount(); source++) {
+                logSourceFilePathAndProperties(provenance, snapshot.getSourcePath(source), sourceKeys.get(source));
+            }
+            super.putAll(merged);
+            // the snapshot stands in for all of the sources
+            loadedSourceCount = 1;
+            if (listener != null) {
+                listener.onSourceLoaded(snapshotFile.toString(), System.nanoTime() - start, Files.size(snapshotFile), entryCount);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn(String.format("Failed to read properties snapshot '%s', so reloading all properties files: %s", snapshotFile, e.getMessage()));
+            return false;
+        }
+    }
+
+    void writeSnapshot(Path snapshotFile, List<PropertiesSource> loadedSources) {
+        if (!ConfigSnapshotFile.isSnapshottable(loadedSources)) {
+            LOG.info(String.format("Not writing properties snapshot '%s' since an http(s) properties file can't be checked for changes", snapshotFile));
+            return;
+        }
+        try {
+            ConfigSnapshotFile.write(snapshotFile, cfg.getSourcesKey(), loadedSources, this);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn(String.format("Failed to write properties snapshot '%s': %s", snapshotFile, e.getMessage()));
+        }
+    }
+
+    PropertiesSource loadPropertiesFromClassPath(String pathStr, String propertiesFileName) throws FileNotFoundException {
         String filePathStr = Paths.get(pathStr, propertiesFileName).toString();
-        URL res = this.getClass().getClassLoader().getResource(filePathStr);
-        try (InputStream in = res.openStream()) {
-            Properties properties = new Properties();
-            properties.load(in);
-            logSourceFilePathAndProperties(res.toString(), properties);
-            putAll((Map) properties);
-        } catch (NullPointerException | IOException e) {
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        URL res = classLoader.getResource(filePathStr);
+        try {
+            if (cfg.isShareClassPathSources()) {
+                return ClassPathSourceCache.get(classLoader, res, () -> parseClassPathResource(res));
+            }
+            return parseClassPathResource(res);
+        } catch (NullPointerException | IOException | URISyntaxException e) {
             throw new FileNotFoundException(String.format(FAILED_TO_LOAD_PROPERTIES_FROM_CLASS_PATH_MSG_TEMPLATE, PATH_TYPE.CLASSPATH_PREFIX, propertiesFileName, pathStr));
         }
     }
 
-    void loadPropertiesFromFileSystem(String pathStr, String propertiesFileName) throws FileNotFoundException {
-        String filePathStr = Paths.get(pathStr, propertiesFileName).toAbsolutePath().toString();
-        try (FileReader fileReader = new FileReader(filePathStr, StandardCharsets.UTF_8)) {
-            Properties properties = new Properties();
-            properties.load(fileReader);
-            logSourceFilePathAndProperties(filePathStr, properties);
-            putAll((Map) properties);
+    private static PropertiesSource parseClassPathResource(URL res) throws IOException, URISyntaxException {
+        Map<String, String> properties = new LinkedHashMap<>();
+        int size;
+        if ("file".equals(res.getProtocol())) {
+            // an exploded class path directory (e.g., target/classes) is read like any other file
+            size = SourceParser.parse(Paths.get(res.toURI()), properties::put);
+        } else {
+            try (InputStream in = res.openStream()) {
+                size = SourceParser.parse(res.getPath(), in, properties::put);
+            }
+        }
+        return new PropertiesSource(res.toString(), CLASSPATH_PREFIX, properties, size);
+    }
+
+    PropertiesSource loadPropertiesFromFileSystem(String pathStr, String propertiesFileName) throws FileNotFoundException {
+        Path filePath = Paths.get(pathStr, propertiesFileName).toAbsolutePath();
+        try {
+            Map<String, String> properties = new LinkedHashMap<>();
+            int size = SourceParser.parse(filePath, properties::put);
+            return new PropertiesSource(filePath.toString(), FILEPATH_PREFIX, properties, size);
         } catch (IOException e) {
             throw new FileNotFoundException(String.format(FAILED_TO_LOAD_PROPERTIES_FROM_CLASS_PATH_MSG_TEMPLATE, PATH_TYPE.FILEPATH_PREFIX, propertiesFileName, pathStr));
         }
     }
 
-    void loadPropertiesFromServletPath(String pathStr, String propertiesFileName) throws FileNotFoundException {
-        String filePathStr = Paths.get(cfg.getServletPropertiesBaseDirectory(), pathStr, propertiesFileName).toAbsolutePath().toString();
-        try (FileReader fileReader = new FileReader(filePathStr, StandardCharsets.UTF_8)) {
-            Properties properties = new Properties();
-            properties.load(fileReader);
-            logSourceFilePathAndProperties(filePathStr, properties);
-            putAll((Map) properties);
+    PropertiesSource loadPropertiesFromServletPath(String pathStr, String propertiesFileName) throws FileNotFoundException {
+        Path filePath = Paths.get(cfg.getServletPropertiesBaseDirectory(), pathStr, propertiesFileName).toAbsolutePath();
+        try {
+            Map<String, String> properties = new LinkedHashMap<>();
+            int size = SourceParser.parse(filePath, properties::put);
+            return new PropertiesSource(filePath.toString(), SERVLET_PREFIX, properties, size);
         } catch (IOException e) {
             throw new FileNotFoundException(String.format(FAILED_TO_LOAD_PROPERTIES_FROM_CLASS_PATH_MSG_TEMPLATE, PATH_TYPE.FILEPATH_PREFIX, propertiesFileName, pathStr));
         }
     }
 
-    void loadDefaults(ApplicationPropertiesConfig cfg) throws FileNotFoundException {
+    void loadDefaults(ApplicationPropertiesConfig cfg, List<PropertiesSourceLoader> loaders) {
         // should we try to load an application.properties file from the classpath if it exists and use it as the default set of properties?
         if (cfg.isLoadClassPathRootPropertiesAsDefaults()) {
             // load the property file from the classpath, if it exists
-            loadPropertiesFromClassPath("", cfg.getPropertiesFileName());
+            String propertiesFileName = cfg.getPropertiesFileName();
+            loaders.add(() -> loadPropertiesFromClassPath("", propertiesFileName));
             // additionally, if a suffixed file exists in the same place...then load it also to override the properties from the non-suffixed file
-            if (cfg.getSuffixFileName() != null) {
-                loadPropertiesFromClassPath("", cfg.getSuffixFileName());
+            String suffixFileName = cfg.getSuffixFileName();
+            if (suffixFileName != null) {
+                loaders.add(() -> loadPropertiesFromClassPath("", suffixFileName));
             }
         }
     }
 
-    void loadPropertiesFromPaths(ApplicationPropertiesConfig cfg) throws FileNotFoundException {
+    void loadPropertiesFromPaths(ApplicationPropertiesConfig cfg, List<PropertiesSourceLoader> loaders) {
         Pattern pathTypePattern = Pattern.compile(PATH_TYPE_REGEX);
 
         if (!cfg.isLoadClassPathRootPropertiesAsDefaults() && cfg.getPaths().isEmpty()) {
@@ -153,6 +739,12 @@ public class ApplicationProperties extends HashMap<String, String> implements Se
         }
         // load properties file from each of the given paths if a file exists there
         for (String p : cfg.getPaths()) {
+            // a URL has more colons than PATH_TYPE_REGEX allows for, e.g., "https://host:8443/config"
+            if (p.startsWith(HTTP_PREFIX.value) || p.startsWith(HTTPS_PREFIX.value)) {
+                String pathType = p.startsWith(HTTP_PREFIX.value) ? HTTP_PREFIX.value : HTTPS_PREFIX.value;
+                loadFromPathType(pathType, p.substring(pathType.length()), loaders);
+                continue;
+            }
             Matcher matcher = pathTypePattern.matcher(p);
             while (matcher.find()) {
                 String pathType = matcher.group(1);
@@ -162,33 +754,124 @@ public class ApplicationProperties extends HashMap<String, String> implements Se
                 String pathStr = matcher.group(2);
 
                 pathType = getPathTypeDefault(cfg, pathType);
-                loadFromPathType(pathType, pathStr);
+                loadFromPathType(pathType, pathStr, loaders);
             }
 
         }
     }
 
-    private void loadFromPathType(String pathType, String pathStr) throws FileNotFoundException {
+    private void loadFromPathType(String pathType, String pathStr, List<PropertiesSourceLoader> loaders) {
         if (CLASSPATH_PREFIX.value.equals(pathType)) {
-            loadPropertiesFromClassPath(pathStr, propertiesFileName);
+            loaders.add(() -> loadPropertiesFromClassPath(pathStr, propertiesFileName));
             if (suffixedFileName != null) {
-                loadPropertiesFromClassPath(pathStr, suffixedFileName);
+                loaders.add(() -> loadPropertiesFromClassPath(pathStr, suffixedFileName));
             }
         } else if (SERVLET_PREFIX.value.equals(pathType)) {
-            loadPropertiesFromServletPath(pathStr, propertiesFileName);
+            loaders.add(() -> loadPropertiesFromServletPath(pathStr, propertiesFileName));
             if (suffixedFileName != null) {
-                loadPropertiesFromServletPath(pathStr, suffixedFileName);
+                loaders.add(() -> loadPropertiesFromServletPath(pathStr, suffixedFileName));
             }
         } else if (FILEPATH_PREFIX.value.equals(pathType)) {
-            loadPropertiesFromFileSystem(pathStr, propertiesFileName);
+            loaders.add(() -> loadPropertiesFromFileSystem(pathStr, propertiesFileName));
             if (suffixedFileName != null) {
-                loadPropertiesFromFileSystem(pathStr, suffixedFileName);
+                loaders.add(() -> loadPropertiesFromFileSystem(pathStr, suffixedFileName));
+            }
+        } else if (DIR_PREFIX.value.equals(pathType)) {
+            // every file in the directory is loaded, so there is no separate suffixed file
+            loaders.add(() -> DirectorySourceLoader.load(Paths.get(pathStr).toAbsolutePath()));
+        } else if (HTTP_PREFIX.value.equals(pathType) || HTTPS_PREFIX.value.equals(pathType)) {
+            HttpSourceLoader http = new HttpSourceLoader(pathType + pathStr, cfg.getHttpCachePath(), Duration.ofMillis(cfg.getHttpTimeoutMillis()));
+            loaders.add(() -> {
+                // fetch the suffixed file at the same time as the base file instead of after it
+                if (suffixedFileName != null) {
+                    http.prefetch(suffixedFileName);
+                }
+                return http.load(propertiesFileName);
+            });
+            if (suffixedFileName != null) {
+                loaders.add(() -> http.load(suffixedFileName));
             }
         } else {
             throw new IllegalArgumentException("Unknown properties path type prefix: " + pathType);
         }
     }
 
+    /* read every properties file, either one after another or all at the same time, and then merge them in the same
+     * order as they were given so that the later files always override the earlier ones
+     * */
+    List<PropertiesSource> loadSources(List<PropertiesSourceLoader> loaders) throws FileNotFoundException {
+        List<PropertiesSource> loadedSources = new ArrayList<>(loaders.size());
+        if (!cfg.isLoadSourcesInParallel() || loaders.size() < 2) {
+            for (PropertiesSourceLoader loader : loaders) {
+                PropertiesSource source = load(loader);
+                mergeSource(source, provenance);
+                loadedSources.add(source);
+            }
+            return loadedSources;
+        }
+        Executor executor = cfg.getLoadExecutor() != null ? cfg.getLoadExecutor() : ForkJoinPool.commonPool();
+        List<CompletableFuture<PropertiesSource>> futures = new ArrayList<>(loaders.size());
+        for (PropertiesSourceLoader loader : loaders) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return load(loader);
+                } catch (FileNotFoundException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+        try {
+            // wait for the files in the order they were declared so that the first missing file is the one reported, just as when loading sequentially
+            for (CompletableFuture<PropertiesSource> future : futures) {
+                PropertiesSource source = joinSource(future);
+                mergeSource(source, provenance);
+                loadedSources.add(source);
+            }
+        } finally {
+            // nothing left to wait for once a file failed to load
+            futures.forEach(f -> f.cancel(false));
+        }
+        return loadedSources;
+    }
+
+    private PropertiesSource load(PropertiesSourceLoader loader) throws FileNotFoundException {
+        ApplicationPropertiesListener listener = this.listener;
+        if (listener == null) {
+            return loader.load();
+        }
+        long start = System.nanoTime();
+        PropertiesSource source;
+        try {
+            source = loader.load();
+        } catch (FileNotFoundException | RuntimeException e) {
+            listener.onSourceFailed(e);
+            throw e;
+        }
+        listener.onSourceLoaded(source.getPath(), System.nanoTime() - start, source.getSize(), source.getProperties().size());
+        return source;
+    }
+
+    private PropertiesSource joinSource(CompletableFuture<PropertiesSource> future) throws FileNotFoundException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof FileNotFoundException) {
+                throw (FileNotFoundException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private void mergeSource(PropertiesSource source, ProvenanceIndex index) {
+        logSourceFilePathAndProperties(index, source.getPath(), source.getProperties().keySet());
+        super.putAll(source.getProperties());
+    }
+
     private String getPathTypeDefault(ApplicationPropertiesConfig cfg, String pathType) {
         if (StringUtils.isEmpty(pathType)) {
             if (cfg.getServletContext() != null) {
@@ -208,36 +891,508 @@ public class ApplicationProperties extends HashMap<String, String> implements Se
         }
     }
 
-    /* utility method to print out a detailed list of which properties were loaded from each file
+    /**
+     * write every property to the given writer one at a time, so that even a very large set of properties is never held
+     * in memory as a whole; ENV only keeps the environment variable name of every property written, to warn about the
+     * names that collide. All of the values are read from the same version of the properties.
+     *
+     * @param out      the writer to write to; it is flushed but not closed
+     * @param format   PROPERTIES ("key=value" lines), JSON (one flat object) or ENV ("KEY=value" lines that sh can source)
+     * @param resolved if true, write the values get(name) returns, otherwise write the values as they were loaded
+     * @param sorted   if true, write the properties in the order of their names
+     * @throws IOException                if writing fails
+     * @throws PropertyEvaluatorException if resolved is true and a value could not be evaluated
+     */
+    public void export(Writer out, ExportFormat format, boolean resolved, boolean sorted) throws IOException, PropertyEvaluatorException {
+        PropertiesView currentView = currentView();
+        Map<String, String> values = currentView.getValues();
+        PropertiesExporter exporter = new PropertiesExporter(out, format);
+        exporter.begin();
+        if (sorted) {
+            for (String name : currentView.keysWithPrefix("")) {
+                String value = values.get(name);
+                exporter.write(name, resolved ? exportedValue(currentView, name, value) : value);
+            }
+        } else {
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                exporter.write(entry.getKey(), resolved ? exportedValue(currentView, entry.getKey(), entry.getValue()) : entry.getValue());
+            }
+        }
+        exporter.end();
+    }
+
+    /* write every property to the given stream as UTF-8, see export(Writer, ...); the stream is flushed but not closed
+     * */
+    public void export(OutputStream out, ExportFormat format, boolean resolved, boolean sorted) throws IOException, PropertyEvaluatorException {
+        export(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), format, resolved, sorted);
+    }
+
+    /* write every property to the given channel as UTF-8, see export(Writer, ...); the channel is not closed
+     * */
+    public void export(WritableByteChannel out, ExportFormat format, boolean resolved, boolean sorted) throws IOException, PropertyEvaluatorException {
+        export(Channels.newWriter(out, StandardCharsets.UTF_8.newEncoder(), EXPORT_BUFFER_SIZE), format, resolved, sorted);
+    }
+
+    /* the value get(name) would return for the given property, or the empty value itself, without caching it so that
+     * exporting every property doesn't push the values that are actually in use out of the resolution cache
+     * */
+    private String exportedValue(PropertiesView currentView, String propertyName, String value) throws PropertyEvaluatorException {
+        Map<String, String> resolved = currentView.getResolved();
+        if (resolved != null && resolved.containsKey(propertyName)) {
+            return resolved.get(propertyName);
+        }
+        if (StringUtils.isEmpty(value)) {
+            return value;
+        }
+        PropertyTemplate template = currentView.getTemplate(propertyName);
+        if (template != null) {
+            checkNotCircular(currentView, template, propertyName);
+            value = evaluate(currentView, template, propertyName, null);
+        }
+        return value.replace("\\n", "\n");
+    }
+
+    /* utility method to print out a detailed list of which properties were loaded from each file. Only the final value
+     * of each property is kept, so a property that a later file overrode is listed with the file that overrode it.
      * */
     public void printAllSourcesAndProperties(Consumer<String> f) {
         if (!cfg.isLogSourceFilePathsAndProperties()) {
             f.accept("Logging of source files paths and properties is not enabled");
         }
-        if (sources.isEmpty()) {
+        ProvenanceIndex index = provenance;
+        if (index.getSourceCount() == 0) {
             f.accept("No source files found");
         }
-        int fileIdx = 0;
-        for (Map.Entry<String, Properties> source : sources.entrySet()) {
-            String fileName = source.getKey();
-            f.accept(String.format("Source file %d: %s", ++fileIdx, fileName));
-            Properties properties = source.getValue();
-            Iterator<Object> iterator = properties.keySet().iterator();
-            while (iterator.hasNext()) {
-                String key = (String) iterator.next();
-                f.accept(String.format("    %s=%s", key, properties.get(key)));
+        List<List<String>> sourceKeys = new ArrayList<>(index.getSourceCount());
+        for (int source = 0; source < index.getSourceCount(); source++) {
+            sourceKeys.add(new ArrayList<>());
+        }
+        for (Map.Entry<String, int[]> entry : index.entries()) {
+            for (int source : entry.getValue()) {
+                sourceKeys.get(source).add(entry.getKey());
+            }
+        }
+        for (int source = 0; source < index.getSourceCount(); source++) {
+            f.accept(String.format("Source file %d: %s", source + 1, index.getPath(source)));
+            List<String> keys = sourceKeys.get(source);
+            Collections.sort(keys);
+            for (String key : keys) {
+                int winner = index.sourceOf(key);
+                if (winner == source) {
+                    f.accept(String.format("    %s=%s", key, publisher.getView().getValues().get(key)));
+                } else {
+                    f.accept(String.format("    %s (overridden by %s)", key, index.getPath(winner)));
+                }
             }
         }
     }
 
-    private void logSourceFilePathAndProperties(String filePathStr, Properties properties) {
+    private void logSourceFilePathAndProperties(ProvenanceIndex index, String filePathStr, Collection<String> keys) {
         if (cfg.isLogSourceFilePathsAndProperties()) {
-            sources.put(filePathStr, properties);
+            index.add(filePathStr, keys);
+        }
+    }
+
+    /**
+     * return the properties files that were loaded, each with the final values of the properties that came from it.
+     * This is built from the provenance index on each call, so the values a file set that a later file overrode are not
+     * included; see overrideChain().
+     *
+     * @return the final properties keyed by the path of the file they came from, in load order; empty unless LogSourceFilePathsAndProperties=YES
+     */
+    public LinkedHashMap<String, Properties> getSources() {
+        ProvenanceIndex index = provenance;
+        LinkedHashMap<String, Properties> sources = new LinkedHashMap<>();
+        for (String path : index.getPaths()) {
+            sources.put(path, new Properties());
+        }
+        Map<String, String> values = publisher.getView().getValues();
+        for (Map.Entry<String, int[]> entry : index.entries()) {
+            int[] chain = entry.getValue();
+            String value = values.get(entry.getKey());
+            if (value != null) {
+                sources.get(index.getPath(chain[chain.length - 1])).put(entry.getKey(), value);
+            }
+        }
+        return sources;
+    }
+
+    /* the path of the properties file the value of the given property was loaded from, or null if it was not loaded from
+     * a file or LogSourceFilePathsAndProperties=NO
+     * */
+    public String sourceOf(String propertyName) {
+        ProvenanceIndex index = provenance;
+        int source = index.sourceOf(propertyName);
+        return source >= 0 ? index.getPath(source) : null;
+    }
+
+    /* the paths of every properties file that set the given property in load order, so the last one is the file whose
+     * value won; empty if the property was not loaded from a file or LogSourceFilePathsAndProperties=NO
+     * */
+    public List<String> overrideChain(String propertyName) {
+        ProvenanceIndex index = provenance;
+        int[] chain = index.chainOf(propertyName);
+        List<String> paths = new ArrayList<>(chain.length);
+        for (int source : chain) {
+            paths.add(index.getPath(source));
         }
+        return paths;
     }
 
     public String toString() {
-        return String.format("propertiesFileName=%s, suffixedFileName=%s, cfg=%s, sources=%s", propertiesFileName, suffixedFileName, cfg.toString(), sources.toString());
+        return String.format("propertiesFileName=%s, suffixedFileName=%s, cfg=%s, sources=%s", propertiesFileName, suffixedFileName, cfg.toString(), provenance.getPaths());
+    }
+
+    /* the inherited Map methods read the same view as get(), so they never see a reload or a put() half done; their key,
+     * value and entry sets are read-only
+     * */
+    @Override
+    public String get(Object key) {
+        return currentView().getValues().get(key);
+    }
+
+    @Override
+    public String getOrDefault(Object key, String defaultValue) {
+        return currentView().getValues().getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return currentView().getValues().containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return currentView().getValues().containsValue(value);
+    }
+
+    @Override
+    public int size() {
+        return currentView().getValues().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return currentView().getValues().isEmpty();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return currentView().getValues().keySet();
+    }
+
+    @Override
+    public Collection<String> values() {
+        return currentView().getValues().values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return currentView().getValues().entrySet();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super String> action) {
+        currentView().getValues().forEach(action);
+    }
+
+    /* changes made through the Map methods are published to get() just like a reloaded file, each one as a new view that
+     * shares every property it didn't change with the previous one. A call that leaves every value as it was publishes
+     * nothing. A null property name is rejected before anything changes, unlike with a plain HashMap.
+     * */
+    @Override
+    public synchronized String put(String key, String value) {
+        checkNotAttached();
+        checkPropertyName(key);
+        boolean hadKey = super.containsKey(key);
+        String previous = super.put(key, value);
+        publishIfChanged(key, hadKey, previous);
+        return previous;
+    }
+
+    @Override
+    public synchronized void putAll(Map<? extends String, ? extends String> m) {
+        checkNotAttached();
+        m.keySet().forEach(ApplicationProperties::checkPropertyName);
+        List<String> changedKeys = new ArrayList<>();
+        for (Map.Entry<? extends String, ? extends String> entry : m.entrySet()) {
+            boolean hadKey = super.containsKey(entry.getKey());
+            String previous = super.put(entry.getKey(), entry.getValue());
+            if (!hadKey || !Objects.equals(previous, entry.getValue())) {
+                changedKeys.add(entry.getKey());
+            }
+        }
+        if (!changedKeys.isEmpty()) {
+            publisher.publishWrites(changedKeys);
+        }
+    }
+
+    @Override
+    public synchronized String putIfAbsent(String key, String value) {
+        checkNotAttached();
+        checkPropertyName(key);
+        boolean hadKey = super.containsKey(key);
+        String previous = super.putIfAbsent(key, value);
+        publishIfChanged(key, hadKey, previous);
+        return previous;
+    }
+
+    @Override
+    public synchronized String remove(Object key) {
+        checkNotAttached();
+        if (!super.containsKey(key)) {
+            return null;
+        }
+        String previous = super.remove(key);
+        publisher.publishWrites(Collections.singleton((String) key));
+        return previous;
+    }
+
+    @Override
+    public synchronized boolean remove(Object key, Object value) {
+        checkNotAttached();
+        boolean removed = super.remove(key, value);
+        if (removed) {
+            publisher.publishWrites(Collections.singleton((String) key));
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized String replace(String key, String value) {
+        checkNotAttached();
+        boolean hadKey = super.containsKey(key);
+        String previous = super.replace(key, value);
+        publishIfChanged(key, hadKey, previous);
+        return previous;
+    }
+
+    @Override
+    public synchronized boolean replace(String key, String oldValue, String newValue) {
+        checkNotAttached();
+        boolean replaced = super.replace(key, oldValue, newValue);
+        if (replaced && !Objects.equals(oldValue, newValue)) {
+            publisher.publishWrites(Collections.singleton(key));
+        }
+        return replaced;
+    }
+
+    @Override
+    public synchronized void replaceAll(BiFunction<? super String, ? super String, ? extends String> function) {
+        checkNotAttached();
+        List<String> changedKeys = new ArrayList<>();
+        super.replaceAll((key, value) -> {
+            String replaced = function.apply(key, value);
+            if (!Objects.equals(value, replaced)) {
+                changedKeys.add(key);
+            }
+            return replaced;
+        });
+        if (!changedKeys.isEmpty()) {
+            publisher.publishWrites(changedKeys);
+        }
+    }
+
+    @Override
+    public synchronized String computeIfAbsent(String key, Function<? super String, ? extends String> mappingFunction) {
+        checkNotAttached();
+        checkPropertyName(key);
+        boolean hadKey = super.containsKey(key);
+        String previous = super.get(key);
+        String value = super.computeIfAbsent(key, mappingFunction);
+        publishIfChanged(key, hadKey, previous);
+        return value;
+    }
+
+    @Override
+    public synchronized String computeIfPresent(String key, BiFunction<? super String, ? super String, ? extends String> remappingFunction) {
+        checkNotAttached();
+        boolean hadKey = super.containsKey(key);
+        String previous = super.get(key);
+        String value = super.computeIfPresent(key, remappingFunction);
+        publishIfChanged(key, hadKey, previous);
+        return value;
+    }
+
+    @Override
+    public synchronized String compute(String key, BiFunction<? super String, ? super String, ? extends String> remappingFunction) {
+        checkNotAttached();
+        checkPropertyName(key);
+        boolean hadKey = super.containsKey(key);
+        String previous = super.get(key);
+        String value = super.compute(key, remappingFunction);
+        publishIfChanged(key, hadKey, previous);
+        return value;
+    }
+
+    @Override
+    public synchronized String merge(String key, String value, BiFunction<? super String, ? super String, ? extends String> remappingFunction) {
+        checkNotAttached();
+        checkPropertyName(key);
+        boolean hadKey = super.containsKey(key);
+        String previous = super.get(key);
+        String merged = super.merge(key, value, remappingFunction);
+        publishIfChanged(key, hadKey, previous);
+        return merged;
+    }
+
+    @Override
+    public synchronized void clear() {
+        checkNotAttached();
+        if (!super.isEmpty()) {
+            List<String> removed = new ArrayList<>(super.keySet());
+            super.clear();
+            publisher.publishWrites(removed);
+        }
+    }
+
+    /* publish the given property unless the Map method that was called left it as it was
+     * */
+    private void publishIfChanged(String key, boolean hadKey, String previous) {
+        if (hadKey != super.containsKey(key) || !Objects.equals(previous, super.get(key))) {
+            publisher.publishWrites(Collections.singleton(key));
+        }
+    }
+
+    /**
+     * subscribe to the changes of a single property, whether they come from a reloaded file or a call to put() or remove().
+     * An instance attached to a shared segment keeps no earlier values to compare with, so it reports no changes.
+     *
+     * @param propertyName the name of the property
+     * @param listener     receives the old and new unevaluated values on the change executor, see PropertiesChangeListener
+     * @return the subscription, to be closed once the changes are no longer needed
+     */
+    public PropertiesSubscription subscribe(String propertyName, PropertiesChangeListener listener) {
+        return subscribe(propertyName, false, listener);
+    }
+
+    /* subscribe to the changes of every property whose name starts with the given prefix, see subscribe()
+     * */
+    public PropertiesSubscription subscribeToPrefix(String prefix, PropertiesChangeListener listener) {
+        return subscribe(StringUtils.defaultString(prefix), true, listener);
+    }
+
+    private PropertiesSubscription subscribe(String key, boolean prefix, PropertiesChangeListener listener) {
+        Objects.requireNonNull(key, "propertyName");
+        Objects.requireNonNull(listener, "listener");
+        PropertiesSubscriptions currentSubscriptions;
+        synchronized (this) {
+            if (subscriptions == null) {
+                subscriptions = new PropertiesSubscriptions();
+            }
+            currentSubscriptions = subscriptions;
+        }
+        Executor executor = cfg.getChangeExecutor() != null ? cfg.getChangeExecutor() : PropertiesSubscriptions.defaultExecutor();
+        PropertiesSubscription subscription = new PropertiesSubscription(key, prefix, listener, executor, cfg.getChangeDebounceMillis(), currentSubscriptions);
+        currentSubscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * return every property whose name starts with the given prefix, in sorted order, without scanning all of the properties
+     *
+     * @param prefix the start of the names to return, e.g., "db." for "db.url" and "db.user"
+     * @return the unevaluated values of the matching properties keyed by their full names
+     */
+    public Map<String, String> getByPrefix(String prefix) {
+        PropertiesView currentView = currentView();
+        Map<String, String> matches = new LinkedHashMap<>();
+        for (String key : currentView.keysWithPrefix(prefix)) {
+            matches.put(key, currentView.getValues().get(key));
+        }
+        return Collections.unmodifiableMap(matches);
+    }
+
+    /**
+     * return a read-only, live view of the properties below the given dotted prefix with the prefix removed, e.g., "url"
+     * for "db.url" given "db". Later changes to the properties show up in the view.
+     *
+     * @param prefix the dotted prefix, with or without the trailing '.'
+     * @return the unevaluated values of the matching properties keyed by their names without the prefix
+     */
+    public Map<String, String> subset(String prefix) {
+        return new PropertiesSubset(this::currentView, dottedPrefix(prefix));
+    }
+
+    /* the distinct name segments directly below the given dotted prefix, e.g., "consumer" and "producer" for "kafka"
+     * given "kafka.consumer.group.id" and "kafka.producer.acks"
+     * */
+    public Set<String> childKeys(String prefix) {
+        return currentView().childKeys(dottedPrefix(prefix));
+    }
+
+    private static String dottedPrefix(String prefix) {
+        if (StringUtils.isEmpty(prefix) || prefix.charAt(prefix.length() - 1) == KeyIndex.SEPARATOR) {
+            return StringUtils.defaultString(prefix);
+        }
+        return prefix + KeyIndex.SEPARATOR;
+    }
+
+    /* a copy of the values resolved by get(propertyName) from the current properties
+     * */
+    public Map<String, String> getCachedProps() {
+        PropertiesView currentView = publisher.getView();
+        Map<String, String> cachedProps = currentView.getCache().getCachedProps();
+        if (currentView.getResolved() != null) {
+            cachedProps.putAll(currentView.getResolved());
+        }
+        return cachedProps;
+    }
+
+    /* the hit, miss and eviction counts of the cache of values resolved by get()
+     * */
+    public ResolutionCacheStats getResolutionCacheStats() {
+        return publisher.getView().getCache().getStats();
+    }
+
+    /* drop every cached value that was evaluated from the given system property, e.g., after calling System.setProperty()
+     * */
+    public int invalidateSystemProperty(String name) {
+        placeholderResolvers.invalidate(PropertyTemplate.PROPERTY_SOURCE_PROP, name);
+        PropertiesView currentView = publisher.getView();
+        return currentView.getCache().invalidate(false, name, currentView.getReferences()) + refreshResolvedView();
+    }
+
+    /* drop every cached value that was evaluated from the given environment variable
+     * */
+    public int invalidateEnvironmentVariable(String name) {
+        placeholderResolvers.invalidate(PropertyTemplate.PROPERTY_SOURCE_ENV, name);
+        PropertiesView currentView = publisher.getView();
+        return currentView.getCache().invalidate(true, name, currentView.getReferences()) + refreshResolvedView();
+    }
+
+    /* ask every placeholder resolver again and drop every cached value whose placeholders no longer have the values it
+     * was evaluated from, e.g., after an environment variable, system property or "file:" secret changed
+     * */
+    public int invalidateChangedSystemValues() {
+        placeholderResolvers.invalidateAll();
+        PropertiesView currentView = publisher.getView();
+        return currentView.getCache().invalidateChanged(placeholderResolvers, currentView.getReferences()) + refreshResolvedView();
+    }
+
+    /* stop watching the properties files for changes, if WatchSourcesForChanges=YES, and write any values that are not
+     * in the shared segment yet. A shared segment stays mapped until this instance is garbage collected since a mapping
+     * can't be released explicitly.
+     * */
+    @Override
+    public void close() throws IOException {
+        flushSharedSegment();
+        unregisterMBean();
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        pendingSegmentValues = new AtomicReference<>();
+        placeholderResolvers = new PlaceholderResolverChain(cfg.getPlaceholderResolvers());
+        publisher = newPublisher();
+        if (cfg.isAttachSharedSegment()) {
+            attachSharedSegment();
+        } else {
+            publisher.publish();
+        }
     }
 
     public String get(String propertyName) throws PropertyEvaluatorException{
@@ -258,74 +1413,125 @@ public class ApplicationProperties extends HashMap<String, String> implements Se
      * @param propertyName          the name of the property to return the value of
      * @param defaultValue          the value to return if the value for the property is empty
      * @param decodeEscapedNewlines if true, decode escaped new line characters
-     * @param eval                  if true, replace expressions in the form of "${env:mysysenvar}" or "${propr:mysysprop}" with their respective values from System.getenv("mysysenvar") or System.getProperty("mysysprop") respectively
+     * @param eval                  if true, replace expressions in the form of "${env:mysysenvar}" or "${propr:mysysprop}" with their respective values from System.getenv("mysysenvar") or System.getProperty("mysysprop") respectively, with the value of any other configured PlaceholderResolver, and "${other.property}" with the evaluated value of that property
      * @return the value of the property
      */
     public String get(String propertyName, String defaultValue, boolean decodeEscapedNewlines, boolean eval) throws PropertyEvaluatorException {
-        if (cachedProps.containsKey(propertyName)) {
-            return cachedProps.get(propertyName);
+        // read everything from one view so that a concurrent reload can't mix old and new values
+        PropertiesView currentView = currentView();
+        ApplicationPropertiesListener listener = this.listener;
+        Map<String, String> resolved = currentView.getResolved();
+        if (resolved != null && decodeEscapedNewlines && eval) {
+            String value = resolved.get(propertyName);
+            if (value != null) {
+                if (listener != null) {
+                    listener.onGet(propertyName, true);
+                }
+                return value;
+            }
+        }
+        return resolve(currentView, propertyName, defaultValue, decodeEscapedNewlines, eval, listener);
+    }
+
+    private String resolve(PropertiesView currentView, String propertyName, String defaultValue, boolean decodeEscapedNewlines, boolean eval) throws PropertyEvaluatorException {
+        return resolve(currentView, propertyName, defaultValue, decodeEscapedNewlines, eval, null);
+    }
+
+    /* the cached path behind get(), which reports the lookup to the given listener unless it is null (as it is for the
+     * "${name}" references a value is evaluated from)
+     * */
+    private String resolve(PropertiesView currentView, String propertyName, String defaultValue, boolean decodeEscapedNewlines, boolean eval, ApplicationPropertiesListener listener) throws PropertyEvaluatorException {
+        ResolutionCache cache = currentView.getCache();
+        int options = ResolutionCache.options(decodeEscapedNewlines, eval);
+        ResolutionCache.Resolution cached = cache.lookup(propertyName, defaultValue, options);
+        if (listener != null) {
+            listener.onGet(propertyName, cached != null);
+        }
+        if (cached != null) {
+            return cached.getValue();
         }
 
-        String propVal = super.get(propertyName);
-        if (StringUtils.isEmpty(propVal)) {
+        String propVal = currentView.getValues().get(propertyName);
+        boolean usesDefault = StringUtils.isEmpty(propVal);
+        PropertyTemplate template = null;
+        if (usesDefault) {
             propVal = defaultValue;
+            if (eval) {
+                template = PropertyTemplate.compile(defaultValue);
+            }
+        } else if (eval) {
+            template = currentView.getTemplate(propertyName);
+            checkNotCircular(currentView, template, propertyName);
         }
+        String[] placeholderValues = null;
         if (propVal == null) {
             LOG.warn(String.format("No value found for application property: %s", propertyName));
         } else {
-            if (eval) {
-                propVal = evaluateExpression(propertyName, propVal);
+            if (template != null) {
+                placeholderValues = new String[template.getPlaceholderCount()];
+                propVal = evaluate(currentView, template, propertyName, placeholderValues);
             }
             if (decodeEscapedNewlines) {
                 propVal = propVal.replace("\\n", "\n");
             }
         }
-        cachedProps.put(propertyName, propVal);
-        return propVal;
+        return cache.store(propertyName, options, new ResolutionCache.Resolution(propVal, usesDefault, defaultValue, template, placeholderValues));
     }
 
-    private String evaluateExpression(String propertyName, String propVal) throws PropertyEvaluatorException {
-        Pattern pattern = Pattern.compile(String.format("\\$\\{\\w*(%s|%s)\\w*:(.*?)\\}",
-                PROPERTY_SOURCE_ENV, PROPERTY_SOURCE_PROP));
-        Matcher matcher = pattern.matcher(propVal);
-        while (matcher.find()) {
-            String propSource = matcher.group(1);
-            String propSourceVarName = matcher.group(2);
-            if (!StringUtils.isEmpty(propSource) && !StringUtils.isEmpty(propSourceVarName)) {
-                try {
-                    propVal = evaluateMatchedExpression(propVal, matcher);
-                } catch (Exception e) {
-                    throw new PropertyEvaluatorException(String.format("Failed to evaluate property '%s' expression '%s': %s", propertyName, matcher.group(0), e.getMessage()));
-                }
-            }
-            matcher.reset(propVal);
+    private String evaluate(PropertiesView currentView, PropertyTemplate template, String propertyName, String[] placeholderValues) throws PropertyEvaluatorException {
+        PropertyTemplate.References references = name -> resolveReference(currentView, name);
+        ApplicationPropertiesListener listener = this.listener;
+        if (listener == null) {
+            return template.resolve(placeholderResolvers, references, propertyName, placeholderValues);
         }
-        return propVal;
+        long start = System.nanoTime();
+        String value = template.resolve(placeholderResolvers, references, propertyName, placeholderValues);
+        listener.onEvaluated(propertyName, System.nanoTime() - start);
+        return value;
     }
 
-    private String evaluateMatchedExpression(String expression, Matcher matcher) {
-        String placeholder = matcher.group(0);
-        String propSource = matcher.group(1);
-        String propSourceVarName = matcher.group(2);
-        String propSourceVarValue;
-        switch (propSource) {
-            case PROPERTY_SOURCE_ENV:
-                propSourceVarValue = System.getenv(propSourceVarName);
-                break;
-            case PROPERTY_SOURCE_PROP:
-                propSourceVarValue = System.getProperty(propSourceVarName);
-                break;
-            default:
-                throw new IllegalArgumentException(String.format("Unknown property source: %s", propSource));
+    private static void checkNotCircular(PropertiesView currentView, PropertyTemplate template, String propertyName) throws PropertyEvaluatorException {
+        if (template != null && template.hasReferences()) {
+            String cycle = currentView.cycleOf(propertyName);
+            if (cycle != null) {
+                throw new PropertyEvaluatorException(String.format("Failed to evaluate property '%s': circular reference %s", propertyName, cycle));
+            }
         }
-        if (propSourceVarValue == null) {
-            throw new IllegalArgumentException(String.format("No value found for system %s: %s", propSource, propSourceVarName));
+    }
+
+    /* the evaluated but not yet decoded value a "${name}" reference is replaced with, cached like any other value so
+     * that a property referenced by many others is only evaluated once; null if the property is not set
+     * */
+    private String resolveReference(PropertiesView currentView, String propertyName) throws PropertyEvaluatorException {
+        String value = currentView.getValues().get(propertyName);
+        if (StringUtils.isEmpty(value)) {
+            return value;
         }
-        expression = expression.replace(placeholder, propSourceVarValue);
-        if (StringUtils.isEmpty(expression)) {
-            LOG.warn(String.format("Missing value for environment variable '%s'", propSourceVarName));
+        return resolve(currentView, propertyName, null, false, true);
+    }
+
+    /* return the values of the given properties in the given order, see resolve(KeySet)
+     * */
+    public String[] getAll(Collection<String> propertyNames) throws PropertyEvaluatorException {
+        return resolve(KeySet.of(propertyNames)).toArray();
+    }
+
+    /**
+     * return the values of every property of the given key set at once, all read from the same version of the properties
+     * so that a concurrent reload or put() can't mix old and new values
+     *
+     * @param keys the names to resolve, prepared once with KeySet.of(...)
+     * @return the value get(name) would return for each name, indexed by its position in the key set
+     * @throws PropertyEvaluatorException if any of the values could not be evaluated
+     */
+    public KeyValues resolve(KeySet keys) throws PropertyEvaluatorException {
+        PropertiesView currentView = currentView();
+        ApplicationPropertiesListener listener = this.listener;
+        ResolutionCache.TypedValue[] values = new ResolutionCache.TypedValue[keys.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getTypedValue(currentView, keys.getName(i), listener);
         }
-        return expression;
+        return new KeyValues(keys, values);
     }
 
     public Long getLong(String propertyName) throws PropertyEvaluatorException{
@@ -343,6 +1549,7 @@ public class ApplicationProperties extends HashMap<String, String> implements Se
             try {
                 val = Long.valueOf(longStr);
             } catch (NumberFormatException e) {
+                conversionFailed(propertyName, longStr, "Long");
                 LOG.warn(String.format("Failed to convert '%s' to Long, so trying default '%s': %s", longStr, defaultValue, e.getMessage()));
                 try {
                     val = Long.valueOf(defaultValue);
@@ -369,6 +1576,7 @@ public class ApplicationProperties extends HashMap<String, String> implements Se
             try {
                 val = Integer.valueOf(valStr);
             } catch (NumberFormatException e) {
+                conversionFailed(propertyName, valStr, "Integer");
                 LOG.warn(String.format("Failed to convert '%s' to Integer, so trying default '%s': %s", valStr, defaultValue, e.getMessage()));
                 try {
                     val = Integer.valueOf(defaultValue);
@@ -392,4 +1600,92 @@ public class ApplicationProperties extends HashMap<String, String> implements Se
         return Boolean.valueOf(get(propertyName, defaultValue, eval));
     }
 
+    /**
+     * return the value of a property as a primitive int, parsed only once per value so that repeated calls neither parse, box nor allocate
+     *
+     * @param propertyName the name of the property to return the value of
+     * @param defaultValue the value to return if the property is empty or not an int
+     * @return the value of the property
+     */
+    public int getIntValue(String propertyName, int defaultValue) throws PropertyEvaluatorException {
+        ResolutionCache.TypedValue typed = getTypedValue(propertyName);
+        if (typed.is(ResolutionCache.TypedValue.INT)) {
+            return (int) typed.getLongValue();
+        }
+        if (typed.isPresent()) {
+            conversionFailed(propertyName, typed.getValue(), "int");
+        }
+        if (typed.shouldWarn(ResolutionCache.TypedValue.INT)) {
+            // only the first failure is logged, so the default is not boxed and no message is built on every call
+            LOG.warn(String.format("Failed to convert '%s' to int, so using default '%s'", typed.getValue(), defaultValue));
+        }
+        return defaultValue;
+    }
+
+    /* return the value of a property as a primitive long, see getIntValue()
+     * */
+    public long getLongValue(String propertyName, long defaultValue) throws PropertyEvaluatorException {
+        ResolutionCache.TypedValue typed = getTypedValue(propertyName);
+        if (typed.is(ResolutionCache.TypedValue.LONG)) {
+            return typed.getLongValue();
+        }
+        if (typed.isPresent()) {
+            conversionFailed(propertyName, typed.getValue(), "long");
+        }
+        if (typed.shouldWarn(ResolutionCache.TypedValue.LONG)) {
+            LOG.warn(String.format("Failed to convert '%s' to long, so using default '%s'", typed.getValue(), defaultValue));
+        }
+        return defaultValue;
+    }
+
+    /* return the value of a property as a primitive double, see getIntValue()
+     * */
+    public double getDoubleValue(String propertyName, double defaultValue) throws PropertyEvaluatorException {
+        ResolutionCache.TypedValue typed = getTypedValue(propertyName);
+        if (typed.is(ResolutionCache.TypedValue.DOUBLE)) {
+            return typed.getDoubleValue();
+        }
+        if (typed.isPresent()) {
+            conversionFailed(propertyName, typed.getValue(), "double");
+        }
+        if (typed.shouldWarn(ResolutionCache.TypedValue.DOUBLE)) {
+            LOG.warn(String.format("Failed to convert '%s' to double, so using default '%s'", typed.getValue(), defaultValue));
+        }
+        return defaultValue;
+    }
+
+    /* return the value of a property as a primitive boolean ("true" in any case is true, any other value is false), or the default value if the property is empty
+     * */
+    public boolean getBooleanValue(String propertyName, boolean defaultValue) throws PropertyEvaluatorException {
+        ResolutionCache.TypedValue typed = getTypedValue(propertyName);
+        return typed.isPresent() ? typed.getBooleanValue() : defaultValue;
+    }
+
+    private void conversionFailed(String propertyName, String value, String type) {
+        ApplicationPropertiesListener listener = this.listener;
+        if (listener != null) {
+            listener.onConversionFailed(propertyName, value, type);
+        }
+    }
+
+    ResolutionCache.TypedValue getTypedValue(String propertyName) throws PropertyEvaluatorException {
+        return getTypedValue(currentView(), propertyName, listener);
+    }
+
+    private ResolutionCache.TypedValue getTypedValue(PropertiesView currentView, String propertyName, ApplicationPropertiesListener listener) throws PropertyEvaluatorException {
+        // with PreResolveValues=YES the value was resolved at startup, so it is only parsed here, once per view
+        ResolutionCache.TypedValue typed = currentView.getResolvedTypedValue(propertyName);
+        if (typed == null) {
+            typed = currentView.getCache().getTypedValue(propertyName);
+        }
+        if (typed != null) {
+            if (listener != null) {
+                listener.onGet(propertyName, true);
+            }
+            return typed;
+        }
+        String value = resolve(currentView, propertyName, null, true, true, listener);
+        return currentView.getCache().storeTypedValue(propertyName, new ResolutionCache.TypedValue(value));
+    }
+
 }
@@ -6,9 +6,12 @@ import org.apache.commons.lang3.StringUtils;
 
 import javax.servlet.ServletContext;
 import java.io.Serializable;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * @author Richard@Lyders.com
@@ -28,10 +31,44 @@ public class ApplicationPropertiesConfig implements Serializable {
         NO
     }
 
+    public enum LoadSourcesInParallel {
+        YES,
+        NO
+    }
+
+    public enum WatchSourcesForChanges {
+        YES,
+        NO
+    }
+
+    public enum RegisterMBean {
+        YES,
+        NO
+    }
+
+    public enum PreResolveValues {
+        YES,
+        NO
+    }
+
+    public enum ShareClassPathSources {
+        YES,
+        NO
+    }
+
+    public enum SharedSegmentMode {
+        NONE,
+        PUBLISH,
+        ATTACH
+    }
+
     static final String DEFAULT_PROPERTIES_BASE_FILENAME = "application";
     static final String DEFAULT_PROPERTIES_EXTENSION = ".properties";
     static final String DEFAULT_PROPERTIES_FILENAME = DEFAULT_PROPERTIES_BASE_FILENAME + DEFAULT_PROPERTIES_EXTENSION;
 
+    static final long DEFAULT_HTTP_TIMEOUT_MILLIS = 10_000;
+    static final String DEFAULT_HTTP_CACHE_DIRECTORY = "application-properties-http-cache";
+
     public static final String CATALINA_BASE = "catalina.base";
     public static final String CATALINA_COMMON = "catalina.common";
 
@@ -46,6 +83,39 @@ public class ApplicationPropertiesConfig implements Serializable {
     private final ArrayList<String> paths = new ArrayList<>();
     private final transient ServletContext servletContext;
     private final String servletPropertiesBaseDirectory;
+    // optional: read and parse all properties files at the same time instead of one after another
+    private LoadSourcesInParallel loadSourcesInParallel = LoadSourcesInParallel.NO;
+    // optional: executor used to read the properties files when loadSourcesInParallel=YES, defaults to the common fork-join pool
+    private transient Executor loadExecutor;
+    // optional: file in which to keep a precompiled binary snapshot of the merged properties so that the next start can skip loading the properties files
+    private String snapshotFilePath;
+    // optional: reload "file:" and "servlet:" properties files as soon as they change
+    private WatchSourcesForChanges watchSourcesForChanges = WatchSourcesForChanges.NO;
+    // optional: the maximum number of property names whose resolved values are cached by get()
+    private int resolutionCacheMaxSize = ResolutionCache.DEFAULT_MAX_SIZE;
+    // optional: receives load timings, evaluation timings and conversion failures
+    private transient ApplicationPropertiesListener listener;
+    // optional: register a JMX MBean with the load and lookup metrics of each ApplicationProperties instance
+    private RegisterMBean registerMBean = RegisterMBean.NO;
+    // optional: evaluate and decode every value up front so that get() is a single lookup and evaluation errors fail the constructor
+    private PreResolveValues preResolveValues = PreResolveValues.NO;
+    // optional: share the parsed class path properties files with every other instance in the JVM instead of parsing them again,
+    // which keeps one copy of each file in memory for as long as its class loader lives, and checks the file or jar for changes on each load
+    private ShareClassPathSources shareClassPathSources = ShareClassPathSources.NO;
+    // optional: PUBLISH the merged properties to a memory-mapped file for other processes on the same host, or ATTACH to one and load nothing at all
+    private SharedSegmentMode sharedSegmentMode = SharedSegmentMode.NONE;
+    // the memory-mapped file used when sharedSegmentMode is PUBLISH or ATTACH
+    private String sharedSegmentFilePath;
+    // optional: executor that delivers changes to the subscribed PropertiesChangeListeners, defaults to a pool of daemon threads of its own
+    private transient Executor changeExecutor;
+    // optional: wait this long after a change before delivering it so that a burst of changes is delivered as one
+    private long changeDebounceMillis;
+    // optional: directory in which to keep the last copy of each "http:" / "https:" properties file, defaults to a directory under java.io.tmpdir
+    private String httpCacheDirectory;
+    // optional: how long to wait for an "http:" / "https:" properties file before falling back to its cached copy
+    private long httpTimeoutMillis = DEFAULT_HTTP_TIMEOUT_MILLIS;
+    // optional: the resolvers asked for the values of "${source:NAME}" placeholders in order, defaults to PlaceholderResolvers.defaults()
+    private transient List<PlaceholderResolver> placeholderResolvers;
 
     /* construct a new instance with all default values
      * */
@@ -104,6 +174,22 @@ public class ApplicationPropertiesConfig implements Serializable {
         overrideSuffix = cfg.getOverrideSuffix();
         loadClassPathRootPropertiesAsDefaults = cfg.getLoadClassPathRootPropertiesAsDefaults();
         this.logSourceFilePathsAndProperties = cfg.getLogSourceFilePathsAndProperties();
+        this.loadSourcesInParallel = cfg.getLoadSourcesInParallel();
+        this.loadExecutor = cfg.getLoadExecutor();
+        this.snapshotFilePath = cfg.getSnapshotFilePath();
+        this.watchSourcesForChanges = cfg.getWatchSourcesForChanges();
+        this.resolutionCacheMaxSize = cfg.getResolutionCacheMaxSize();
+        this.listener = cfg.getListener();
+        this.registerMBean = cfg.getRegisterMBean();
+        this.preResolveValues = cfg.getPreResolveValues();
+        this.shareClassPathSources = cfg.getShareClassPathSources();
+        this.sharedSegmentMode = cfg.getSharedSegmentMode();
+        this.sharedSegmentFilePath = cfg.getSharedSegmentFilePath();
+        this.changeExecutor = cfg.getChangeExecutor();
+        this.changeDebounceMillis = cfg.getChangeDebounceMillis();
+        this.httpCacheDirectory = cfg.getHttpCacheDirectory();
+        this.httpTimeoutMillis = cfg.getHttpTimeoutMillis();
+        this.placeholderResolvers = cfg.getPlaceholderResolvers();
         if (cfg.getPaths() != null) {
             paths.addAll(cfg.getPaths());
         }
@@ -216,9 +302,53 @@ public class ApplicationPropertiesConfig implements Serializable {
         return logSourceFilePathsAndProperties.equals(LogSourceFilePathsAndProperties.YES);
     }
 
+    /* a description of everything that decides which properties files get loaded, used to tell whether a snapshot was written for this same config
+     * */
+    String getSourcesKey() {
+        return String.format("propertiesFileName=%s, suffixFileName=%s, loadClassPathRootPropertiesAsDefaults=%s, servletPropertiesBaseDirectory=%s, workingDirectory=%s, paths=%s",
+                getPropertiesFileName(), getSuffixFileName(), loadClassPathRootPropertiesAsDefaults, servletPropertiesBaseDirectory, Paths.get("").toAbsolutePath(), paths);
+    }
+
+    boolean isLoadSourcesInParallel() {
+        return loadSourcesInParallel.equals(LoadSourcesInParallel.YES);
+    }
+
+    boolean isWatchSourcesForChanges() {
+        return watchSourcesForChanges.equals(WatchSourcesForChanges.YES);
+    }
+
+    boolean isRegisterMBean() {
+        return registerMBean.equals(RegisterMBean.YES);
+    }
+
+    boolean isPreResolveValues() {
+        return preResolveValues.equals(PreResolveValues.YES);
+    }
+
+    boolean isShareClassPathSources() {
+        return shareClassPathSources.equals(ShareClassPathSources.YES);
+    }
+
+    /* the directory for the cached copies of "http:" / "https:" properties files
+     * */
+    Path getHttpCachePath() {
+        if (!StringUtils.isEmpty(httpCacheDirectory)) {
+            return Paths.get(httpCacheDirectory);
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"), DEFAULT_HTTP_CACHE_DIRECTORY);
+    }
+
+    boolean isPublishSharedSegment() {
+        return sharedSegmentMode.equals(SharedSegmentMode.PUBLISH);
+    }
+
+    boolean isAttachSharedSegment() {
+        return sharedSegmentMode.equals(SharedSegmentMode.ATTACH);
+    }
+
     public String toString() {
-        return String.format("propertiesFileName=%s, overrideSuffix=%s, loadClassPathRootPropertiesAsDefaults=%s, logSourceFilePathsAndProperties=%s, paths=%s, servletContext=%s, servletPropertiesBaseDirectory=%s",
-                propertiesFileName, overrideSuffix, loadClassPathRootPropertiesAsDefaults, logSourceFilePathsAndProperties, paths.toString(), servletContext, servletPropertiesBaseDirectory);
+        return String.format("propertiesFileName=%s, overrideSuffix=%s, loadClassPathRootPropertiesAsDefaults=%s, logSourceFilePathsAndProperties=%s, loadSourcesInParallel=%s, snapshotFilePath=%s, watchSourcesForChanges=%s, resolutionCacheMaxSize=%d, registerMBean=%s, preResolveValues=%s, shareClassPathSources=%s, sharedSegmentMode=%s, sharedSegmentFilePath=%s, changeDebounceMillis=%d, httpCacheDirectory=%s, httpTimeoutMillis=%d, paths=%s, servletContext=%s, servletPropertiesBaseDirectory=%s",
+                propertiesFileName, overrideSuffix, loadClassPathRootPropertiesAsDefaults, logSourceFilePathsAndProperties, loadSourcesInParallel, snapshotFilePath, watchSourcesForChanges, resolutionCacheMaxSize, registerMBean, preResolveValues, shareClassPathSources, sharedSegmentMode, sharedSegmentFilePath, changeDebounceMillis, httpCacheDirectory, httpTimeoutMillis, paths.toString(), servletContext, servletPropertiesBaseDirectory);
     }
 
 }
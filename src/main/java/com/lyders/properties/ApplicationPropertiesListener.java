@@ -0,0 +1,73 @@
+package com.lyders.properties;
+
+/**
+ * Receives timings and counts from an {@link ApplicationProperties} instance, set via
+ * {@link ApplicationPropertiesConfig#setListener(ApplicationPropertiesListener)}. Every method does nothing by default
+ * so that an implementation only needs to override the events it cares about.
+ * <p>
+ * Sources may be loaded in parallel and values are resolved by whichever thread calls get(), so implementations must
+ * be thread-safe. They are called on the thread doing the work and should return quickly. When no listener is set (and
+ * the MBean is not registered) none of these numbers are measured at all.
+ */
+public interface ApplicationPropertiesListener {
+
+    /**
+     * a properties file (or a snapshot of all of them) was read and parsed
+     *
+     * @param path          the path or URL of the file
+     * @param durationNanos how long reading and parsing it took, in nanoseconds
+     * @param bytes         the number of bytes read
+     * @param keyCount      the number of properties it contains
+     */
+    default void onSourceLoaded(String path, long durationNanos, long bytes, int keyCount) {
+    }
+
+    /**
+     * a properties file could not be loaded. With LoadSourcesInParallel=YES every file that fails is reported, not just
+     * the first one.
+     *
+     * @param e the failure, which names the file
+     */
+    default void onSourceFailed(Exception e) {
+    }
+
+    /**
+     * the constructor finished loading and merging all of the sources
+     *
+     * @param durationNanos how long the constructor took, in nanoseconds
+     * @param sourceCount   the number of sources loaded
+     * @param keyCount      the number of properties after merging them
+     */
+    default void onInitialized(long durationNanos, int sourceCount, int keyCount) {
+    }
+
+    /**
+     * get(), a typed getter or resolve(keySet) looked up a property. The "${name}" references a value is evaluated from
+     * are not counted as lookups.
+     *
+     * @param propertyName the name of the property
+     * @param hit          true if the value was already resolved, false if it had to be evaluated
+     */
+    default void onGet(String propertyName, boolean hit) {
+    }
+
+    /**
+     * the placeholders of a value (e.g., "${env:...}" or "${prop:...}") were evaluated because the value was not cached yet
+     *
+     * @param propertyName  the name of the property
+     * @param durationNanos how long the evaluation took, in nanoseconds
+     */
+    default void onEvaluated(String propertyName, long durationNanos) {
+    }
+
+    /**
+     * a typed getter could not convert the value of a property and returned the default value (or null) instead
+     *
+     * @param propertyName the name of the property
+     * @param value        the value that could not be converted
+     * @param type         the type it was converted to, e.g., "int"
+     */
+    default void onConversionFailed(String propertyName, String value, String type) {
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.lyders.properties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The listener behind the JMX MBean of an {@link ApplicationProperties} instance. It adds up the events it receives
+ * and takes the cache counts straight from the resolution cache, which counts them anyway. The source numbers are
+ * those of the latest load of each source, so a reloaded file replaces its earlier numbers instead of adding to them.
+ */
+class ApplicationPropertiesMetrics implements ApplicationPropertiesListener, ApplicationPropertiesMetricsMBean {
+
+    private final Supplier<ResolutionCacheStats> cacheStats;
+    private final Supplier<Integer> keyCount;
+
+    // the latest load of each source keyed by its path, in the order the sources were first loaded
+    private final Map<String, SourceLoad> sources = new LinkedHashMap<>();
+    private final LongAdder sourceFailureCount = new LongAdder();
+    private volatile long initTimeNanos;
+    private final LongAdder getCount = new LongAdder();
+    private final LongAdder getMissCount = new LongAdder();
+    private final LongAdder evaluationCount = new LongAdder();
+    private final LongAdder evaluationTimeNanos = new LongAdder();
+    private final LongAdder conversionFailureCount = new LongAdder();
+
+    ApplicationPropertiesMetrics(Supplier<ResolutionCacheStats> cacheStats, Supplier<Integer> keyCount) {
+        this.cacheStats = cacheStats;
+        this.keyCount = keyCount;
+    }
+
+    @Override
+    public void onSourceLoaded(String path, long durationNanos, long bytes, int keyCount) {
+        synchronized (sources) {
+            sources.put(path, new SourceLoad(durationNanos, bytes, keyCount));
+        }
+    }
+
+    @Override
+    public void onSourceFailed(Exception e) {
+        sourceFailureCount.increment();
+    }
+
+    @Override
+    public void onInitialized(long durationNanos, int sourceCount, int keyCount) {
+        initTimeNanos = durationNanos;
+    }
+
+    @Override
+    public void onGet(String propertyName, boolean hit) {
+        getCount.increment();
+        if (!hit) {
+            getMissCount.increment();
+        }
+    }
+
+    @Override
+    public void onEvaluated(String propertyName, long durationNanos) {
+        evaluationCount.increment();
+        evaluationTimeNanos.add(durationNanos);
+    }
+
+    @Override
+    public void onConversionFailed(String propertyName, String value, String type) {
+        conversionFailureCount.increment();
+    }
+
+    @Override
+    public long getInitTimeNanos() {
+        return initTimeNanos;
+    }
+
+    @Override
+    public int getSourceCount() {
+        synchronized (sources) {
+            return sources.size();
+        }
+    }
+
+    @Override
+    public long getSourceLoadTimeNanos() {
+        synchronized (sources) {
+            return sources.values().stream().mapToLong(load -> load.durationNanos).sum();
+        }
+    }
+
+    @Override
+    public long getSourceBytes() {
+        synchronized (sources) {
+            return sources.values().stream().mapToLong(load -> load.bytes).sum();
+        }
+    }
+
+    @Override
+    public int getSourceKeyCount() {
+        synchronized (sources) {
+            return sources.values().stream().mapToInt(load -> load.keyCount).sum();
+        }
+    }
+
+    @Override
+    public long getSourceFailureCount() {
+        return sourceFailureCount.sum();
+    }
+
+    @Override
+    public String[] getSources() {
+        synchronized (sources) {
+            return sources.entrySet().stream()
+                    .map(e -> String.format("%s: %d ns, %d bytes, %d keys", e.getKey(), e.getValue().durationNanos, e.getValue().bytes, e.getValue().keyCount))
+                    .toArray(String[]::new);
+        }
+    }
+
+    @Override
+    public int getKeyCount() {
+        return keyCount.get();
+    }
+
+    @Override
+    public long getGetCount() {
+        return getCount.sum();
+    }
+
+    @Override
+    public long getGetMissCount() {
+        return getMissCount.sum();
+    }
+
+    @Override
+    public long getCacheHitCount() {
+        return cacheStats.get().getHitCount();
+    }
+
+    @Override
+    public long getCacheMissCount() {
+        return cacheStats.get().getMissCount();
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        return cacheStats.get().getHitRatio();
+    }
+
+    @Override
+    public long getCacheEvictionCount() {
+        return cacheStats.get().getEvictionCount();
+    }
+
+    @Override
+    public long getEvaluationCount() {
+        return evaluationCount.sum();
+    }
+
+    @Override
+    public long getEvaluationTimeNanos() {
+        return evaluationTimeNanos.sum();
+    }
+
+    @Override
+    public long getConversionFailureCount() {
+        return conversionFailureCount.sum();
+    }
+
+    private static final class SourceLoad {
+        private final long durationNanos;
+        private final long bytes;
+        private final int keyCount;
+
+        SourceLoad(long durationNanos, long bytes, int keyCount) {
+            this.durationNanos = durationNanos;
+            this.bytes = bytes;
+            this.keyCount = keyCount;
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.lyders.properties;
+
+/**
+ * The JMX view of the metrics of a single {@link ApplicationProperties} instance, registered under
+ * "com.lyders.properties:type=ApplicationProperties,name=&lt;properties file name&gt;,id=&lt;instance id&gt;" when
+ * {@link ApplicationPropertiesConfig.RegisterMBean#YES} is set.
+ */
+public interface ApplicationPropertiesMetricsMBean {
+
+    long getInitTimeNanos();
+
+    int getSourceCount();
+
+    long getSourceLoadTimeNanos();
+
+    long getSourceBytes();
+
+    int getSourceKeyCount();
+
+    long getSourceFailureCount();
+
+    /**
+     * one line per source in load order, as of its latest (re)load, e.g., "/etc/app.properties: 41200 ns, 1024 bytes,
+     * 12 keys"
+     *
+     * @return the path, the load time in nanoseconds, the number of bytes read and the number of keys of each source
+     */
+    String[] getSources();
+
+    int getKeyCount();
+
+    long getGetCount();
+
+    long getGetMissCount();
+
+    long getCacheHitCount();
+
+    long getCacheMissCount();
+
+    double getCacheHitRatio();
+
+    long getCacheEvictionCount();
+
+    long getEvaluationCount();
+
+    long getEvaluationTimeNanos();
+
+    long getConversionFailureCount();
+
+}
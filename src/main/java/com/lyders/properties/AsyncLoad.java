@@ -0,0 +1,130 @@
+package com.lyders.properties;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* the work behind ApplicationProperties.loadAsync(): construct the properties on an executor and, optionally, wait
+ * until a set of properties have values
+ * */
+final class AsyncLoad {
+
+    private static final Log LOG = LogFactory.getLog(AsyncLoad.class);
+
+    private AsyncLoad() {
+    }
+
+    /* virtual threads where the JDK has them (21+), otherwise a pool of daemon threads that grows with the number of
+     * loads running at the same time; created on the first load that uses it
+     * */
+    private static final class DefaultExecutor {
+        private static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            try {
+                return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                AtomicInteger threadCount = new AtomicInteger();
+                return Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "application-properties-loader-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
+
+    static Executor defaultExecutor() {
+        return DefaultExecutor.INSTANCE;
+    }
+
+    static CompletableFuture<ApplicationProperties> load(ApplicationPropertiesConfig cfg, Executor executor, Collection<String> awaitKeys) {
+        CompletableFuture<ApplicationProperties> loaded = new CompletableFuture<>();
+        Executor loadExecutor = executor != null ? executor : defaultExecutor();
+        try {
+            loadExecutor.execute(() -> {
+                try {
+                    loaded.complete(new ApplicationProperties(cfg));
+                } catch (Throwable e) {
+                    // the same FileNotFoundException or RuntimeException the constructor would have thrown
+                    loaded.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            loaded.completeExceptionally(e);
+        }
+        if (awaitKeys == null || awaitKeys.isEmpty()) {
+            return loaded;
+        }
+        // the future handed to the caller is the one waited on, so that orTimeout() or cancel() on it stops the wait
+        CompletableFuture<ApplicationProperties> ready = new CompletableFuture<>();
+        loaded.whenComplete((properties, e) -> {
+            if (e != null) {
+                ready.completeExceptionally(e);
+            } else {
+                awaitKeys(properties, awaitKeys, ready);
+            }
+        });
+        return ready;
+    }
+
+    /* complete the given future once every one of the given properties has a value, evaluating each of them so that
+     * the first get() of them is a cache hit. When WatchSourcesForChanges=YES a property that is still missing may show
+     * up in a changed file later, so that is waited for; otherwise a missing property fails the future right away.
+     * */
+    private static void awaitKeys(ApplicationProperties properties, Collection<String> keys, CompletableFuture<ApplicationProperties> ready) {
+        List<PropertiesSubscription> subscriptions = new ArrayList<>();
+        if (properties.getCfg().isWatchSourcesForChanges()) {
+            for (String key : keys) {
+                subscriptions.add(properties.subscribe(key, changes -> checkKeys(properties, keys, ready, false)));
+            }
+        }
+        // nothing to wait for once the future is done, however it got done; when it failed, timed out or was cancelled
+        // the caller never gets the properties, so their watcher is stopped here
+        ready.whenComplete((result, e) -> {
+            subscriptions.forEach(PropertiesSubscription::close);
+            if (e != null) {
+                try {
+                    properties.close();
+                } catch (IOException | RuntimeException closeFailure) {
+                    LOG.warn(String.format("Failed to close properties that were not awaited: %s", closeFailure.getMessage()));
+                }
+            }
+        });
+        checkKeys(properties, keys, ready, subscriptions.isEmpty());
+    }
+
+    private static void checkKeys(ApplicationProperties properties, Collection<String> keys, CompletableFuture<ApplicationProperties> ready, boolean failIfMissing) {
+        if (ready.isDone()) {
+            return;
+        }
+        Set<String> missing = new LinkedHashSet<>();
+        try {
+            for (String key : keys) {
+                if (StringUtils.isEmpty(properties.get(key))) {
+                    missing.add(key);
+                }
+            }
+        } catch (PropertyEvaluatorException | RuntimeException e) {
+            ready.completeExceptionally(e);
+            return;
+        }
+        if (missing.isEmpty()) {
+            ready.complete(properties);
+        } else if (failIfMissing) {
+            ready.completeExceptionally(new PropertyEvaluatorException(String.format("No values found for application properties: %s", missing)));
+        }
+    }
+
+}
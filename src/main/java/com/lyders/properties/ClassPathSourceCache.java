@@ -0,0 +1,82 @@
+package com.lyders.properties;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A JVM-wide cache of parsed class path properties files, so that every {@link ApplicationProperties} instance (e.g.,
+ * one per webapp or per tenant) that loads the same class path resource shares one parsed, immutable copy of it
+ * instead of looking it up and parsing it again.
+ * <p>
+ * Entries are keyed by the resource URL and are only reused while the file behind the URL (the jar for a "jar:" URL)
+ * still has the same last modified time and size. The cache holds its class loaders weakly so that it never keeps an
+ * undeployed webapp's class loader alive; the cached sources only contain strings.
+ */
+final class ClassPathSourceCache {
+
+    @FunctionalInterface
+    interface Parser {
+        PropertiesSource parse() throws IOException, URISyntaxException;
+    }
+
+    // guarded by itself
+    private static final Map<ClassLoader, Map<String, CachedSource>> SOURCES = new WeakHashMap<>();
+
+    private ClassPathSourceCache() {
+    }
+
+    /* the cached source of the given resource, parsing it with the given parser if it is not cached or has changed since
+     * */
+    static PropertiesSource get(ClassLoader classLoader, URL resource, Parser parser) throws IOException, URISyntaxException {
+        String key = resource.toString();
+        long[] stamp = stamp(key);
+        if (stamp == null) {
+            // nothing to tell whether it changed, so it can't be shared
+            return parser.parse();
+        }
+        Map<String, CachedSource> sources;
+        synchronized (SOURCES) {
+            sources = SOURCES.computeIfAbsent(classLoader, loader -> new ConcurrentHashMap<>());
+        }
+        CachedSource cached = sources.get(key);
+        if (cached != null && cached.lastModified == stamp[0] && cached.size == stamp[1]) {
+            return cached.source;
+        }
+        PropertiesSource parsed = parser.parse();
+        PropertiesSource source = new PropertiesSource(parsed.getPath(), parsed.getPathType(),
+                Collections.unmodifiableMap(parsed.getProperties()), parsed.getSize());
+        sources.put(key, new CachedSource(stamp[0], stamp[1], source));
+        return source;
+    }
+
+    /* last modified millis and size of the file behind the given resource URL, or null if it is not a local file or jar
+     * */
+    private static long[] stamp(String resource) {
+        try {
+            Path file = ConfigSnapshotFile.toFile(resource);
+            return new long[]{Files.getLastModifiedTime(file).toMillis(), Files.size(file)};
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static final class CachedSource {
+        private final long lastModified;
+        private final long size;
+        private final PropertiesSource source;
+
+        CachedSource(long lastModified, long size, PropertiesSource source) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.source = source;
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.lyders.properties;
+
+/* passes every event on to two listeners, e.g., the configured listener and the metrics of the MBean
+ * */
+final class CompositeListener implements ApplicationPropertiesListener {
+
+    private final ApplicationPropertiesListener first;
+    private final ApplicationPropertiesListener second;
+
+    CompositeListener(ApplicationPropertiesListener first, ApplicationPropertiesListener second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public void onSourceLoaded(String path, long durationNanos, long bytes, int keyCount) {
+        first.onSourceLoaded(path, durationNanos, bytes, keyCount);
+        second.onSourceLoaded(path, durationNanos, bytes, keyCount);
+    }
+
+    @Override
+    public void onSourceFailed(Exception e) {
+        first.onSourceFailed(e);
+        second.onSourceFailed(e);
+    }
+
+    @Override
+    public void onInitialized(long durationNanos, int sourceCount, int keyCount) {
+        first.onInitialized(durationNanos, sourceCount, keyCount);
+        second.onInitialized(durationNanos, sourceCount, keyCount);
+    }
+
+    @Override
+    public void onGet(String propertyName, boolean hit) {
+        first.onGet(propertyName, hit);
+        second.onGet(propertyName, hit);
+    }
+
+    @Override
+    public void onEvaluated(String propertyName, long durationNanos) {
+        first.onEvaluated(propertyName, durationNanos);
+        second.onEvaluated(propertyName, durationNanos);
+    }
+
+    @Override
+    public void onConversionFailed(String propertyName, String value, String type) {
+        first.onConversionFailed(propertyName, value, type);
+        second.onConversionFailed(propertyName, value, type);
+    }
+
+}
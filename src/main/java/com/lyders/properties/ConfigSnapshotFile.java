@@ -0,0 +1,408 @@
+package com.lyders.properties;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * A compact binary image of a fully merged {@link ApplicationProperties} that can be loaded with a single mmap on the
+ * next start instead of matching paths, looking up class path resources and parsing every properties file again.
+ * <p>
+ * Layout (all numbers big-endian):
+ * <pre>
+ * header     magic, version, string count, source count, entry count, index capacity
+ * strings    (string count + 1) offsets into the UTF-8 blob that follows them; string 0 is the config key
+ * sources    per source file: path string, last modified millis, size, CRC32C of the content
+ * entries    per property in the order of the keys: key hash, key string, value string (-1 for a null value), source
+ *            (the file the final value came from)
+ * index      open-addressing hash table of (entry + 1) slots keyed by the key hash
+ * </pre>
+ * A snapshot is only used when it was written for the same config and every source file still has the same size and
+ * either the same modification time or the same content hash. A "dir:" source is checked as a whole: its size is that
+ * of all of its files, its modification time the latest of the directory and its files, and its hash covers the name
+ * and the content of each file, so an edited, added or removed file all make the snapshot out of date. An http(s)
+ * source has no file to check, so a config with one is never snapshotted.
+ */
+final class ConfigSnapshotFile {
+
+    static final int MAGIC = 0x41505353;
+    static final int VERSION = 2;
+    // the string index of a null value
+    static final int NULL_STRING = -1;
+
+    private static final int HEADER_SIZE = 6 * Integer.BYTES;
+    private static final int SOURCE_SIZE = Integer.BYTES + 3 * Long.BYTES;
+    private static final int ENTRY_SIZE = 4 * Integer.BYTES;
+
+    private final ByteBuffer buf;
+    private final int stringCount;
+    private final int sourceCount;
+    private final int entryCount;
+    private final int indexCapacity;
+    private final int stringOffsetsPos;
+    private final int stringDataPos;
+    private final int sourcesPos;
+    private final int entriesPos;
+    private final int indexPos;
+
+    private ConfigSnapshotFile(ByteBuffer buf) throws IOException {
+        this.buf = buf;
+        if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+            throw new IOException("Not a properties snapshot file or an unsupported version");
+        }
+        stringCount = buf.getInt(8);
+        sourceCount = buf.getInt(12);
+        entryCount = buf.getInt(16);
+        indexCapacity = buf.getInt(20);
+        stringOffsetsPos = HEADER_SIZE;
+        stringDataPos = stringOffsetsPos + (stringCount + 1) * Integer.BYTES;
+        sourcesPos = stringDataPos + buf.getInt(stringOffsetsPos + stringCount * Integer.BYTES);
+        entriesPos = sourcesPos + sourceCount * SOURCE_SIZE;
+        indexPos = entriesPos + entryCount * ENTRY_SIZE;
+        if (stringCount < 1 || indexCapacity < 1 || Integer.bitCount(indexCapacity) != 1 || indexPos + indexCapacity * Integer.BYTES != buf.limit()) {
+            throw new IOException("Corrupt properties snapshot file");
+        }
+    }
+
+    /* map an existing snapshot file
+     * */
+    static ConfigSnapshotFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ConfigSnapshotFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /* wrap snapshot bytes that are already in memory (or mapped by someone else)
+     * */
+    static ConfigSnapshotFile wrap(ByteBuffer buf) throws IOException {
+        return new ConfigSnapshotFile(buf);
+    }
+
+    String getConfigKey() {
+        return getString(0);
+    }
+
+    int getSourceCount() {
+        return sourceCount;
+    }
+
+    String getSourcePath(int source) {
+        return getString(buf.getInt(sourcesPos + source * SOURCE_SIZE));
+    }
+
+    int getEntryCount() {
+        return entryCount;
+    }
+
+    String getKey(int entry) {
+        return getString(buf.getInt(entriesPos + entry * ENTRY_SIZE + Integer.BYTES));
+    }
+
+    String getValue(int entry) {
+        int idx = buf.getInt(entriesPos + entry * ENTRY_SIZE + 2 * Integer.BYTES);
+        return idx == NULL_STRING ? null : getString(idx);
+    }
+
+    int getSource(int entry) {
+        return buf.getInt(entriesPos + entry * ENTRY_SIZE + 3 * Integer.BYTES);
+    }
+
+    /* the keys in sorted order, read from the entries (which are written in that order) on every call
+     * */
+    KeyIndex keyIndex() {
+        return new KeyIndex() {
+            @Override
+            int size() {
+                return entryCount;
+            }
+
+            @Override
+            String get(int idx) {
+                return getKey(idx);
+            }
+        };
+    }
+
+    /* look up a single value straight from the snapshot bytes via the hash index without loading the whole snapshot
+     * */
+    String get(String key) {
+        int entry = indexOf(key);
+        return entry >= 0 ? getValue(entry) : null;
+    }
+
+    /* the entry of the given property via the hash index, or -1 if there is none; unlike get() this tells a property
+     * whose value is null from a missing one
+     * */
+    int indexOf(String key) {
+        int hash = key.hashCode();
+        int mask = indexCapacity - 1;
+        for (int slot = spread(hash) & mask, probes = 0; probes < indexCapacity; slot = (slot + 1) & mask, probes++) {
+            int entry = buf.getInt(indexPos + slot * Integer.BYTES) - 1;
+            if (entry < 0) {
+                return -1;
+            }
+            if (buf.getInt(entriesPos + entry * ENTRY_SIZE) == hash && key.equals(getKey(entry))) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    /* check that each source file that went into this snapshot is unchanged since the snapshot was written
+     * */
+    boolean isFresh() {
+        for (int source = 0; source < sourceCount; source++) {
+            int pos = sourcesPos + source * SOURCE_SIZE + Integer.BYTES;
+            String sourcePath = getSourcePath(source);
+            if (isUrl(sourcePath)) {
+                return false;
+            }
+            try {
+                Path file = toFile(sourcePath);
+                if (Files.isDirectory(file)) {
+                    long[] stats = directoryStats(file);
+                    if (stats[1] != buf.getLong(pos + Long.BYTES)
+                            || (stats[0] != buf.getLong(pos) && stats[2] != buf.getLong(pos + 2 * Long.BYTES))) {
+                        return false;
+                    }
+                    continue;
+                }
+                if (Files.size(file) != buf.getLong(pos + Long.BYTES)) {
+                    return false;
+                }
+                if (Files.getLastModifiedTime(file).toMillis() != buf.getLong(pos)
+                        && contentHash(file) != buf.getLong(pos + 2 * Long.BYTES)) {
+                    return false;
+                }
+            } catch (IOException | RuntimeException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* whether a snapshot of the given sources can tell if they changed, which takes a file (or directory) behind each
+     * */
+    static boolean isSnapshottable(List<PropertiesSource> sources) {
+        for (PropertiesSource source : sources) {
+            if (isUrl(source.getPath())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isUrl(String sourcePath) {
+        return sourcePath.startsWith(ApplicationProperties.PATH_TYPE.HTTP_PREFIX.value) || sourcePath.startsWith(ApplicationProperties.PATH_TYPE.HTTPS_PREFIX.value);
+    }
+
+    private String getString(int idx) {
+        if (idx < 0 || idx >= stringCount) {
+            throw new IndexOutOfBoundsException("Corrupt properties snapshot file: no string " + idx);
+        }
+        int start = buf.getInt(stringOffsetsPos + idx * Integer.BYTES);
+        int end = buf.getInt(stringOffsetsPos + (idx + 1) * Integer.BYTES);
+        if (start < 0 || end < start || stringDataPos + end > buf.limit()) {
+            throw new IndexOutOfBoundsException("Corrupt properties snapshot file: string " + idx + " is out of bounds");
+        }
+        byte[] bytes = new byte[end - start];
+        ByteBuffer str = buf.duplicate();
+        str.position(stringDataPos + start);
+        str.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /* write a snapshot of the given merged properties along with the sources they were loaded from; the snapshot is
+     * written to a temporary file first and then moved into place so that readers never see a partial snapshot
+     * */
+    static void write(Path file, String configKey, List<PropertiesSource> sources, Map<String, String> merged) throws IOException {
+        ByteBuffer buf = toBytes(configKey, sources, merged);
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    static ByteBuffer toBytes(String configKey, List<PropertiesSource> sources, Map<String, String> merged) throws IOException {
+        StringTable strings = new StringTable();
+        strings.add(configKey);
+
+        // the file each final value came from is the last source that contains the key
+        Map<String, Integer> provenance = new HashMap<>(merged.size() * 2);
+        for (int source = 0; source < sources.size(); source++) {
+            for (String key : sources.get(source).getProperties().keySet()) {
+                provenance.put(key, source);
+            }
+        }
+
+        int[] sourcePaths = new int[sources.size()];
+        long[][] sourceStats = new long[sources.size()][];
+        for (int source = 0; source < sources.size(); source++) {
+            String path = sources.get(source).getPath();
+            sourcePaths[source] = strings.add(path);
+            sourceStats[source] = fileStats(path);
+        }
+
+        int entryCount = merged.size();
+        int[][] entries = new int[entryCount][];
+        List<Map.Entry<String, String>> sorted = new ArrayList<>(merged.entrySet());
+        sorted.sort(Map.Entry.comparingByKey());
+        int entry = 0;
+        for (Map.Entry<String, String> e : sorted) {
+            Integer source = provenance.get(e.getKey());
+            entries[entry++] = new int[]{e.getKey().hashCode(), strings.add(e.getKey()), e.getValue() == null ? NULL_STRING : strings.add(e.getValue()), source == null ? -1 : source};
+        }
+
+        int indexCapacity = Integer.highestOneBit(Math.max(2, entryCount * 2 - 1)) << 1;
+        int[] index = new int[indexCapacity];
+        for (int i = 0; i < entryCount; i++) {
+            int slot = spread(entries[i][0]) & (indexCapacity - 1);
+            while (index[slot] != 0) {
+                slot = (slot + 1) & (indexCapacity - 1);
+            }
+            index[slot] = i + 1;
+        }
+
+        int size = HEADER_SIZE + (strings.size() + 1) * Integer.BYTES + strings.byteSize()
+                + sources.size() * SOURCE_SIZE + entryCount * ENTRY_SIZE + indexCapacity * Integer.BYTES;
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(strings.size()).putInt(sources.size()).putInt(entryCount).putInt(indexCapacity);
+        strings.writeTo(buf);
+        for (int source = 0; source < sources.size(); source++) {
+            buf.putInt(sourcePaths[source]).putLong(sourceStats[source][0]).putLong(sourceStats[source][1]).putLong(sourceStats[source][2]);
+        }
+        for (int[] e : entries) {
+            buf.putInt(e[0]).putInt(e[1]).putInt(e[2]).putInt(e[3]);
+        }
+        for (int slot : index) {
+            buf.putInt(slot);
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /* last modified millis, size and content hash of the file behind the given source path
+     * */
+    private static long[] fileStats(String sourcePath) throws IOException {
+        Path file = toFile(sourcePath);
+        if (Files.isDirectory(file)) {
+            return directoryStats(file);
+        }
+        return new long[]{Files.getLastModifiedTime(file).toMillis(), Files.size(file), contentHash(file)};
+    }
+
+    /* latest last modified millis, total size and content hash of the files a "dir:" source loads; the directory's own
+     * modification time is included since adding, removing or renaming a file (or swapping "..data") changes it
+     * */
+    private static long[] directoryStats(Path dir) throws IOException {
+        long lastModified = Files.getLastModifiedTime(dir).toMillis();
+        long size = 0;
+        CRC32C crc = new CRC32C();
+        for (Path file : DirectorySourceLoader.listFiles(dir)) {
+            lastModified = Math.max(lastModified, Files.getLastModifiedTime(file).toMillis());
+            size += Files.size(file);
+            crc.update(file.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+            crc.update(0);
+            updateHash(crc, file);
+        }
+        return new long[]{lastModified, size, crc.getValue()};
+    }
+
+    /* the file on disk behind a source path: a plain file path, a "file:" class path URL or the jar of a "jar:" class path URL
+     * */
+    static Path toFile(String sourcePath) {
+        if (sourcePath.startsWith("jar:")) {
+            int separator = sourcePath.indexOf("!/");
+            return Paths.get(URI.create(sourcePath.substring("jar:".length(), separator < 0 ? sourcePath.length() : separator)));
+        } else if (sourcePath.startsWith("file:")) {
+            return Paths.get(URI.create(sourcePath));
+        }
+        return Paths.get(sourcePath);
+    }
+
+    static long contentHash(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        updateHash(crc, file);
+        return crc.getValue();
+    }
+
+    private static void updateHash(CRC32C crc, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long pos = 0; pos < size; pos += Integer.MAX_VALUE) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(Integer.MAX_VALUE, size - pos)));
+            }
+        }
+    }
+
+    static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /* de-duplicated UTF-8 strings in the order they were added
+     * */
+    private static class StringTable {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<byte[]> bytes = new ArrayList<>();
+        private int byteSize;
+
+        int add(String str) {
+            Integer id = ids.get(str);
+            if (id == null) {
+                id = bytes.size();
+                byte[] utf8 = str.getBytes(StandardCharsets.UTF_8);
+                bytes.add(utf8);
+                byteSize += utf8.length;
+                ids.put(str, id);
+            }
+            return id;
+        }
+
+        int size() {
+            return bytes.size();
+        }
+
+        int byteSize() {
+            return byteSize;
+        }
+
+        void writeTo(ByteBuffer buf) {
+            int offset = 0;
+            for (byte[] str : bytes) {
+                buf.putInt(offset);
+                offset += str.length;
+            }
+            buf.putInt(offset);
+            for (byte[] str : bytes) {
+                buf.put(str);
+            }
+        }
+    }
+
+}
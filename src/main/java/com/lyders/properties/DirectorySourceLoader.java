@@ -0,0 +1,141 @@
+package com.lyders.properties;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/* loads every file of a "dir:" directory as one source, e.g., a mounted Kubernetes ConfigMap or secret.
+ *
+ * Files named "*.properties", "*.json", "*.yaml" and "*.yml" are parsed by SourceParser just like the files of every
+ * other path type, and every other file is a single property named after the file, whose value is the content of the
+ * file minus one trailing line break. Hidden files (such as Kubernetes' "..data"
+ * symlink and the timestamped directories behind it) are skipped. The files are read at the same time and then merged
+ * in the order of their names, so that a later name overrides an earlier one no matter which file was read first.
+ *
+ * Kubernetes updates a mounted directory by writing a new timestamped directory and then swapping the "..data" symlink
+ * over to it, so the target of that symlink tells whether anything changed without looking at any of the files.
+ * */
+final class DirectorySourceLoader {
+
+    static final String DATA_LINK = "..data";
+    static final String PROPERTIES_EXTENSION = ".properties";
+
+    // the files are read again if the directory was swapped while they were being read, and fail after this many tries
+    private static final int MAX_ATTEMPTS = 3;
+
+    private DirectorySourceLoader() {
+    }
+
+    static PropertiesSource load(Path dir) throws FileNotFoundException {
+        if (!Files.isDirectory(dir)) {
+            throw new FileNotFoundException(String.format("Properties directory not found: %s", dir));
+        }
+        List<FileProperties> read = null;
+        for (int attempt = 0; read == null; attempt++) {
+            if (attempt == MAX_ATTEMPTS) {
+                // a mix of the files from before and after a swap; failing keeps the previous properties on a reload
+                throw new FileNotFoundException(String.format("Properties directory '%s' was swapped while being read %d times in a row", dir, MAX_ATTEMPTS));
+            }
+            String before = version(dir);
+            List<FileProperties> attempted = readAll(dir);
+            if (Objects.equals(before, version(dir))) {
+                read = attempted;
+            }
+        }
+        Map<String, String> properties = new LinkedHashMap<>();
+        long size = 0;
+        for (FileProperties file : read) {
+            properties.putAll(file.properties);
+            size += file.size;
+        }
+        return new PropertiesSource(dir.toString(), ApplicationProperties.PATH_TYPE.DIR_PREFIX, properties, size);
+    }
+
+    /* the target of the "..data" symlink of the given directory, or null if it has none
+     * */
+    static String version(Path dir) {
+        Path data = dir.resolve(DATA_LINK);
+        try {
+            return Files.isSymbolicLink(data) ? Files.readSymbolicLink(data).toString() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    static boolean isHidden(Path file) {
+        return file.getFileName().toString().startsWith(".");
+    }
+
+    /* the files of the given directory that are loaded, in the order of their names
+     * */
+    static List<Path> listFiles(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                if (!isHidden(entry) && Files.isRegularFile(entry)) {
+                    files.add(entry);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static List<FileProperties> readAll(Path dir) throws FileNotFoundException {
+        List<Path> files;
+        try {
+            files = listFiles(dir);
+        } catch (IOException e) {
+            throw new FileNotFoundException(String.format("Failed to list properties directory '%s': %s", dir, e.getMessage()));
+        }
+        try {
+            // the collected list keeps the sorted order however the reads were split up
+            return files.parallelStream().map(DirectorySourceLoader::read).collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw new FileNotFoundException(e.getCause().getMessage());
+        }
+    }
+
+    private static FileProperties read(Path file) {
+        try {
+            String name = file.getFileName().toString();
+            if (name.endsWith(PROPERTIES_EXTENSION) || SourceParser.formatOf(name) != SourceParser.Format.PROPERTIES) {
+                Map<String, String> properties = new LinkedHashMap<>();
+                int size = SourceParser.parse(file, properties::put);
+                return new FileProperties(properties, size);
+            }
+            byte[] bytes = Files.readAllBytes(file);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            if (value.endsWith("\r\n")) {
+                value = value.substring(0, value.length() - 2);
+            } else if (value.endsWith("\n")) {
+                value = value.substring(0, value.length() - 1);
+            }
+            return new FileProperties(Collections.singletonMap(name, value), bytes.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(new IOException(String.format("Failed to read properties file '%s': %s", file, e.getMessage()), e));
+        }
+    }
+
+    private static final class FileProperties {
+        private final Map<String, String> properties;
+        private final long size;
+
+        FileProperties(Map<String, String> properties, long size) {
+            this.properties = properties;
+            this.size = size;
+        }
+    }
+
+}
@@ -0,0 +1,279 @@
+package com.lyders.properties;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/* loads properties files from an "http:" or "https:" base URL, keeping the last copy of each file in a disk cache.
+ *
+ * A cached copy that is still fresh according to the Cache-Control max-age it was served with is used without any
+ * request at all. Otherwise the file is requested with If-None-Match / If-Modified-Since so that an unchanged file costs
+ * a 304 instead of the whole file, and when the server can't be reached (or answers with a 5xx) the cached copy is used
+ * as it is. A 404 always fails, just like a missing file on the file system.
+ * */
+final class HttpSourceLoader {
+
+    private static final Log LOG = LogFactory.getLog(HttpSourceLoader.class);
+
+    private static final Pattern MAX_AGE = Pattern.compile("(?:^|[,\\s])max-age=(\\d+)");
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final String EXPIRES = "expires";
+
+    private static final class Client {
+        private static final HttpClient INSTANCE = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    private final String baseUrl;
+    private final Path cacheDirectory;
+    private final Duration timeout;
+    // requests started ahead of the load() call that will want them, so that several files are fetched at the same time
+    private final Map<String, CompletableFuture<PropertiesSource>> prefetched = new ConcurrentHashMap<>();
+
+    HttpSourceLoader(String baseUrl, Path cacheDirectory, Duration timeout) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        this.cacheDirectory = cacheDirectory;
+        this.timeout = timeout;
+    }
+
+    /* start fetching the given file now so that a later load() of it only has to wait for the rest of the response
+     * */
+    void prefetch(String fileName) {
+        prefetched.computeIfAbsent(fileName, this::fetch);
+    }
+
+    PropertiesSource load(String fileName) throws FileNotFoundException {
+        CompletableFuture<PropertiesSource> future = prefetched.remove(fileName);
+        if (future == null) {
+            future = fetch(fileName);
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof FileNotFoundException) {
+                throw (FileNotFoundException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private CompletableFuture<PropertiesSource> fetch(String fileName) {
+        String url = baseUrl + fileName;
+        String name = cacheName(url);
+        Path cacheFile = cacheDirectory.resolve(name + ".properties");
+        Path metaFile = cacheDirectory.resolve(name + ".meta");
+        Properties meta = new Properties();
+        // a cached copy is only used along with the validators it was served with
+        try {
+            if (Files.isRegularFile(cacheFile) && Files.isRegularFile(metaFile)) {
+                try (InputStream in = Files.newInputStream(metaFile)) {
+                    meta.load(in);
+                }
+                if (Long.parseLong(meta.getProperty(EXPIRES, "0")) > System.currentTimeMillis()) {
+                    return CompletableFuture.completedFuture(parse(url, Files.readAllBytes(cacheFile)));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // e.g., a truncated file: not worth failing over while the server may well be reachable
+            discardCachedCopy(url, cacheFile, metaFile, meta, e);
+        }
+        return send(url, cacheFile, metaFile, meta);
+    }
+
+    /* request the given URL, conditionally if there is a cached copy of it
+     * */
+    private CompletableFuture<PropertiesSource> send(String url, Path cacheFile, Path metaFile, Properties meta) {
+        HttpRequest.Builder request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url)).timeout(timeout).GET();
+        } catch (IllegalArgumentException e) {
+            return failed(new FileNotFoundException(String.format("Invalid properties URL '%s': %s", url, e.getMessage())));
+        }
+        if (meta.getProperty(ETAG) != null) {
+            request.header("If-None-Match", meta.getProperty(ETAG));
+        }
+        if (meta.getProperty(LAST_MODIFIED) != null) {
+            request.header("If-Modified-Since", meta.getProperty(LAST_MODIFIED));
+        }
+        return Client.INSTANCE.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    try {
+                        PropertiesSource source = handleResponse(url, response, error, cacheFile, metaFile, meta);
+                        // null when the server confirmed a cached copy that can't be read, which is then fetched again as a whole
+                        return source != null ? CompletableFuture.completedFuture(source) : send(url, cacheFile, metaFile, meta);
+                    } catch (FileNotFoundException e) {
+                        throw new CompletionException(e);
+                    } catch (IOException e) {
+                        throw new CompletionException(new FileNotFoundException(String.format("Failed to read the cached copy of '%s': %s", url, e.getMessage())));
+                    }
+                })
+                .thenCompose(source -> source);
+    }
+
+    private void discardCachedCopy(String url, Path cacheFile, Path metaFile, Properties meta, Exception e) {
+        LOG.warn(String.format("Failed to read the cached copy of '%s', so fetching it again: %s", url, e.getMessage()));
+        meta.clear();
+        try {
+            Files.deleteIfExists(metaFile);
+            Files.deleteIfExists(cacheFile);
+        } catch (IOException ex) {
+            LOG.warn(String.format("Failed to delete the cached copy of '%s': %s", url, ex.getMessage()));
+        }
+    }
+
+    /* the properties of the given response, or of the cached copy when the server is down or confirmed it; null if the
+     * server confirmed a cached copy that can't be read, which has then been discarded
+     * */
+    private PropertiesSource handleResponse(String url, HttpResponse<byte[]> response, Throwable error, Path cacheFile, Path metaFile, Properties meta) throws IOException {
+        boolean cached = !meta.isEmpty();
+        if (error != null || response.statusCode() >= 500) {
+            String reason = error != null ? String.valueOf(error.getCause() != null ? error.getCause() : error) : "HTTP " + response.statusCode();
+            if (!cached) {
+                throw new FileNotFoundException(String.format("Failed to fetch properties file '%s': %s", url, reason));
+            }
+            LOG.warn(String.format("Failed to fetch properties file '%s', so using the cached copy: %s", url, reason));
+            return parse(url, Files.readAllBytes(cacheFile));
+        }
+        int status = response.statusCode();
+        if (status == 304 && cached) {
+            PropertiesSource source;
+            try {
+                source = parse(url, Files.readAllBytes(cacheFile));
+            } catch (IOException e) {
+                discardCachedCopy(url, cacheFile, metaFile, meta, e);
+                return null;
+            }
+            try {
+                updateMeta(metaFile, meta, response);
+            } catch (IOException e) {
+                LOG.warn(String.format("Failed to update the cache metadata of properties file '%s': %s", url, e.getMessage()));
+            }
+            return source;
+        }
+        if (status != 200) {
+            throw new FileNotFoundException(String.format("Failed to fetch properties file '%s': HTTP %d", url, status));
+        }
+        byte[] body = response.body();
+        PropertiesSource source = parse(url, body);
+        try {
+            Files.createDirectories(cacheDirectory);
+            writeAtomically(cacheFile, body);
+            meta.clear();
+            updateMeta(metaFile, meta, response);
+        } catch (IOException e) {
+            LOG.warn(String.format("Failed to cache properties file '%s' in '%s': %s", url, cacheDirectory, e.getMessage()));
+        }
+        return source;
+    }
+
+    private void updateMeta(Path metaFile, Properties meta, HttpResponse<?> response) throws IOException {
+        response.headers().firstValue("ETag").ifPresent(etag -> meta.setProperty(ETAG, etag));
+        response.headers().firstValue("Last-Modified").ifPresent(lastModified -> meta.setProperty(LAST_MODIFIED, lastModified));
+        long expires = 0;
+        Matcher maxAge = MAX_AGE.matcher(response.headers().firstValue("Cache-Control").orElse(""));
+        if (maxAge.find()) {
+            expires = System.currentTimeMillis() + Long.parseLong(maxAge.group(1)) * 1000;
+        }
+        meta.setProperty(EXPIRES, Long.toString(expires));
+        Path tmp = Files.createTempFile(cacheDirectory, metaFile.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                meta.store(out, null);
+            }
+            move(tmp, metaFile);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void writeAtomically(Path file, byte[] bytes) throws IOException {
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, bytes);
+            move(tmp, file);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /* the properties of the given response body, read as JSON or YAML if the path of the URL ends in .json, .yaml or .yml
+     * */
+    private static PropertiesSource parse(String url, byte[] bytes) throws FileNotFoundException {
+        Map<String, String> properties = new LinkedHashMap<>();
+        int end = url.length();
+        for (int i = 0; i < url.length(); i++) {
+            if (url.charAt(i) == '?' || url.charAt(i) == '#') {
+                end = i;
+                break;
+            }
+        }
+        int size;
+        try {
+            size = SourceParser.parse(url.substring(0, end), ByteBuffer.wrap(bytes), properties::put);
+        } catch (IOException e) {
+            throw new FileNotFoundException(String.format("Failed to parse properties file '%s': %s", url, e.getMessage()));
+        }
+        return new PropertiesSource(url, url.startsWith(ApplicationProperties.PATH_TYPE.HTTPS_PREFIX.value)
+                ? ApplicationProperties.PATH_TYPE.HTTPS_PREFIX : ApplicationProperties.PATH_TYPE.HTTP_PREFIX, properties, size);
+    }
+
+    /* a file name for the cached copy of the given URL
+     * */
+    private static String cacheName(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(32);
+            for (int i = 0; i < 16; i++) {
+                sb.append(String.format("%02x", digest[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+}
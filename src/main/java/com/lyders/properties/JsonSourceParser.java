@@ -0,0 +1,314 @@
+package com.lyders.properties;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.BiConsumer;
+
+/* a streaming reader for JSON source files that hands every scalar to the sink as soon as it has been read, under a
+ * name made of the names of the objects around it joined with '.' and the positions in the arrays around it in
+ * brackets, e.g., {"db": {"hosts": ["a", "b"]}} gives "db.hosts[0]=a" and "db.hosts[1]=b". Nothing but the name of the
+ * current value is kept, so a document of any size is read without building a tree of it.
+ *
+ * Numbers, true and false are kept as they were written and null is an empty value. An empty object or array gives no
+ * properties at all. The same reader, made lenient, also reads the flow collections of YAML files, e.g., "[a, 'b c']",
+ * where a scalar may be unquoted or single-quoted.
+ * */
+final class JsonSourceParser {
+
+    // deeper documents than this are most likely not configuration, and would otherwise overflow the stack
+    private static final int MAX_DEPTH = 512;
+
+    private final Reader in;
+    private final BiConsumer<String, String> sink;
+    private final boolean lenient;
+    private final String source;
+    private final StringBuilder token = new StringBuilder(64);
+    private int peeked = -2;
+    // a second character of look-ahead, only needed after a ':' in a YAML flow collection
+    private int pushedBack = -2;
+    private int line = 1;
+
+    private JsonSourceParser(Reader in, BiConsumer<String, String> sink, boolean lenient, String source) {
+        this.in = in;
+        this.sink = sink;
+        this.lenient = lenient;
+        this.source = source;
+    }
+
+    /* pass every scalar of the JSON document read from the given reader to the given sink
+     * */
+    static void parse(Reader in, BiConsumer<String, String> sink) throws IOException {
+        JsonSourceParser parser = new JsonSourceParser(in, sink, false, "JSON");
+        parser.skipWhitespace();
+        int c = parser.peek();
+        if (c != '{' && c != '[') {
+            throw parser.error("expected '{' or '[' at the start of the document");
+        }
+        parser.value("", 0);
+        parser.skipWhitespace();
+        if (parser.peek() != -1) {
+            throw parser.error("unexpected content after the end of the document");
+        }
+    }
+
+    /* pass every scalar of the given YAML flow collection to the given sink, with the given name in front of their names
+     * */
+    static void parseFlow(Reader in, String prefix, BiConsumer<String, String> sink, int line) throws IOException {
+        JsonSourceParser parser = new JsonSourceParser(in, sink, true, "YAML");
+        parser.line = line;
+        parser.skipWhitespace();
+        parser.value(prefix, 0);
+        parser.skipWhitespace();
+        int c = parser.peek();
+        if (c != -1 && c != '#') {
+            throw parser.error("unexpected content after the end of the flow collection");
+        }
+    }
+
+    private void value(String name, int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw error("nested too deeply");
+        }
+        int c = peek();
+        if (c == '{') {
+            read();
+            object(name, depth);
+        } else if (c == '[') {
+            read();
+            array(name, depth);
+        } else if (c == '"' || (lenient && c == '\'')) {
+            sink.accept(name, string());
+        } else {
+            String scalar = scalar();
+            sink.accept(name, "null".equals(scalar) || (lenient && "~".equals(scalar)) ? "" : scalar);
+        }
+    }
+
+    private void object(String name, int depth) throws IOException {
+        skipWhitespace();
+        if (peek() == '}') {
+            read();
+            return;
+        }
+        while (true) {
+            skipWhitespace();
+            int c = peek();
+            String key;
+            if (c == '"' || (lenient && c == '\'')) {
+                key = string();
+            } else if (lenient && c != -1) {
+                key = scalar();
+            } else {
+                throw error("expected a quoted name");
+            }
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            value(name.isEmpty() ? key : name + '.' + key, depth + 1);
+            skipWhitespace();
+            c = read();
+            if (c == '}') {
+                return;
+            } else if (c != ',') {
+                throw error("expected ',' or '}'");
+            }
+        }
+    }
+
+    private void array(String name, int depth) throws IOException {
+        skipWhitespace();
+        if (peek() == ']') {
+            read();
+            return;
+        }
+        for (int idx = 0; ; idx++) {
+            skipWhitespace();
+            value(name + '[' + idx + ']', depth + 1);
+            skipWhitespace();
+            int c = read();
+            if (c == ']') {
+                return;
+            } else if (c != ',') {
+                throw error("expected ',' or ']'");
+            }
+        }
+    }
+
+    private String string() throws IOException {
+        int quote = read();
+        token.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw error("unterminated string");
+            } else if (c == quote) {
+                if (quote == '\'' && peek() == '\'') {
+                    // '' is a single quote inside a single-quoted YAML scalar
+                    read();
+                    token.append('\'');
+                    continue;
+                }
+                return token.toString();
+            } else if (c == '\\' && quote == '"') {
+                escape();
+            } else if (c == '\n' && !lenient) {
+                throw error("line break inside a string");
+            } else {
+                token.append((char) c);
+            }
+        }
+    }
+
+    private void escape() throws IOException {
+        int c = read();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                token.append((char) c);
+                break;
+            case 'b':
+                token.append('\b');
+                break;
+            case 'f':
+                token.append('\f');
+                break;
+            case 'n':
+                token.append('\n');
+                break;
+            case 'r':
+                token.append('\r');
+                break;
+            case 't':
+                token.append('\t');
+                break;
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw error("malformed \\uXXXX escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                token.append((char) value);
+                break;
+            default:
+                throw error(String.format("invalid escape '\\%c'", (char) c));
+        }
+    }
+
+    /* a number, true, false or null, or in a YAML flow collection any plain scalar
+     * */
+    private String scalar() throws IOException {
+        token.setLength(0);
+        while (true) {
+            int c = peek();
+            if (c == -1 || c == ',' || c == ']' || c == '}' || (!lenient && (c == ' ' || c == '\t' || c == '\n' || c == '\r'))
+                    || (lenient && c == '\n')) {
+                break;
+            }
+            if (lenient && c == ':') {
+                // a ':' only ends a plain scalar (a key) when it is followed by whitespace or the end of the value
+                read();
+                int next = peek();
+                if (next == -1 || next == ' ' || next == '\t' || next == '\n' || next == '\r') {
+                    peeked = ':';
+                    pushedBack = next;
+                    break;
+                }
+                token.append(':');
+                continue;
+            }
+            token.append((char) read());
+        }
+        String scalar = lenient ? token.toString().trim() : token.toString();
+        if (scalar.isEmpty()) {
+            throw error("expected a value");
+        }
+        if (!lenient && !scalar.equals("true") && !scalar.equals("false") && !scalar.equals("null") && !isNumber(scalar)) {
+            throw error(String.format("invalid value '%s'", scalar));
+        }
+        return scalar;
+    }
+
+    private static boolean isNumber(String str) {
+        int i = 0;
+        int len = str.length();
+        if (str.charAt(i) == '-') {
+            i++;
+        }
+        int digits = i;
+        while (i < len && Character.isDigit(str.charAt(i))) {
+            i++;
+        }
+        if (i == digits || (str.charAt(digits) == '0' && i - digits > 1)) {
+            return false;
+        }
+        if (i < len && str.charAt(i) == '.') {
+            int fraction = ++i;
+            while (i < len && Character.isDigit(str.charAt(i))) {
+                i++;
+            }
+            if (i == fraction) {
+                return false;
+            }
+        }
+        if (i < len && (str.charAt(i) == 'e' || str.charAt(i) == 'E')) {
+            i++;
+            if (i < len && (str.charAt(i) == '+' || str.charAt(i) == '-')) {
+                i++;
+            }
+            int exponent = i;
+            while (i < len && Character.isDigit(str.charAt(i))) {
+                i++;
+            }
+            if (i == exponent) {
+                return false;
+            }
+        }
+        return i == len;
+    }
+
+    private void expect(char expected) throws IOException {
+        if (read() != expected) {
+            throw error(String.format("expected '%c'", expected));
+        }
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                read();
+            } else if (c == '\uFEFF' && line == 1) {
+                // a byte order mark
+                read();
+            } else {
+                return;
+            }
+        }
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = in.read();
+        }
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        peeked = pushedBack;
+        pushedBack = -2;
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private IOException error(String message) {
+        return new IOException(String.format("Invalid %s at line %d: %s", source, line, message));
+    }
+
+}
@@ -0,0 +1,240 @@
+package com.lyders.properties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/* property names in sorted order, so that all of the names that start with a prefix are one contiguous range found with
+ * two binary searches. The names of a view are kept on the heap (see of()); those of a snapshot image or shared segment
+ * are read from its entries, which are written in sorted order.
+ * */
+abstract class KeyIndex {
+
+    static final char SEPARATOR = '.';
+
+    abstract int size();
+
+    abstract String get(int idx);
+
+    /* the sorted names of a view. The array only holds references to the names already in the view's map.
+     * */
+    static KeyIndex of(Collection<String> keys) {
+        String[] sorted = keys.toArray(new String[0]);
+        Arrays.sort(sorted);
+        return Chunked.of(sorted);
+    }
+
+    /* the index of the first name that starts with the given prefix (or of where it would be)
+     * */
+    int from(String prefix) {
+        return lowerBound(prefix, 0);
+    }
+
+    /* the index just after the last name that starts with the given prefix
+     * */
+    int to(String prefix) {
+        return to(prefix, 0);
+    }
+
+    private int to(String prefix, int fromIdx) {
+        String successor = successor(prefix);
+        return successor == null ? size() : lowerBound(successor, fromIdx);
+    }
+
+    /* every name that starts with the given prefix, in sorted order
+     * */
+    List<String> keysWithPrefix(String prefix) {
+        int from = from(prefix);
+        int to = to(prefix, from);
+        List<String> keys = new ArrayList<>(to - from);
+        for (int idx = from; idx < to; idx++) {
+            keys.add(get(idx));
+        }
+        return keys;
+    }
+
+    int countWithPrefix(String prefix) {
+        int from = from(prefix);
+        return to(prefix, from) - from;
+    }
+
+    /* the distinct segments that directly follow the given dotted prefix, e.g., "consumer" and "producer" for "kafka"
+     * given "kafka.consumer.group" and "kafka.producer.acks". Each child costs one binary search to skip the names below it.
+     * */
+    Set<String> childKeys(String dottedPrefix) {
+        Set<String> children = new LinkedHashSet<>();
+        int idx = from(dottedPrefix);
+        int end = to(dottedPrefix, idx);
+        while (idx < end) {
+            String key = get(idx);
+            int sep = key.indexOf(SEPARATOR, dottedPrefix.length());
+            if (sep < 0) {
+                children.add(key.substring(dottedPrefix.length()));
+                idx++;
+            } else {
+                String child = key.substring(dottedPrefix.length(), sep);
+                children.add(child);
+                // skip every name below "<prefix><child>." in one go
+                idx = to(key.substring(0, sep + 1), idx);
+            }
+        }
+        return children;
+    }
+
+    private int lowerBound(String key, int fromIdx) {
+        int low = fromIdx;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (get(mid).compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /* the smallest string greater than every string that starts with the given prefix, or null if there is none
+     * */
+    private static String successor(String prefix) {
+        int last = prefix.length() - 1;
+        while (last >= 0 && prefix.charAt(last) == Character.MAX_VALUE) {
+            last--;
+        }
+        if (last < 0) {
+            return null;
+        }
+        return prefix.substring(0, last) + (char) (prefix.charAt(last) + 1);
+    }
+
+    /* the names of a view in sorted chunks of at most MAX_CHUNK names, so that the index of the view published after a
+     * put() copies only the chunks that changed (and the array of chunks) instead of sorting every name again
+     * */
+    static final class Chunked extends KeyIndex {
+
+        static final int CHUNK = 256;
+        static final int MAX_CHUNK = 2 * CHUNK;
+
+        private static final Chunked EMPTY = new Chunked(new String[0][]);
+
+        private final String[][] chunks;
+        // the index of the first name of each chunk, followed by the number of names
+        private final int[] offsets;
+
+        private Chunked(String[][] chunks) {
+            this.chunks = chunks;
+            this.offsets = new int[chunks.length + 1];
+            for (int c = 0; c < chunks.length; c++) {
+                offsets[c + 1] = offsets[c] + chunks[c].length;
+            }
+        }
+
+        private static Chunked of(String[] sorted) {
+            List<String[]> chunks = new ArrayList<>(sorted.length / CHUNK + 1);
+            split(sorted, sorted.length, chunks);
+            return chunks.isEmpty() ? EMPTY : new Chunked(chunks.toArray(new String[0][]));
+        }
+
+        /* add the given sorted names to the given chunks, split into chunks of CHUNK names if there are too many for one
+         * */
+        private static void split(String[] sorted, int length, List<String[]> chunks) {
+            if (length == 0) {
+                return;
+            }
+            if (length <= MAX_CHUNK) {
+                chunks.add(length == sorted.length ? sorted : Arrays.copyOf(sorted, length));
+                return;
+            }
+            for (int from = 0; from < length; from += CHUNK) {
+                chunks.add(Arrays.copyOfRange(sorted, from, Math.min(length, from + CHUNK)));
+            }
+        }
+
+        @Override
+        int size() {
+            return offsets[chunks.length];
+        }
+
+        @Override
+        String get(int idx) {
+            int c = Arrays.binarySearch(offsets, 0, chunks.length, idx);
+            if (c < 0) {
+                c = -c - 2;
+            } else {
+                // chunks are never empty, so an exact match is the first name of chunk c
+                return chunks[c][0];
+            }
+            return chunks[c][idx - offsets[c]];
+        }
+
+        /* the index of the given values after the given names changed: each changed name is added if the values have
+         * it and removed if they don't, and only the chunks they fall into are copied
+         * */
+        Chunked withChanged(Collection<String> changedKeys, Map<String, ?> values) {
+            if (changedKeys.isEmpty()) {
+                return this;
+            }
+            String[] changed = changedKeys.toArray(new String[0]);
+            Arrays.sort(changed);
+            if (chunks.length == 0) {
+                return of(merge(new String[0], changed, 0, changed.length, values));
+            }
+            List<String[]> next = new ArrayList<>(chunks.length + 1);
+            int from = 0;
+            for (int c = 0; c < chunks.length; c++) {
+                // the changed names up to the first name of the next chunk belong to this one
+                int to = from;
+                if (c + 1 == chunks.length) {
+                    to = changed.length;
+                } else {
+                    String upper = chunks[c + 1][0];
+                    while (to < changed.length && changed[to].compareTo(upper) < 0) {
+                        to++;
+                    }
+                }
+                if (to == from) {
+                    next.add(chunks[c]);
+                } else {
+                    String[] merged = merge(chunks[c], changed, from, to, values);
+                    split(merged, merged.length, next);
+                }
+                from = to;
+            }
+            return next.isEmpty() ? EMPTY : new Chunked(next.toArray(new String[0][]));
+        }
+
+        /* the given sorted chunk with the given sorted changed names added or removed
+         * */
+        private static String[] merge(String[] chunk, String[] changed, int from, int to, Map<String, ?> values) {
+            List<String> merged = new ArrayList<>(chunk.length + to - from);
+            int idx = 0;
+            String last = null;
+            for (int c = from; c < to; c++) {
+                String name = changed[c];
+                if (name.equals(last)) {
+                    continue;
+                }
+                last = name;
+                while (idx < chunk.length && chunk[idx].compareTo(name) < 0) {
+                    merged.add(chunk[idx++]);
+                }
+                if (idx < chunk.length && chunk[idx].equals(name)) {
+                    idx++;
+                }
+                if (values.containsKey(name)) {
+                    merged.add(name);
+                }
+            }
+            while (idx < chunk.length) {
+                merged.add(chunk[idx++]);
+            }
+            return merged.toArray(new String[0]);
+        }
+    }
+
+}
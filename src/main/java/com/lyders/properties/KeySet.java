@@ -0,0 +1,61 @@
+package com.lyders.properties;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/* a fixed list of property names prepared once (e.g., in a static field of a request handler) and then resolved
+ * together with ApplicationProperties.resolve(keySet), which returns their values indexed by position in this list
+ * */
+public final class KeySet {
+
+    private final String[] names;
+    private final Map<String, Integer> positions;
+
+    private KeySet(String[] names) {
+        this.names = names;
+        Map<String, Integer> positions = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == null) {
+                throw new IllegalArgumentException(String.format("Property name #%d of the key set is null", i));
+            }
+            positions.putIfAbsent(names[i], i);
+        }
+        this.positions = positions;
+    }
+
+    public static KeySet of(String... names) {
+        return new KeySet(names.clone());
+    }
+
+    public static KeySet of(Collection<String> names) {
+        return new KeySet(names.toArray(new String[0]));
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int idx) {
+        return names[idx];
+    }
+
+    /* the position of the given name, or -1 if it is not part of this key set
+     * */
+    public int indexOf(String name) {
+        return positions.getOrDefault(name, -1);
+    }
+
+    public List<String> getNames() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(names);
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.lyders.properties;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/* the values of a KeySet as returned by ApplicationProperties.resolve(keySet), all read from the same version of the
+ * properties. Each value is what get(name) returns, and the primitive getters use the value parsed once per version of
+ * the properties just like ApplicationProperties.getIntValue() and friends.
+ * */
+public final class KeyValues {
+
+    private static final Log LOG = LogFactory.getLog(KeyValues.class);
+
+    private final KeySet keys;
+    private final ResolutionCache.TypedValue[] values;
+
+    KeyValues(KeySet keys, ResolutionCache.TypedValue[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    public KeySet getKeys() {
+        return keys;
+    }
+
+    public String get(int idx) {
+        return values[idx].getValue();
+    }
+
+    /* the value of the given name, or null if it is not part of the key set
+     * */
+    public String get(String propertyName) {
+        int idx = keys.indexOf(propertyName);
+        return idx >= 0 ? values[idx].getValue() : null;
+    }
+
+    public int getIntValue(int idx, int defaultValue) {
+        ResolutionCache.TypedValue typed = values[idx];
+        if (typed.is(ResolutionCache.TypedValue.INT)) {
+            return (int) typed.getLongValue();
+        }
+        if (typed.shouldWarn(ResolutionCache.TypedValue.INT)) {
+            warn(idx, "int", defaultValue);
+        }
+        return defaultValue;
+    }
+
+    public long getLongValue(int idx, long defaultValue) {
+        ResolutionCache.TypedValue typed = values[idx];
+        if (typed.is(ResolutionCache.TypedValue.LONG)) {
+            return typed.getLongValue();
+        }
+        if (typed.shouldWarn(ResolutionCache.TypedValue.LONG)) {
+            warn(idx, "long", defaultValue);
+        }
+        return defaultValue;
+    }
+
+    public double getDoubleValue(int idx, double defaultValue) {
+        ResolutionCache.TypedValue typed = values[idx];
+        if (typed.is(ResolutionCache.TypedValue.DOUBLE)) {
+            return typed.getDoubleValue();
+        }
+        if (typed.shouldWarn(ResolutionCache.TypedValue.DOUBLE)) {
+            warn(idx, "double", defaultValue);
+        }
+        return defaultValue;
+    }
+
+    public boolean getBooleanValue(int idx, boolean defaultValue) {
+        ResolutionCache.TypedValue typed = values[idx];
+        return typed.isPresent() ? typed.getBooleanValue() : defaultValue;
+    }
+
+    /* the values in the order of the key set
+     * */
+    public String[] toArray() {
+        String[] array = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            array[i] = values[i].getValue();
+        }
+        return array;
+    }
+
+    /* the values keyed by name in the order of the key set, leaving out the ones that are not set
+     * */
+    public Map<String, String> toMap() {
+        Map<String, String> map = new LinkedHashMap<>(values.length * 2);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].getValue() != null) {
+                map.putIfAbsent(keys.getName(i), values[i].getValue());
+            }
+        }
+        return map;
+    }
+
+    // only called for the first failure of each value, so the default is not boxed on every call
+    private void warn(int idx, String typeName, Object defaultValue) {
+        LOG.warn(String.format("Failed to convert '%s' of property '%s' to %s, so using default '%s'", values[idx].getValue(), keys.getName(idx), typeName, defaultValue));
+    }
+
+}
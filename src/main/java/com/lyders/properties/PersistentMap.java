@@ -0,0 +1,458 @@
+package com.lyders.properties;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/* an immutable hash map that is changed by making a new map that shares all but the changed path with the old one, so
+ * that publishing a view after a single put() costs O(log n) instead of a copy of every property.
+ *
+ * The entries are kept in a hash array mapped trie: each level uses 5 bits of the key's hash to pick one of up to 32
+ * slots, and only the slots in use are stored, found through a bitmap. A slot holds either an entry or the node of the
+ * next level. Keys whose hashes are equal in all 32 bits share a collision node. Null values are allowed, null keys
+ * are not. The map is read-only through the Map interface; with() and without() return the changed map.
+ * */
+final class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(new BitmapNode(0, new Object[0]), 0);
+
+    private final BitmapNode root;
+    private final int size;
+
+    private PersistentMap(BitmapNode root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /* a map of the given entries, built level by level rather than one with() at a time
+     * */
+    static <K, V> PersistentMap<K, V> of(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentMap) {
+            @SuppressWarnings("unchecked")
+            PersistentMap<K, V> persistent = (PersistentMap<K, V>) map;
+            return persistent;
+        }
+        return ofEntries(map.entrySet());
+    }
+
+    static <K, V> PersistentMap<K, V> ofEntries(Collection<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        if (entries.isEmpty()) {
+            return empty();
+        }
+        List<Leaf> leaves = new ArrayList<>(entries.size());
+        for (Map.Entry<? extends K, ? extends V> entry : entries) {
+            leaves.add(new Leaf(hash(Objects.requireNonNull(entry.getKey(), "key")), entry.getKey(), entry.getValue()));
+        }
+        return new PersistentMap<>(build(leaves, 0), leaves.size());
+    }
+
+    private static BitmapNode build(List<Leaf> leaves, int shift) {
+        @SuppressWarnings("unchecked")
+        List<Leaf>[] buckets = new List[1 << BITS];
+        int bitmap = 0;
+        for (Leaf leaf : leaves) {
+            int idx = (leaf.hash >>> shift) & MASK;
+            if (buckets[idx] == null) {
+                buckets[idx] = new ArrayList<>(2);
+                bitmap |= 1 << idx;
+            }
+            buckets[idx].add(leaf);
+        }
+        Object[] slots = new Object[Integer.bitCount(bitmap)];
+        int slot = 0;
+        for (List<Leaf> bucket : buckets) {
+            if (bucket == null) {
+                continue;
+            }
+            if (bucket.size() == 1) {
+                slots[slot++] = bucket.get(0);
+            } else if (sameHash(bucket)) {
+                slots[slot++] = new CollisionNode(bucket.get(0).hash, bucket.toArray(new Leaf[0]));
+            } else {
+                slots[slot++] = build(bucket, shift + BITS);
+            }
+        }
+        return new BitmapNode(bitmap, slots);
+    }
+
+    private static boolean sameHash(List<Leaf> leaves) {
+        int hash = leaves.get(0).hash;
+        for (Leaf leaf : leaves) {
+            if (leaf.hash != hash) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* this map with the given key set to the given value; this map itself if it already had that value
+     * */
+    PersistentMap<K, V> with(K key, V value) {
+        Objects.requireNonNull(key, "key");
+        Leaf leaf = new Leaf(hash(key), key, value);
+        boolean[] added = new boolean[1];
+        BitmapNode next = (BitmapNode) root.with(leaf, 0, added);
+        return next == root ? this : new PersistentMap<>(next, added[0] ? size + 1 : size);
+    }
+
+    /* this map without the given key; this map itself if it didn't have it
+     * */
+    PersistentMap<K, V> without(Object key) {
+        if (key == null) {
+            return this;
+        }
+        Object next = root.without(hash(key), key, 0);
+        if (next == root) {
+            return this;
+        }
+        if (next == null) {
+            return empty();
+        }
+        // a single entry left at the top is put back into a node, since the root is always one
+        BitmapNode nextRoot = next instanceof Leaf ? new BitmapNode(1 << (((Leaf) next).hash & MASK), new Object[]{next}) : (BitmapNode) next;
+        return new PersistentMap<>(nextRoot, size - 1);
+    }
+
+    private Leaf find(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int hash = hash(key);
+        Object node = root;
+        for (int shift = 0; ; shift += BITS) {
+            if (node instanceof BitmapNode) {
+                BitmapNode bitmapNode = (BitmapNode) node;
+                int bit = 1 << ((hash >>> shift) & MASK);
+                if ((bitmapNode.bitmap & bit) == 0) {
+                    return null;
+                }
+                node = bitmapNode.slots[Integer.bitCount(bitmapNode.bitmap & (bit - 1))];
+            } else if (node instanceof Leaf) {
+                Leaf leaf = (Leaf) node;
+                return leaf.hash == hash && leaf.key.equals(key) ? leaf : null;
+            } else {
+                return ((CollisionNode) node).find(hash, key);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Leaf leaf = find(key);
+        return leaf != null ? (V) leaf.value : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /* one entry of the map, which is also what the entry set returns
+     * */
+    private static final class Leaf implements Entry<Object, Object> {
+        private final int hash;
+        private final Object key;
+        private final Object value;
+
+        Leaf(int hash, Object key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public Object getKey() {
+            return key;
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return key.equals(entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    private static final class BitmapNode {
+        private final int bitmap;
+        private final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        Object with(Leaf leaf, int shift, boolean[] added) {
+            int bit = 1 << ((leaf.hash >>> shift) & MASK);
+            int idx = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                Object[] next = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, next, 0, idx);
+                next[idx] = leaf;
+                System.arraycopy(slots, idx, next, idx + 1, slots.length - idx);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, next);
+            }
+            Object slot = slots[idx];
+            Object changed;
+            if (slot instanceof Leaf) {
+                Leaf existing = (Leaf) slot;
+                if (existing.hash == leaf.hash && existing.key.equals(leaf.key)) {
+                    if (existing.value == leaf.value) {
+                        return this;
+                    }
+                    changed = new Leaf(leaf.hash, existing.key, leaf.value);
+                } else {
+                    added[0] = true;
+                    changed = existing.hash == leaf.hash
+                            ? new CollisionNode(leaf.hash, new Leaf[]{existing, leaf})
+                            : merge(existing, existing.hash, leaf, shift + BITS);
+                }
+            } else if (slot instanceof BitmapNode) {
+                changed = ((BitmapNode) slot).with(leaf, shift + BITS, added);
+            } else if (((CollisionNode) slot).hash == leaf.hash) {
+                changed = ((CollisionNode) slot).with(leaf, added);
+            } else {
+                added[0] = true;
+                changed = merge(slot, ((CollisionNode) slot).hash, leaf, shift + BITS);
+            }
+            if (changed == slot) {
+                return this;
+            }
+            Object[] next = slots.clone();
+            next[idx] = changed;
+            return new BitmapNode(bitmap, next);
+        }
+
+        /* this node without the given key: this node if it didn't have it, null if nothing is left, or the only entry
+         * left so that the level above can hold it itself
+         * */
+        Object without(int hash, Object key, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int idx = Integer.bitCount(bitmap & (bit - 1));
+            Object slot = slots[idx];
+            Object changed;
+            if (slot instanceof Leaf) {
+                Leaf existing = (Leaf) slot;
+                if (existing.hash != hash || !existing.key.equals(key)) {
+                    return this;
+                }
+                changed = null;
+            } else if (slot instanceof BitmapNode) {
+                changed = ((BitmapNode) slot).without(hash, key, shift + BITS);
+            } else {
+                changed = ((CollisionNode) slot).without(hash, key);
+            }
+            if (changed == slot) {
+                return this;
+            }
+            if (changed != null) {
+                Object[] next = slots.clone();
+                next[idx] = changed;
+                return new BitmapNode(bitmap, next);
+            }
+            if (slots.length == 1) {
+                return null;
+            }
+            if (slots.length == 2 && slots[idx ^ 1] instanceof Leaf) {
+                return slots[idx ^ 1];
+            }
+            Object[] next = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, next, 0, idx);
+            System.arraycopy(slots, idx + 1, next, idx, slots.length - idx - 1);
+            return new BitmapNode(bitmap & ~bit, next);
+        }
+
+        /* the node that holds an entry (or collision node) and another entry whose hash differs, starting at the given level
+         * */
+        private static Object merge(Object first, int firstHash, Leaf second, int shift) {
+            int firstIdx = (firstHash >>> shift) & MASK;
+            int secondIdx = (second.hash >>> shift) & MASK;
+            if (firstIdx == secondIdx) {
+                return new BitmapNode(1 << firstIdx, new Object[]{merge(first, firstHash, second, shift + BITS)});
+            }
+            return new BitmapNode((1 << firstIdx) | (1 << secondIdx), firstIdx < secondIdx ? new Object[]{first, second} : new Object[]{second, first});
+        }
+    }
+
+    private static final class CollisionNode {
+        private final int hash;
+        private final Leaf[] leaves;
+
+        CollisionNode(int hash, Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        Leaf find(int hash, Object key) {
+            if (hash != this.hash) {
+                return null;
+            }
+            for (Leaf leaf : leaves) {
+                if (leaf.key.equals(key)) {
+                    return leaf;
+                }
+            }
+            return null;
+        }
+
+        Object with(Leaf leaf, boolean[] added) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(leaf.key)) {
+                    if (leaves[i].value == leaf.value) {
+                        return this;
+                    }
+                    Leaf[] next = leaves.clone();
+                    next[i] = new Leaf(hash, leaves[i].key, leaf.value);
+                    return new CollisionNode(hash, next);
+                }
+            }
+            Leaf[] next = new Leaf[leaves.length + 1];
+            System.arraycopy(leaves, 0, next, 0, leaves.length);
+            next[leaves.length] = leaf;
+            added[0] = true;
+            return new CollisionNode(hash, next);
+        }
+
+        Object without(int hash, Object key) {
+            if (hash != this.hash) {
+                return this;
+            }
+            for (int i = 0; i < leaves.length; i++) {
+                if (Objects.equals(leaves[i].key, key)) {
+                    if (leaves.length == 2) {
+                        return leaves[i ^ 1];
+                    }
+                    Leaf[] next = new Leaf[leaves.length - 1];
+                    System.arraycopy(leaves, 0, next, 0, i);
+                    System.arraycopy(leaves, i + 1, next, i, leaves.length - i - 1);
+                    return new CollisionNode(hash, next);
+                }
+            }
+            return this;
+        }
+    }
+
+    /* a depth-first walk over the slots of every node
+     * */
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+        private final Deque<Object[]> nodes = new ArrayDeque<>();
+        private final Deque<int[]> positions = new ArrayDeque<>();
+        private Leaf next;
+
+        EntryIterator(BitmapNode root) {
+            push(root.slots);
+            advance();
+        }
+
+        private void push(Object[] slots) {
+            nodes.push(slots);
+            positions.push(new int[]{0});
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && !nodes.isEmpty()) {
+                Object[] slots = nodes.peek();
+                int[] position = positions.peek();
+                if (position[0] == slots.length) {
+                    nodes.pop();
+                    positions.pop();
+                    continue;
+                }
+                Object slot = slots[position[0]++];
+                if (slot instanceof Leaf) {
+                    next = (Leaf) slot;
+                } else if (slot instanceof BitmapNode) {
+                    push(((BitmapNode) slot).slots);
+                } else {
+                    push(((CollisionNode) slot).leaves);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Leaf current = next;
+            advance();
+            return (Entry<K, V>) (Entry<?, ?>) current;
+        }
+    }
+
+}
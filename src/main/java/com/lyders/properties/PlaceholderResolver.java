@@ -0,0 +1,32 @@
+package com.lyders.properties;
+
+/**
+ * Supplies the values of the "${source:name}" placeholders of one source, e.g., "env" for "${env:HOME}".
+ * <p>
+ * The resolvers configured via {@link ApplicationPropertiesConfig#setPlaceholderResolvers} are asked in order, and the
+ * first one for the placeholder's source that returns a value wins. Unless {@link #isCached()} is false, each answer is
+ * remembered until it is invalidated (see {@link ApplicationProperties#invalidateChangedSystemValues}), so a name used by
+ * thousands of values is only looked up once. A placeholder whose source has no resolver at all is left as it is.
+ */
+public interface PlaceholderResolver {
+
+    /* the word in front of the ':' of the placeholders this resolver supplies, e.g., "env"
+     * */
+    String getSource();
+
+    /* the value of the given name, or null to let the next resolver for the same source answer
+     * */
+    String resolve(String name);
+
+    /**
+     * whether the answers of this resolver are remembered until they are invalidated, which is worth it for a lookup
+     * that is costly (e.g., reading a file); the built-in env and prop resolvers are asked every time instead, so that
+     * a value evaluated after a changed system property (e.g., after a reload) sees the change
+     *
+     * @return true unless this resolver is cheap enough to ask every time
+     */
+    default boolean isCached() {
+        return true;
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.lyders.properties;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* the configured PlaceholderResolvers grouped by source, each with the answers it has given so far unless it is cheap
+ * enough to ask every time (see PlaceholderResolver.isCached()).
+ *
+ * Only values are remembered: a null answer is asked again next time since it either falls through to the next
+ * resolver or fails the evaluation, and a caller that fixes a missing value expects the next get() to see it.
+ * */
+final class PlaceholderResolverChain {
+
+    private final Map<String, List<Memo>> bySource;
+
+    PlaceholderResolverChain(List<PlaceholderResolver> resolvers) {
+        Map<String, List<Memo>> bySource = new HashMap<>();
+        for (PlaceholderResolver resolver : resolvers != null ? resolvers : PlaceholderResolvers.defaults()) {
+            bySource.computeIfAbsent(resolver.getSource(), s -> new ArrayList<>()).add(new Memo(resolver));
+        }
+        this.bySource = bySource;
+    }
+
+    boolean hasSource(String source) {
+        return bySource.containsKey(source);
+    }
+
+    /* the first value any resolver of the given source has for the given name, or null
+     * */
+    String resolve(String source, String name) {
+        for (Memo memo : bySource.getOrDefault(source, Collections.emptyList())) {
+            if (memo.values == null) {
+                String value = memo.resolver.resolve(name);
+                if (value != null) {
+                    return value;
+                }
+                continue;
+            }
+            String value = memo.values.get(name);
+            if (value == null) {
+                value = memo.resolver.resolve(name);
+                if (value == null) {
+                    continue;
+                }
+                memo.values.put(name, value);
+            }
+            return value;
+        }
+        return null;
+    }
+
+    /* forget the remembered value of the given name of the given source
+     * */
+    void invalidate(String source, String name) {
+        for (Memo memo : bySource.getOrDefault(source, Collections.emptyList())) {
+            if (memo.values != null) {
+                memo.values.remove(name);
+            }
+        }
+    }
+
+    void invalidateAll() {
+        for (List<Memo> memos : bySource.values()) {
+            for (Memo memo : memos) {
+                if (memo.values != null) {
+                    memo.values.clear();
+                }
+            }
+        }
+    }
+
+    private static final class Memo {
+        private final PlaceholderResolver resolver;
+        // null if the resolver is asked every time
+        private final Map<String, String> values;
+
+        Memo(PlaceholderResolver resolver) {
+            this.resolver = resolver;
+            this.values = resolver.isCached() ? new ConcurrentHashMap<>() : null;
+        }
+    }
+
+}
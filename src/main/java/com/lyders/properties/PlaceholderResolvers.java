@@ -0,0 +1,117 @@
+package com.lyders.properties;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The built-in {@link PlaceholderResolver}s.
+ * <ul>
+ * <li>"${env:NAME}": an environment variable, read every time a value with it is evaluated</li>
+ * <li>"${prop:NAME}": a system property, read every time a value with it is evaluated</li>
+ * <li>"${file:/run/secrets/db-password}": the content of a file minus one trailing line break, e.g., a mounted secret,
+ * read once and then kept until it is invalidated</li>
+ * <li>"${base64:c2VjcmV0}": the given text decoded from base64 as UTF-8, decoded once</li>
+ * </ul>
+ * An evaluated value is still cached by {@link ApplicationProperties} until {@link ApplicationProperties#invalidateSystemProperty}
+ * or {@link ApplicationProperties#invalidateChangedSystemValues}, or until the properties are reloaded.
+ * Only env and prop are used by default. The file resolver reads any file the process can read, from a value that may
+ * have come from an "http:" or "dir:" source, so it (along with base64) has to be configured explicitly via
+ * {@link ApplicationPropertiesConfig#setPlaceholderResolvers}; a file that doesn't exist then fails get() like any other
+ * placeholder without a value.
+ */
+public final class PlaceholderResolvers {
+
+    public static final String SOURCE_FILE = "file";
+    public static final String SOURCE_BASE64 = "base64";
+
+    private PlaceholderResolvers() {
+    }
+
+    /* the resolvers used when none are configured: env and prop
+     * */
+    public static List<PlaceholderResolver> defaults() {
+        return Arrays.asList(environment(), systemProperties());
+    }
+
+    public static PlaceholderResolver environment() {
+        return of(PropertyTemplate.PROPERTY_SOURCE_ENV, System::getenv, false);
+    }
+
+    /* a copy of the whole environment as it is right now, so that later changes are never seen
+     * */
+    public static PlaceholderResolver environmentSnapshot() {
+        return inMemory(PropertyTemplate.PROPERTY_SOURCE_ENV, new HashMap<>(System.getenv()));
+    }
+
+    public static PlaceholderResolver systemProperties() {
+        return of(PropertyTemplate.PROPERTY_SOURCE_PROP, System::getProperty, false);
+    }
+
+    public static PlaceholderResolver files() {
+        return of(SOURCE_FILE, PlaceholderResolvers::readFile, true);
+    }
+
+    public static PlaceholderResolver base64() {
+        return of(SOURCE_BASE64, encoded -> new String(Base64.getDecoder().decode(encoded), StandardCharsets.UTF_8), true);
+    }
+
+    /* the values of the given map, e.g., so that a test does not depend on the environment it runs in
+     * */
+    public static PlaceholderResolver inMemory(String source, Map<String, String> values) {
+        Map<String, String> copy = Collections.unmodifiableMap(new HashMap<>(values));
+        return of(source, copy::get, false);
+    }
+
+    private static PlaceholderResolver of(String source, Function<String, String> lookup, boolean cached) {
+        return new PlaceholderResolver() {
+            @Override
+            public String getSource() {
+                return source;
+            }
+
+            @Override
+            public String resolve(String name) {
+                return lookup.apply(name);
+            }
+
+            @Override
+            public boolean isCached() {
+                return cached;
+            }
+
+            @Override
+            public String toString() {
+                return String.format("PlaceholderResolver(%s)", source);
+            }
+        };
+    }
+
+    private static String readFile(String path) {
+        String value;
+        try {
+            value = new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Failed to read file '%s': %s", path, e.getMessage()), e);
+        }
+        if (value.endsWith("\r\n")) {
+            return value.substring(0, value.length() - 2);
+        } else if (value.endsWith("\n")) {
+            return value.substring(0, value.length() - 1);
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.lyders.properties;
+
+import java.util.List;
+
+/**
+ * Receives the changes to the properties it subscribed to via {@link ApplicationProperties#subscribe} or
+ * {@link ApplicationProperties#subscribeToPrefix}.
+ * <p>
+ * It is always called on the change executor (see {@link ApplicationPropertiesConfig#setChangeExecutor}), never on the
+ * thread that reloaded a file or called put(), and never by two threads at once. Changes that arrive while it is still
+ * busy, or within the debounce delay, are coalesced into one call with one entry per property, going from the value
+ * before the first change to the value after the last one; a property that ended up back at its old value is left out.
+ */
+public interface PropertiesChangeListener {
+
+    void onChange(List<PropertyChange> changes);
+
+}
@@ -0,0 +1,229 @@
+package com.lyders.properties;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/* writes properties one at a time in one of the ApplicationProperties.ExportFormat formats, so that only the current
+ * entry is ever held in memory, except that ENV also remembers every environment variable name written so far, so it
+ * holds one name per exported property.
+ *
+ * PROPERTIES: "key=value" lines escaped like java.util.Properties.store() does, except that characters outside of
+ * ISO-8859-1 are written as they are since the output is UTF-8 (which is what this library reads properties files as).
+ * JSON: a single flat object with the names as they are. ENV: "NAME=value" lines that sh can source, with every
+ * character of a name that is not a letter or digit turned into '_' and the name upper-cased (e.g., "db.url" becomes
+ * "DB_URL"); a value that is not plain is double-quoted with '\', '"', '$' and '`' escaped. Two names that end up the same
+ * (e.g., "db.url" and "db-url") are both written, so the last one wins when the file is sourced, and logged as a warning.
+ * A null value (which put() allows) is written as an empty value, or as null in JSON.
+ * */
+final class PropertiesExporter {
+
+    private static final Log LOG = LogFactory.getLog(PropertiesExporter.class);
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final Writer out;
+    private final ApplicationProperties.ExportFormat format;
+    // the current entry, reused for every entry
+    private final StringBuilder entry = new StringBuilder(256);
+    private boolean first = true;
+    // ENV only: the name each environment variable name was written for, to find the names that collide; it grows with the
+    // export since colliding names (e.g., "db.url", "db.urls" and "db-url") aren't next to each other in either order
+    private final Map<String, String> envNames;
+
+    PropertiesExporter(Writer out, ApplicationProperties.ExportFormat format) {
+        this.out = out;
+        this.format = format;
+        this.envNames = format == ApplicationProperties.ExportFormat.ENV ? new HashMap<>() : null;
+    }
+
+    void begin() throws IOException {
+        if (format == ApplicationProperties.ExportFormat.JSON) {
+            out.write('{');
+        }
+    }
+
+    void write(String name, String value) throws IOException {
+        entry.setLength(0);
+        switch (format) {
+            case PROPERTIES:
+                appendProperty(name, true);
+                entry.append('=');
+                if (value != null) {
+                    appendProperty(value, false);
+                }
+                entry.append('\n');
+                break;
+            case JSON:
+                entry.append(first ? "\n  " : ",\n  ");
+                appendJson(name);
+                entry.append(": ");
+                if (value != null) {
+                    appendJson(value);
+                } else {
+                    entry.append("null");
+                }
+                break;
+            case ENV:
+                appendEnvName(name);
+                checkEnvName(name);
+                entry.append('=');
+                if (value != null) {
+                    appendEnvValue(value);
+                }
+                entry.append('\n');
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown export format: %s", format));
+        }
+        first = false;
+        out.append(entry);
+    }
+
+    void end() throws IOException {
+        if (format == ApplicationProperties.ExportFormat.JSON) {
+            out.write(first ? "}\n" : "\n}\n");
+        }
+        out.flush();
+    }
+
+    private void appendProperty(String str, boolean isKey) {
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            switch (c) {
+                case ' ':
+                    // a space is only significant in a key, or at the start of a value
+                    if (isKey || i == 0) {
+                        entry.append('\\');
+                    }
+                    entry.append(' ');
+                    break;
+                case '\t':
+                    entry.append("\\t");
+                    break;
+                case '\n':
+                    entry.append("\\n");
+                    break;
+                case '\r':
+                    entry.append("\\r");
+                    break;
+                case '\f':
+                    entry.append("\\f");
+                    break;
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                case '\\':
+                    entry.append('\\').append(c);
+                    break;
+                default:
+                    if (c < 0x20 || c == 0x7F) {
+                        appendUnicodeEscape(c);
+                    } else {
+                        entry.append(c);
+                    }
+            }
+        }
+    }
+
+    private void appendJson(String str) {
+        entry.append('"');
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            switch (c) {
+                case '"':
+                    entry.append("\\\"");
+                    break;
+                case '\\':
+                    entry.append("\\\\");
+                    break;
+                case '\n':
+                    entry.append("\\n");
+                    break;
+                case '\r':
+                    entry.append("\\r");
+                    break;
+                case '\t':
+                    entry.append("\\t");
+                    break;
+                case '\b':
+                    entry.append("\\b");
+                    break;
+                case '\f':
+                    entry.append("\\f");
+                    break;
+                default:
+                    // U+2028 and U+2029 are valid JSON but not valid JavaScript, so they are escaped as well
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        appendUnicodeEscape(c);
+                    } else {
+                        entry.append(c);
+                    }
+            }
+        }
+        entry.append('"');
+    }
+
+    private void appendEnvName(String name) {
+        if (name.isEmpty() || (name.charAt(0) >= '0' && name.charAt(0) <= '9')) {
+            entry.append('_');
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if ((c >= 'a' && c <= 'z')) {
+                entry.append((char) (c - 'a' + 'A'));
+            } else if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                entry.append(c);
+            } else {
+                entry.append('_');
+            }
+        }
+    }
+
+    /* warn about the current entry's environment variable name if an earlier property was written under it already
+     * */
+    private void checkEnvName(String name) {
+        String envName = entry.toString();
+        String previous = envNames.putIfAbsent(envName, name);
+        if (previous != null) {
+            LOG.warn(String.format("Properties '%s' and '%s' are both exported as environment variable %s, so the last one wins", previous, name, envName));
+        }
+    }
+
+    private void appendEnvValue(String value) {
+        if (isPlainEnvValue(value)) {
+            entry.append(value);
+            return;
+        }
+        entry.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"' || c == '$' || c == '`') {
+                entry.append('\\');
+            }
+            entry.append(c);
+        }
+        entry.append('"');
+    }
+
+    private static boolean isPlainEnvValue(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '_' || c == '-' || c == '.' || c == '/' || c == ':' || c == '@' || c == '%' || c == '+' || c == ',')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void appendUnicodeEscape(char c) {
+        entry.append("\\u").append(HEX[(c >> 12) & 0xF]).append(HEX[(c >> 8) & 0xF]).append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+    }
+
+}
@@ -0,0 +1,316 @@
+package com.lyders.properties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BiConsumer;
+
+/**
+ * A purpose-built reader for the {@code .properties} file format that scans the raw bytes of a file instead of going
+ * through a {@link java.io.Reader} into a {@link java.util.Properties} Hashtable.
+ * <p>
+ * Files on the file system are read into a heap buffer with a single {@link FileChannel#read}, and only files of at
+ * least {@link #MAP_THRESHOLD} bytes are memory-mapped via {@link FileChannel#map}: mapping a typical properties file
+ * of a few kilobytes costs more than copying it, and the mapping stays open until the buffer is garbage collected.
+ * Every entry is handed straight to the given sink as soon as it has been parsed. The syntax accepted is
+ * the same as {@link java.util.Properties#load(java.io.Reader)}: comment lines starting with '#' or '!', '=', ':' or
+ * whitespace as the key/value separator, lines continued with a trailing backslash, and the escapes \t, \n, \r, \f and
+ * \\uXXXX. A malformed \\uXXXX escape fails with an IOException that names the file and the line.
+ * <p>
+ * All sources are read with the same charset: UTF-8, falling back to ISO-8859-1 for any key or value that is not valid
+ * UTF-8 (the same rule as {@link java.util.PropertyResourceBundle}). Previously class path files were read as
+ * ISO-8859-1 while file system files were read as UTF-8.
+ */
+final class PropertiesFileParser {
+
+    private static final int INITIAL_LINE_BUFFER_SIZE = 256;
+    // files at least this large are memory-mapped instead of being read into a heap buffer
+    static final int MAP_THRESHOLD = 1 << 20;
+
+    // the file name or URL used in error messages
+    private final String source;
+    private final ByteBuffer buf;
+    private final BiConsumer<String, String> sink;
+    private final CharsetDecoder utf8Decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+    // the current logical line with all of the line continuations already removed
+    private byte[] line = new byte[INITIAL_LINE_BUFFER_SIZE];
+    private int lineLen;
+    // the position the current logical line starts at, to find its line number when it fails to parse
+    private int lineStart;
+
+    private PropertiesFileParser(String source, ByteBuffer buf, BiConsumer<String, String> sink) {
+        this.source = source;
+        this.buf = buf;
+        this.sink = sink;
+    }
+
+    /* read the given file (memory-mapped if it is at least MAP_THRESHOLD bytes) and pass each of its entries to the given
+     * sink in the order they appear in the file, returning the number of bytes parsed
+     * */
+    static int parse(Path file, BiConsumer<String, String> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("Properties file is too large to be read: %s", file));
+            }
+            ByteBuffer buf;
+            if (size >= MAP_THRESHOLD) {
+                buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buf = ByteBuffer.allocate((int) size);
+                while (buf.hasRemaining()) {
+                    if (channel.read(buf) < 0) {
+                        // the file shrank while it was read, so it is parsed up to where it ended
+                        break;
+                    }
+                }
+                buf.flip();
+            }
+            return new PropertiesFileParser(file.toString(), buf, sink).parse();
+        }
+    }
+
+    /* read the given stream of the given file (e.g., a class path resource inside a jar) and pass each of its entries to
+     * the given sink
+     * */
+    static int parse(String source, InputStream in, BiConsumer<String, String> sink) throws IOException {
+        return new PropertiesFileParser(source, ByteBuffer.wrap(in.readAllBytes()), sink).parse();
+    }
+
+    /* pass each entry of the given bytes of the given file to the given sink
+     * */
+    static int parse(String source, ByteBuffer buf, BiConsumer<String, String> sink) throws IOException {
+        return new PropertiesFileParser(source, buf, sink).parse();
+    }
+
+    private int parse() throws IOException {
+        int pos = buf.position();
+        int limit = buf.limit();
+        // skip a UTF-8 byte order mark so that it does not end up as part of the first key
+        if (limit - pos >= 3 && buf.get(pos) == (byte) 0xEF && buf.get(pos + 1) == (byte) 0xBB && buf.get(pos + 2) == (byte) 0xBF) {
+            pos += 3;
+        }
+        while (pos < limit) {
+            pos = readLogicalLine(pos, limit);
+            if (lineLen > 0) {
+                parseLogicalLine();
+            }
+        }
+        return limit - buf.position();
+    }
+
+    /* copy the next logical line starting at the given position into the line buffer, skipping blank lines and comments
+     * and joining continued lines, and return the position just after it
+     * */
+    private int readLogicalLine(int pos, int limit) {
+        lineLen = 0;
+        lineStart = -1;
+        boolean skipWhiteSpace = true;
+        boolean isNewLine = true;
+        boolean appendedLineBegin = false;
+        boolean precedingBackslash = false;
+        boolean skipLF = false;
+
+        while (pos < limit) {
+            byte c = buf.get(pos++);
+            if (skipLF) {
+                skipLF = false;
+                if (c == '\n') {
+                    continue;
+                }
+            }
+            if (skipWhiteSpace) {
+                if (c == ' ' || c == '\t' || c == '\f') {
+                    continue;
+                }
+                if (!appendedLineBegin && (c == '\r' || c == '\n')) {
+                    continue;
+                }
+                skipWhiteSpace = false;
+                appendedLineBegin = false;
+            }
+            if (isNewLine) {
+                isNewLine = false;
+                if (c == '#' || c == '!') {
+                    // a comment runs to the end of its line and is never continued
+                    while (pos < limit) {
+                        c = buf.get(pos++);
+                        if (c == '\n' || c == '\r') {
+                            break;
+                        }
+                    }
+                    isNewLine = true;
+                    skipWhiteSpace = true;
+                    continue;
+                }
+            }
+            if (c != '\n' && c != '\r') {
+                if (lineStart < 0) {
+                    lineStart = pos - 1;
+                }
+                append(c);
+                precedingBackslash = c == '\\' && !precedingBackslash;
+            } else if (precedingBackslash) {
+                // drop the backslash and continue with the next line minus its leading whitespace
+                lineLen--;
+                precedingBackslash = false;
+                skipWhiteSpace = true;
+                appendedLineBegin = true;
+                skipLF = c == '\r';
+            } else {
+                if (c == '\r' && pos < limit && buf.get(pos) == '\n') {
+                    pos++;
+                }
+                return pos;
+            }
+        }
+        if (precedingBackslash) {
+            lineLen--;
+        }
+        return pos;
+    }
+
+    private void append(byte c) {
+        if (lineLen == line.length) {
+            byte[] grown = new byte[line.length * 2];
+            System.arraycopy(line, 0, grown, 0, lineLen);
+            line = grown;
+        }
+        line[lineLen++] = c;
+    }
+
+    /* split the current logical line into its key and value and pass them to the sink
+     * */
+    private void parseLogicalLine() throws IOException {
+        int keyLen = 0;
+        int valueStart = lineLen;
+        boolean hasSep = false;
+        boolean precedingBackslash = false;
+        while (keyLen < lineLen) {
+            byte c = line[keyLen];
+            if ((c == '=' || c == ':') && !precedingBackslash) {
+                valueStart = keyLen + 1;
+                hasSep = true;
+                break;
+            } else if ((c == ' ' || c == '\t' || c == '\f') && !precedingBackslash) {
+                valueStart = keyLen + 1;
+                break;
+            }
+            precedingBackslash = c == '\\' && !precedingBackslash;
+            keyLen++;
+        }
+        while (valueStart < lineLen) {
+            byte c = line[valueStart];
+            if (c != ' ' && c != '\t' && c != '\f') {
+                if (!hasSep && (c == '=' || c == ':')) {
+                    hasSep = true;
+                } else {
+                    break;
+                }
+            }
+            valueStart++;
+        }
+        String key;
+        String value;
+        try {
+            key = convert(0, keyLen);
+            value = convert(valueStart, lineLen - valueStart);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(String.format("Invalid properties file %s at line %d: %s", source, lineNumber(), e.getMessage()), e);
+        }
+        sink.accept(key, value);
+    }
+
+    /* the line number the current logical line starts at, counting "\r\n", "\n" and "\r" as one line break each
+     * */
+    private int lineNumber() {
+        int number = 1;
+        for (int pos = buf.position(); pos < lineStart; pos++) {
+            byte c = buf.get(pos);
+            if (c == '\n' || (c == '\r' && buf.get(pos + 1) != '\n')) {
+                number++;
+            }
+        }
+        return number;
+    }
+
+    /* turn the given part of the line buffer into a String, decoding the charset and any escapes
+     * */
+    private String convert(int off, int len) {
+        boolean ascii = true;
+        boolean escaped = false;
+        for (int i = off; i < off + len; i++) {
+            byte b = line[i];
+            if (b < 0) {
+                ascii = false;
+            } else if (b == '\\') {
+                escaped = true;
+            }
+        }
+        String str = ascii ? new String(line, off, len, StandardCharsets.ISO_8859_1) : decode(off, len);
+        return escaped ? unescape(str) : str;
+    }
+
+    private String decode(int off, int len) {
+        try {
+            CharBuffer chars = utf8Decoder.decode(ByteBuffer.wrap(line, off, len));
+            return chars.toString();
+        } catch (CharacterCodingException e) {
+            return new String(line, off, len, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private static String unescape(String str) {
+        int len = str.length();
+        StringBuilder out = new StringBuilder(len);
+        int i = 0;
+        while (i < len) {
+            char c = str.charAt(i++);
+            if (c != '\\') {
+                out.append(c);
+                continue;
+            }
+            if (i >= len) {
+                break;
+            }
+            c = str.charAt(i++);
+            if (c == 'u') {
+                if (i + 4 > len) {
+                    throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                }
+                int value = 0;
+                for (int j = 0; j < 4; j++) {
+                    int digit = Character.digit(str.charAt(i++), 16);
+                    if (digit < 0) {
+                        throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                    }
+                    value = (value << 4) | digit;
+                }
+                out.append((char) value);
+            } else if (c == 't') {
+                out.append('\t');
+            } else if (c == 'r') {
+                out.append('\r');
+            } else if (c == 'n') {
+                out.append('\n');
+            } else if (c == 'f') {
+                out.append('\f');
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+}
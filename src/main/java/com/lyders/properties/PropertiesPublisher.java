@@ -0,0 +1,142 @@
+package com.lyders.properties;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/* builds the views of the merged properties of an ApplicationProperties and publishes them to get() as a whole, and
+ * keeps the changes made through the Map methods so that a reloaded file doesn't undo them.
+ *
+ * The merged properties are the map the loaders and the Map methods write to; a view is built from them either
+ * incrementally from the previous view, when the only names that can have changed are known, or from all of them. Views
+ * are read without locking, while publishing is guarded by the ApplicationProperties that owns the publisher.
+ * */
+final class PropertiesPublisher {
+
+    /* evaluates every value of a view before it is published, see PreResolveValues=YES
+     * */
+    @FunctionalInterface
+    interface PreResolver {
+        Map<String, String> preResolve(PropertiesView next, PropertiesView previous, Set<String> stale, List<PropertyEvaluatorException> errors);
+    }
+
+    /* told about each view right after it was published, e.g., to write it to a shared segment or to deliver its changes
+     * to the subscriptions
+     * */
+    @FunctionalInterface
+    interface PublishListener {
+        void onPublished(PropertiesView previous, PropertiesView next, Collection<String> changedKeys);
+    }
+
+    private final Map<String, String> merged;
+    private final int maxCacheSize;
+    // WatchSourcesForChanges=YES: keep the changes made through the Map methods to apply them again after a reload
+    private final boolean keepWrites;
+    // null unless PreResolveValues=YES
+    private final PreResolver preResolver;
+    private final PublishListener listener;
+
+    private volatile PropertiesView view = new PropertiesView(new HashMap<>());
+    // only when keepWrites: the values set and the names removed through the Map methods
+    private Map<String, String> writtenValues;
+    private Set<String> removedKeys;
+
+    PropertiesPublisher(Map<String, String> merged, int maxCacheSize, boolean keepWrites, PreResolver preResolver, PublishListener listener) {
+        this.merged = merged;
+        this.maxCacheSize = maxCacheSize;
+        this.keepWrites = keepWrites;
+        this.preResolver = preResolver;
+        this.listener = listener;
+    }
+
+    /* the view get() reads, i.e., the latest published one
+     * */
+    PropertiesView getView() {
+        return view;
+    }
+
+    /* publish the given view as it is, e.g., one of a shared segment or one resolved again after its environment
+     * variables or system properties were invalidated
+     * */
+    void setView(PropertiesView next) {
+        view = next;
+    }
+
+    /* publish all of the merged properties, which also drops every value that was cached from the previous ones. With
+     * PreResolveValues=YES every value is resolved before it is published, and the values that failed are returned;
+     * they are left out of the pre-resolved values so that get() evaluates them (and throws) as usual.
+     * */
+    List<PropertyEvaluatorException> publish() {
+        return publish(null);
+    }
+
+    /* publish the merged properties, given the only names that can have changed since the previous view, or null if
+     * any of them can have
+     * */
+    List<PropertyEvaluatorException> publish(Collection<String> changedKeys) {
+        PropertiesView previous = view;
+        PropertiesView next = new PropertiesView(nextValues(previous, changedKeys), previous, maxCacheSize, changedKeys);
+        List<PropertyEvaluatorException> errors = new ArrayList<>();
+        if (preResolver != null) {
+            Set<String> stale = changedKeys != null ? next.getReferences().dependentsOf(changedKeys) : null;
+            next = next.withResolved(preResolver.preResolve(next, previous, stale, errors));
+        }
+        view = next;
+        listener.onPublished(previous, next, changedKeys);
+        return errors;
+    }
+
+    /* publish the given properties a Map method changed in the merged properties; when keeping writes, they are also
+     * remembered so that a reloaded file doesn't undo them
+     * */
+    List<PropertyEvaluatorException> publishWrites(Collection<String> changedKeys) {
+        if (keepWrites) {
+            if (writtenValues == null) {
+                writtenValues = new HashMap<>();
+                removedKeys = new HashSet<>();
+            }
+            for (String key : changedKeys) {
+                if (merged.containsKey(key)) {
+                    writtenValues.put(key, merged.get(key));
+                    removedKeys.remove(key);
+                } else {
+                    writtenValues.remove(key);
+                    removedKeys.add(key);
+                }
+            }
+        }
+        return publish(changedKeys);
+    }
+
+    /* publish the merged properties after they were merged again from the reloaded files, with the changes made through
+     * the Map methods applied on top of them
+     * */
+    List<PropertyEvaluatorException> publishReloaded() {
+        if (writtenValues != null) {
+            for (String key : removedKeys) {
+                merged.remove(key);
+            }
+            merged.putAll(writtenValues);
+        }
+        return publish();
+    }
+
+    /* the values of the next view: the values of the previous view with only the changed names updated when those are
+     * known, so that a put() doesn't copy every property, and a copy of all of the merged properties otherwise
+     * */
+    private PersistentMap<String, String> nextValues(PropertiesView previous, Collection<String> changedKeys) {
+        if (changedKeys == null || !(previous.getValues() instanceof PersistentMap)) {
+            return PersistentMap.ofEntries(merged.entrySet());
+        }
+        PersistentMap<String, String> values = (PersistentMap<String, String>) previous.getValues();
+        for (String key : changedKeys) {
+            values = merged.containsKey(key) ? values.with(key, merged.get(key)) : values.without(key);
+        }
+        return values;
+    }
+
+}
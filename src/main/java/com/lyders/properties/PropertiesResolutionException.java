@@ -0,0 +1,24 @@
+package com.lyders.properties;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Thrown by the {@link ApplicationProperties} constructor when PreResolveValues=YES and one or more values could not be
+ * evaluated. Every failure is collected so that they can all be fixed at once.
+ */
+public class PropertiesResolutionException extends IllegalStateException {
+
+    private final List<PropertyEvaluatorException> errors;
+
+    public PropertiesResolutionException(List<PropertyEvaluatorException> errors) {
+        super(String.format("Failed to resolve %d properties: %s", errors.size(),
+                errors.stream().map(Throwable::getMessage).collect(Collectors.joining("; "))));
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    public List<PropertyEvaluatorException> getErrors() {
+        return errors;
+    }
+}
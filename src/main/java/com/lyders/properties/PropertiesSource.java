@@ -0,0 +1,18 @@
+package com.lyders.properties;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/* a single properties file that was read from one of the configured paths along with the path it was read from
+ * */
+@Data
+class PropertiesSource {
+
+    private final String path;
+    private final ApplicationProperties.PATH_TYPE pathType;
+    private final Map<String, String> properties;
+    // the number of bytes read
+    private final long size;
+
+}
@@ -0,0 +1,13 @@
+package com.lyders.properties;
+
+import java.io.FileNotFoundException;
+
+/* reads one properties file (e.g., the base file or the suffixed file of a single configured path) so that the reads
+ * of all files can be collected up front and then run either one after another or all at the same time
+ * */
+@FunctionalInterface
+interface PropertiesSourceLoader {
+
+    PropertiesSource load() throws FileNotFoundException;
+
+}
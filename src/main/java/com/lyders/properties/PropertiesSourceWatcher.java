@@ -0,0 +1,152 @@
+package com.lyders.properties;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.lyders.properties.ApplicationProperties.PATH_TYPE.DIR_PREFIX;
+import static com.lyders.properties.ApplicationProperties.PATH_TYPE.FILEPATH_PREFIX;
+import static com.lyders.properties.ApplicationProperties.PATH_TYPE.SERVLET_PREFIX;
+
+/* watches the directories of the "file:" and "servlet:" properties files with a WatchService and reports which of the
+ * loaded sources (by their index in the load order) changed, so that only those files have to be read again.
+ *
+ * A "dir:" source is reported when any of its files is created, changed or deleted. When the directory has a "..data"
+ * symlink (a Kubernetes mount), only a new target of that symlink counts, so the intermediate steps of an update are
+ * ignored and the directory is only read again once the swap is complete.
+ * */
+final class PropertiesSourceWatcher implements Closeable {
+
+    private static final Log LOG = LogFactory.getLog(PropertiesSourceWatcher.class);
+
+    // editors and deployment tools usually touch a file several times in a row, so wait this long for more events before reloading
+    static final long COALESCE_MILLIS = 50;
+
+    private final WatchService watchService;
+    private final Map<Path, List<Integer>> sourcesByFile = new HashMap<>();
+    private final Map<Path, List<Integer>> sourcesByDir = new HashMap<>();
+    // the "..data" symlink target of each watched "dir:" directory that has one
+    private final Map<Path, String> dirVersions = new HashMap<>();
+    private final Consumer<Set<Integer>> onChange;
+    private final Thread thread;
+
+    PropertiesSourceWatcher(List<PropertiesSource> sources, Consumer<Set<Integer>> onChange) throws IOException {
+        this.onChange = onChange;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        Set<Path> watchedDirs = new HashSet<>();
+        for (int idx = 0; idx < sources.size(); idx++) {
+            PropertiesSource source = sources.get(idx);
+            if (source.getPathType() == DIR_PREFIX) {
+                Path dir = Paths.get(source.getPath()).toAbsolutePath().normalize();
+                sourcesByDir.computeIfAbsent(dir, d -> new ArrayList<>()).add(idx);
+                dirVersions.put(dir, DirectorySourceLoader.version(dir));
+                continue;
+            }
+            if (source.getPathType() != FILEPATH_PREFIX && source.getPathType() != SERVLET_PREFIX) {
+                continue;
+            }
+            Path file = Paths.get(source.getPath()).toAbsolutePath().normalize();
+            sourcesByFile.computeIfAbsent(file, f -> new ArrayList<>()).add(idx);
+            Path dir = file.getParent();
+            if (watchedDirs.add(dir)) {
+                dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+        for (Path dir : sourcesByDir.keySet()) {
+            // registering a directory again replaces the kinds of events it was registered for, so these include the ones above
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        }
+        thread = new Thread(this::run, "ApplicationProperties-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    boolean isWatching() {
+        return !sourcesByFile.isEmpty() || !sourcesByDir.isEmpty();
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Integer> changed = new TreeSet<>();
+                collectChanges(watchService.take(), changed);
+                WatchKey key;
+                while ((key = watchService.poll(COALESCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    collectChanges(key, changed);
+                }
+                if (!changed.isEmpty()) {
+                    try {
+                        onChange.accept(changed);
+                    } catch (RuntimeException | InternalError e) {
+                        // keep watching, the next change will be reloaded again
+                        LOG.warn(String.format("Failed to reload changed properties files: %s", e.getMessage()), e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private void collectChanges(WatchKey key, Set<Integer> changed) {
+        Path dir = (Path) key.watchable();
+        List<Integer> dirIdxs = sourcesByDir.get(dir);
+        boolean dirTouched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (dirIdxs != null && (event.kind() == StandardWatchEventKinds.OVERFLOW || !DirectorySourceLoader.isHidden((Path) event.context())
+                    || dirVersions.get(dir) != null)) {
+                dirTouched = true;
+            }
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // some events were lost, so re-read every file in this directory
+                sourcesByFile.forEach((file, idxs) -> {
+                    if (file.getParent().equals(dir)) {
+                        changed.addAll(idxs);
+                    }
+                });
+                continue;
+            }
+            List<Integer> idxs = sourcesByFile.get(dir.resolve((Path) event.context()));
+            if (idxs != null) {
+                changed.addAll(idxs);
+            }
+        }
+        if (dirTouched && hasDirChanged(dir)) {
+            changed.addAll(dirIdxs);
+        }
+        key.reset();
+    }
+
+    /* whether a "dir:" directory changed: always when it has no "..data" symlink, since one of its files did, and
+     * otherwise only when the symlink points somewhere new
+     * */
+    private boolean hasDirChanged(Path dir) {
+        String previous = dirVersions.get(dir);
+        String current = DirectorySourceLoader.version(dir);
+        dirVersions.put(dir, current);
+        return previous == null || !previous.equals(current);
+    }
+
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        watchService.close();
+    }
+
+}
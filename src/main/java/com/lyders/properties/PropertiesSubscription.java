@@ -0,0 +1,129 @@
+package com.lyders.properties;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A listener subscribed to one property or to every property below a prefix; close it to stop receiving changes.
+ * <p>
+ * Each subscription queues its own changes and delivers them with its own task on the change executor, so a slow
+ * listener only delays itself.
+ */
+public final class PropertiesSubscription implements AutoCloseable {
+
+    private static final Log LOG = LogFactory.getLog(PropertiesSubscription.class);
+
+    private final String key;
+    private final boolean prefix;
+    private final PropertiesChangeListener listener;
+    private final Executor executor;
+    private final PropertiesSubscriptions owner;
+
+    // the changes not delivered yet, coalesced per property; guarded by this
+    private final Map<String, PropertyChange> pending = new LinkedHashMap<>();
+    // true from the moment a delivery is handed to the executor until the listener returned with nothing left pending
+    private boolean scheduled;
+    private volatile boolean closed;
+
+    PropertiesSubscription(String key, boolean prefix, PropertiesChangeListener listener, Executor executor, long debounceMillis, PropertiesSubscriptions owner) {
+        this.key = key;
+        this.prefix = prefix;
+        this.listener = listener;
+        this.executor = debounceMillis > 0 ? CompletableFuture.delayedExecutor(debounceMillis, TimeUnit.MILLISECONDS, executor) : executor;
+        this.owner = owner;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    boolean isPrefix() {
+        return prefix;
+    }
+
+    boolean matches(String propertyName) {
+        return prefix ? propertyName.startsWith(key) : propertyName.equals(key);
+    }
+
+    /* queue the given changes, which must all match this subscription, and schedule their delivery
+     * */
+    void offer(List<PropertyChange> changes) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            for (PropertyChange change : changes) {
+                PropertyChange earlier = pending.get(change.getPropertyName());
+                PropertyChange merged = earlier == null ? change : new PropertyChange(change.getPropertyName(), earlier.getOldValue(), change.getNewValue());
+                if (Objects.equals(merged.getOldValue(), merged.getNewValue())) {
+                    pending.remove(merged.getPropertyName());
+                } else {
+                    pending.put(merged.getPropertyName(), merged);
+                }
+            }
+            if (scheduled || pending.isEmpty()) {
+                return;
+            }
+            scheduled = true;
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(this::deliver);
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                scheduled = false;
+            }
+            LOG.warn(String.format("Failed to schedule the delivery of property changes for '%s': %s", key, e.getMessage()));
+        }
+    }
+
+    private void deliver() {
+        List<PropertyChange> changes;
+        synchronized (this) {
+            changes = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        if (!changes.isEmpty() && !closed) {
+            try {
+                listener.onChange(changes);
+            } catch (RuntimeException e) {
+                LOG.warn(String.format("Property change listener for '%s' failed: %s", key, e.getMessage()), e);
+            }
+        }
+        synchronized (this) {
+            if (pending.isEmpty() || closed) {
+                scheduled = false;
+                return;
+            }
+        }
+        // more changes arrived while the listener was busy
+        schedule();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            pending.clear();
+        }
+        owner.remove(this);
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.lyders.properties;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* the change subscriptions of one ApplicationProperties instance. Each time a view is published, the values that
+ * changed are found by comparing it with the previous view (only the names that were put or removed when those are
+ * known, only the subscribed names when there are no prefix subscriptions, and every name otherwise) and handed to the
+ * subscriptions that match them.
+ * */
+final class PropertiesSubscriptions {
+
+    /* a thread per busy subscription, so that a listener that blocks never delays another one; the common fork-join pool
+     * can have as few as one thread (e.g., in a container with two CPUs) and is shared with pre-resolving and loading
+     * */
+    private static final class DefaultExecutor {
+        private static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            AtomicInteger threadCount = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "application-properties-changes-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private final Map<String, List<PropertiesSubscription>> byKey = new ConcurrentHashMap<>();
+    private final List<PropertiesSubscription> byPrefix = new CopyOnWriteArrayList<>();
+
+    static Executor defaultExecutor() {
+        return DefaultExecutor.INSTANCE;
+    }
+
+    void add(PropertiesSubscription subscription) {
+        if (subscription.isPrefix()) {
+            byPrefix.add(subscription);
+        } else {
+            byKey.computeIfAbsent(subscription.getKey(), k -> new CopyOnWriteArrayList<>()).add(subscription);
+        }
+    }
+
+    void remove(PropertiesSubscription subscription) {
+        if (subscription.isPrefix()) {
+            byPrefix.remove(subscription);
+        } else {
+            byKey.computeIfPresent(subscription.getKey(), (k, subscriptions) -> {
+                subscriptions.remove(subscription);
+                return subscriptions.isEmpty() ? null : subscriptions;
+            });
+        }
+    }
+
+    boolean isEmpty() {
+        return byKey.isEmpty() && byPrefix.isEmpty();
+    }
+
+    /* hand every change between the two given values to the subscriptions it matches; changedKeys are the only names
+     * that can have changed, or null if any of them can have
+     * */
+    void publish(Map<String, String> previous, Map<String, String> next, Collection<String> changedKeys) {
+        Collection<String> candidates = changedKeys;
+        if (candidates == null) {
+            candidates = byPrefix.isEmpty() ? byKey.keySet() : allKeys(previous, next);
+        }
+        Map<PropertiesSubscription, List<PropertyChange>> matched = new LinkedHashMap<>();
+        for (String key : candidates) {
+            String oldValue = previous.get(key);
+            String newValue = next.get(key);
+            if (Objects.equals(oldValue, newValue)) {
+                continue;
+            }
+            PropertyChange change = new PropertyChange(key, oldValue, newValue);
+            for (PropertiesSubscription subscription : byKey.getOrDefault(key, Collections.emptyList())) {
+                matched.computeIfAbsent(subscription, s -> new ArrayList<>()).add(change);
+            }
+            for (PropertiesSubscription subscription : byPrefix) {
+                if (subscription.matches(key)) {
+                    matched.computeIfAbsent(subscription, s -> new ArrayList<>()).add(change);
+                }
+            }
+        }
+        matched.forEach(PropertiesSubscription::offer);
+    }
+
+    private static Collection<String> allKeys(Map<String, String> previous, Map<String, String> next) {
+        List<String> keys = new ArrayList<>(next.keySet());
+        for (String key : previous.keySet()) {
+            if (!next.containsKey(key)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+}
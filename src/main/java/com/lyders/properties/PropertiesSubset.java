@@ -0,0 +1,67 @@
+package com.lyders.properties;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/* a read-only, live view of the properties below a dotted prefix with the prefix removed from their names, as returned
+ * by ApplicationProperties.subset(). Every call reads the view that is current at the time, so later reloads and puts
+ * show up in it; an iteration stays on the view it started with.
+ * */
+final class PropertiesSubset extends AbstractMap<String, String> {
+
+    private final Supplier<PropertiesView> views;
+    private final String prefix;
+
+    PropertiesSubset(Supplier<PropertiesView> views, String prefix) {
+        this.views = views;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public String get(Object key) {
+        return key instanceof String ? views.get().getValues().get(prefix + key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && views.get().getValues().containsKey(prefix + key);
+    }
+
+    @Override
+    public int size() {
+        return views.get().countWithPrefix(prefix);
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                PropertiesView view = views.get();
+                Iterator<String> keys = view.keysWithPrefix(prefix).iterator();
+                return new Iterator<Entry<String, String>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return keys.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        String key = keys.next();
+                        return new SimpleImmutableEntry<>(key.substring(prefix.length()), view.getValues().get(key));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return PropertiesSubset.this.size();
+            }
+        };
+    }
+
+}
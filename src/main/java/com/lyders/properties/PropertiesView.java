@@ -0,0 +1,222 @@
+package com.lyders.properties;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* an immutable view of the merged properties together with the cache of the values resolved from them. A new view is
+ * published as a whole whenever the properties change so that a reader never sees a half-merged map or a value that was
+ * cached from an older map.
+ *
+ * Reads never lock: the values are never changed once published and the cache's lookups are lock-free. A value that is
+ * resolved by two threads at the same time is simply resolved twice, which is fine since resolving the same view gives
+ * the same result.
+ *
+ * The values and templates are persistent maps, so that the view published after a put() shares everything but the
+ * changed names with the previous one instead of copying every property.
+ * */
+final class PropertiesView {
+
+    private final Map<String, String> values;
+    // every value that contains placeholders, compiled once when the view is published; for a shared segment, only the
+    // values that were resolved so far, each compiled the first time it is resolved instead of every value up front
+    private final Map<String, PropertyTemplate> templates;
+    // which properties reference which others; built when the view is published, null for a shared segment
+    private final ReferenceGraph references;
+    // for a shared segment: the cycle each resolved property with references is on, or NO_CYCLE
+    private final ConcurrentHashMap<String, String> cycles;
+    private final ResolutionCache cache;
+    // when PreResolveValues=YES: every non-empty value already evaluated and decoded, as returned by get(name)
+    private final Map<String, String> resolved;
+    // the pre-resolved values parsed by the typed getters, each parsed on first use so that publishing doesn't pay for it
+    private final ConcurrentHashMap<String, ResolutionCache.TypedValue> resolvedTyped;
+    // the names in sorted order for the prefix lookups: sorted when the properties are loaded, and then updated from the
+    // index of the previous view for only the changed names; null for a shared segment, whose entries are sorted already
+    private final KeyIndex.Chunked keyIndex;
+    // the shared segment the values are read from, or null if they are on the heap
+    private final SharedConfigSegment segment;
+
+    private static final String NO_CYCLE = "";
+
+    PropertiesView(Map<String, String> values) {
+        this(values, null, ResolutionCache.DEFAULT_MAX_SIZE, null);
+    }
+
+    /* publish the given values, reusing the compiled templates of the previous view for every value that did not change.
+     * When the only names that can have changed are known, only their values are compiled again and only their part of
+     * the reference graph is rebuilt, and every value the previous view cached for a property that neither is one of them
+     * nor references one of them is kept as well.
+     * */
+    PropertiesView(Map<String, String> values, PropertiesView previous, int maxCacheSize, Collection<String> changedKeys) {
+        this.values = PersistentMap.of(values);
+        if (previous != null && previous.templates instanceof PersistentMap && changedKeys != null) {
+            PersistentMap<String, PropertyTemplate> compiled = (PersistentMap<String, PropertyTemplate>) previous.templates;
+            Map<String, PropertyTemplate> changed = new HashMap<>();
+            for (String name : changedKeys) {
+                PropertyTemplate template = PropertyTemplate.compile(values.get(name));
+                compiled = template != null ? compiled.with(name, template) : compiled.without(name);
+                changed.put(name, template);
+            }
+            this.templates = compiled;
+            this.references = previous.references.withChanged(changed);
+            this.keyIndex = previous.keyIndex.withChanged(changedKeys, this.values);
+        } else {
+            Map<String, PropertyTemplate> compiled = new HashMap<>();
+            values.forEach((name, value) -> {
+                PropertyTemplate template = previous != null ? previous.templates.get(name) : null;
+                if (template == null || !template.getValue().equals(value)) {
+                    template = PropertyTemplate.compile(value);
+                }
+                if (template != null) {
+                    compiled.put(name, template);
+                }
+            });
+            this.templates = PersistentMap.of(compiled);
+            this.references = ReferenceGraph.of(compiled);
+            this.keyIndex = (KeyIndex.Chunked) KeyIndex.of(values.keySet());
+        }
+        this.cache = new ResolutionCache(maxCacheSize, previous != null ? previous.cache : null);
+        if (previous != null && changedKeys != null) {
+            cache.retainFrom(previous.cache, references.dependentsOf(changedKeys));
+        }
+        this.segment = null;
+        this.cycles = null;
+        this.resolved = null;
+        this.resolvedTyped = null;
+    }
+
+    private PropertiesView(SharedConfigSegment segment, Map<String, String> values, ResolutionCache cache) {
+        this.values = values;
+        this.templates = new ConcurrentHashMap<>();
+        this.references = null;
+        this.cycles = new ConcurrentHashMap<>();
+        this.keyIndex = null;
+        this.segment = segment;
+        this.cache = cache;
+        this.resolved = null;
+        this.resolvedTyped = null;
+    }
+
+    /* a view of values that are read from the given shared segment on every lookup
+     * */
+    static PropertiesView ofSharedSegment(SharedConfigSegment segment, PropertiesView previous, int maxCacheSize) {
+        return new PropertiesView(segment, previous != null ? previous.values : segment.asMap(), new ResolutionCache(maxCacheSize, previous != null ? previous.cache : null));
+    }
+
+    private PropertiesView(PropertiesView view, Map<String, String> resolved) {
+        this.values = view.values;
+        this.templates = view.templates;
+        this.references = view.references;
+        this.cycles = view.cycles;
+        this.cache = view.cache;
+        this.resolved = PersistentMap.of(resolved);
+        this.resolvedTyped = new ConcurrentHashMap<>();
+        this.keyIndex = view.keyIndex;
+        this.segment = view.segment;
+        if (view.resolvedTyped != null) {
+            // the same view resolved again, e.g., after an environment variable changed: keep what is still the same
+            view.resolvedTyped.forEach((name, typed) -> {
+                if (typed.getValue().equals(resolved.get(name))) {
+                    resolvedTyped.put(name, typed);
+                }
+            });
+        }
+    }
+
+    /* the same view with the given pre-resolved values
+     * */
+    PropertiesView withResolved(Map<String, String> resolved) {
+        return new PropertiesView(this, resolved);
+    }
+
+    Map<String, String> getValues() {
+        return values;
+    }
+
+    /* the compiled template of the given property, or null if its value has no placeholders; for a shared segment,
+     * compiled the first time it is asked for
+     * */
+    PropertyTemplate getTemplate(String propertyName) {
+        PropertyTemplate template = templates.get(propertyName);
+        if (template == null && segment != null) {
+            template = PropertyTemplate.compile(values.get(propertyName));
+            if (template != null) {
+                PropertyTemplate existing = templates.putIfAbsent(propertyName, template);
+                return existing != null ? existing : template;
+            }
+        }
+        return template;
+    }
+
+    /* which properties reference which others; for a shared segment, only among the properties resolved so far, which
+     * is enough to find the cached values that depend on a cached value since each of them was resolved through the
+     * properties it references
+     * */
+    ReferenceGraph getReferences() {
+        return references != null ? references : ReferenceGraph.of(new HashMap<>(templates));
+    }
+
+    /* the cycle the given property is on, e.g., "a -> b -> a", or null if it is not on any; for a shared segment, found
+     * by following the references of only the given property and compiling only the values it reaches
+     * */
+    String cycleOf(String propertyName) {
+        if (references != null) {
+            return references.cycleOf(propertyName);
+        }
+        String cycle = cycles.get(propertyName);
+        if (cycle == null) {
+            cycle = ReferenceGraph.cycleThrough(propertyName, name -> {
+                PropertyTemplate template = getTemplate(name);
+                return template != null && template.hasReferences() ? template.getReferences() : null;
+            });
+            cycles.putIfAbsent(propertyName, cycle != null ? cycle : NO_CYCLE);
+        }
+        return cycle != null && !cycle.isEmpty() ? cycle : null;
+    }
+
+    ResolutionCache getCache() {
+        return cache;
+    }
+
+    /* the names that start with the given prefix, in sorted order; for a shared segment, read from the segment's
+     * sorted entries without copying any of the other names
+     * */
+    List<String> keysWithPrefix(String prefix) {
+        return segment != null ? segment.keysWithPrefix(prefix) : keyIndex.keysWithPrefix(prefix);
+    }
+
+    int countWithPrefix(String prefix) {
+        return segment != null ? segment.countWithPrefix(prefix) : keyIndex.countWithPrefix(prefix);
+    }
+
+    Set<String> childKeys(String dottedPrefix) {
+        return segment != null ? segment.childKeys(dottedPrefix) : keyIndex.childKeys(dottedPrefix);
+    }
+
+    /* the pre-resolved values, or null unless PreResolveValues=YES
+     * */
+    Map<String, String> getResolved() {
+        return resolved;
+    }
+
+    /* the parsed primitive forms of the given pre-resolved value, or null if it is not one of them
+     * */
+    ResolutionCache.TypedValue getResolvedTypedValue(String propertyName) {
+        if (resolved == null) {
+            return null;
+        }
+        ResolutionCache.TypedValue typed = resolvedTyped.get(propertyName);
+        if (typed == null) {
+            String value = resolved.get(propertyName);
+            if (value == null) {
+                return null;
+            }
+            typed = resolvedTyped.computeIfAbsent(propertyName, name -> new ResolutionCache.TypedValue(value));
+        }
+        return typed;
+    }
+
+}
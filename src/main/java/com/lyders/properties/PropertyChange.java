@@ -0,0 +1,15 @@
+package com.lyders.properties;
+
+import lombok.Data;
+
+/* the unevaluated value of a property before and after a change; null when the property did not exist before the
+ * change or no longer exists after it
+ * */
+@Data
+public class PropertyChange {
+
+    private final String propertyName;
+    private final String oldValue;
+    private final String newValue;
+
+}
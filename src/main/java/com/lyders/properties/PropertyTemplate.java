@@ -0,0 +1,260 @@
+package com.lyders.properties;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A property value that has been split once into its literal text and its "${source:NAME}" placeholders so that
+ * evaluating it is a single pass through a StringBuilder instead of a regex search and a String.replace of the whole
+ * value per placeholder.
+ * <p>
+ * A word in front of the ':' that contains "env" or "prop" names that source (the last one wins), as the regex
+ * "\$\{\w*(env|prop)\w*:(.*?)\}" did; any other word, e.g., "file", is the source as it is. The name runs up to the next
+ * '}' on the same line. A placeholder with an empty name, or whose source has no {@link PlaceholderResolver}, is kept
+ * as literal text. Values substituted for placeholders are not evaluated again.
+ * <p>
+ * A placeholder without a ':', e.g., "${db.host}", is a reference to another property and is replaced with that
+ * property's evaluated value (see {@link ReferenceGraph}), or kept as literal text if that property is not set.
+ */
+final class PropertyTemplate {
+
+    private static final Log LOG = LogFactory.getLog(PropertyTemplate.class);
+
+    static final String PROPERTY_SOURCE_ENV = "env";
+    static final String PROPERTY_SOURCE_PROP = "prop";
+
+    private final String value;
+    // literals[i] comes before placeholders[i]; the last literal comes after the last placeholder
+    private final String[] literals;
+    private final Placeholder[] placeholders;
+
+    private PropertyTemplate(String value, String[] literals, Placeholder[] placeholders) {
+        this.value = value;
+        this.literals = literals;
+        this.placeholders = placeholders;
+    }
+
+    /* split the given value into literals and placeholders, or return null if it contains no placeholders at all
+     * */
+    static PropertyTemplate compile(String value) {
+        if (value == null || !value.contains("${")) {
+            return null;
+        }
+        List<String> literals = new ArrayList<>();
+        List<Placeholder> placeholders = new ArrayList<>();
+        int literalStart = 0;
+        int pos = value.indexOf("${");
+        while (pos >= 0) {
+            int end = matchPlaceholder(value, pos);
+            Placeholder placeholder;
+            if (end >= 0) {
+                int colon = value.indexOf(':', pos + 2);
+                placeholder = new Placeholder(value.substring(pos, end + 1), sourceOf(value, pos + 2, colon), value.substring(colon + 1, end));
+            } else {
+                end = matchReference(value, pos);
+                if (end < 0) {
+                    pos = value.indexOf("${", pos + 1);
+                    continue;
+                }
+                placeholder = new Placeholder(value.substring(pos, end + 1), null, value.substring(pos + 2, end));
+            }
+            literals.add(value.substring(literalStart, pos));
+            placeholders.add(placeholder);
+            literalStart = end + 1;
+            pos = value.indexOf("${", literalStart);
+        }
+        if (placeholders.isEmpty()) {
+            return null;
+        }
+        literals.add(value.substring(literalStart));
+        return new PropertyTemplate(value, literals.toArray(new String[0]), placeholders.toArray(new Placeholder[0]));
+    }
+
+    /* the index of the closing '}' of a placeholder starting at the given "${", or -1 if there is no placeholder there
+     * */
+    private static int matchPlaceholder(String value, int start) {
+        int colon = start + 2;
+        while (colon < value.length() && isWordChar(value.charAt(colon))) {
+            colon++;
+        }
+        if (colon >= value.length() || value.charAt(colon) != ':' || sourceOf(value, start + 2, colon) == null) {
+            return -1;
+        }
+        for (int end = colon + 1; end < value.length(); end++) {
+            char c = value.charAt(end);
+            if (c == '}') {
+                // an empty name is left as it is
+                return end > colon + 1 ? end : -1;
+            } else if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                // like the regex '.', a name never runs across a line break
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /* the index of the closing '}' of a reference to another property, e.g., "${db.host}", starting at the given "${",
+     * or -1 if there is no reference there
+     * */
+    private static int matchReference(String value, int start) {
+        for (int end = start + 2; end < value.length(); end++) {
+            char c = value.charAt(end);
+            if (c == '}') {
+                return end > start + 2 ? end : -1;
+            } else if (c == ':' || c == '$' || c == '{' || Character.isWhitespace(c) || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /* the property source named in the word between "${" and ':', using the last "env" or "prop" in it like the greedy
+     * regex did, or else the whole word
+     * */
+    private static String sourceOf(String value, int wordStart, int wordEnd) {
+        for (int i = wordEnd - 1; i >= wordStart; i--) {
+            if (value.startsWith(PROPERTY_SOURCE_ENV, i) && i + PROPERTY_SOURCE_ENV.length() <= wordEnd) {
+                return PROPERTY_SOURCE_ENV;
+            }
+            if (value.startsWith(PROPERTY_SOURCE_PROP, i) && i + PROPERTY_SOURCE_PROP.length() <= wordEnd) {
+                return PROPERTY_SOURCE_PROP;
+            }
+        }
+        return wordEnd > wordStart ? value.substring(wordStart, wordEnd) : null;
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    String getValue() {
+        return value;
+    }
+
+    int getPlaceholderCount() {
+        return placeholders.length;
+    }
+
+    /* whether any placeholder is a reference to another property
+     * */
+    boolean hasReferences() {
+        for (Placeholder placeholder : placeholders) {
+            if (placeholder.source == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* the names of the other properties referenced by the placeholders
+     * */
+    String[] getReferences() {
+        List<String> references = new ArrayList<>();
+        for (Placeholder placeholder : placeholders) {
+            if (placeholder.source == null && !references.contains(placeholder.name)) {
+                references.add(placeholder.name);
+            }
+        }
+        return references.toArray(new String[0]);
+    }
+
+    /* replace every placeholder with its value from the given resolvers or, for a reference, from the given references,
+     * recording the value used for each placeholder in the given array if it is not null
+     * */
+    String resolve(PlaceholderResolverChain resolvers, References references, String propertyName, String[] placeholderValues) throws PropertyEvaluatorException {
+        StringBuilder sb = new StringBuilder(value.length() + 16 * placeholders.length);
+        for (int i = 0; i < placeholders.length; i++) {
+            sb.append(literals[i]);
+            Placeholder placeholder = placeholders[i];
+            try {
+                String resolved = placeholder.source == null ? placeholder.resolve(references) : placeholder.resolve(resolvers);
+                sb.append(resolved);
+                if (placeholderValues != null) {
+                    placeholderValues[i] = resolved;
+                }
+            } catch (Exception e) {
+                throw new PropertyEvaluatorException(String.format("Failed to evaluate property '%s' expression '%s': %s", propertyName, placeholder.text, e.getMessage()));
+            }
+        }
+        sb.append(literals[placeholders.length]);
+        if (sb.length() == 0) {
+            LOG.warn(String.format("Missing value for environment variable '%s'", placeholders[placeholders.length - 1].name));
+        }
+        return sb.toString();
+    }
+
+    /* whether any placeholder reads the given name of the given source, e.g., an environment variable ("env")
+     * */
+    boolean dependsOn(String source, String name) {
+        for (Placeholder placeholder : placeholders) {
+            if (source.equals(placeholder.source) && placeholder.name.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* whether any placeholder other than a reference would now resolve to something other than the given values recorded
+     * by resolve(); a changed reference is found through the ReferenceGraph instead
+     * */
+    boolean hasChanged(PlaceholderResolverChain resolvers, String[] placeholderValues) {
+        for (int i = 0; i < placeholders.length; i++) {
+            if (placeholders[i].source == null) {
+                continue;
+            }
+            String current;
+            try {
+                current = placeholders[i].resolve(resolvers);
+            } catch (RuntimeException e) {
+                current = null;
+            }
+            if (!Objects.equals(current, placeholderValues[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* the evaluated values of the other properties, or null for a property that is not set
+     * */
+    interface References {
+        String get(String propertyName) throws PropertyEvaluatorException;
+    }
+
+    private static final class Placeholder {
+        private final String text;
+        // null for a reference to another property
+        private final String source;
+        private final String name;
+
+        Placeholder(String text, String source, String name) {
+            this.text = text;
+            this.source = source;
+            this.name = name;
+        }
+
+        String resolve(PlaceholderResolverChain resolvers) {
+            if (!resolvers.hasSource(source)) {
+                return text;
+            }
+            String resolved = resolvers.resolve(source, name);
+            if (resolved == null) {
+                if (source.equals(PROPERTY_SOURCE_ENV) || source.equals(PROPERTY_SOURCE_PROP)) {
+                    throw new IllegalArgumentException(String.format("No value found for system %s: %s", source, name));
+                }
+                throw new IllegalArgumentException(String.format("No value found for %s: %s", source, name));
+            }
+            return resolved;
+        }
+
+        String resolve(References references) throws PropertyEvaluatorException {
+            String resolved = references.get(name);
+            return resolved != null ? resolved : text;
+        }
+    }
+
+}
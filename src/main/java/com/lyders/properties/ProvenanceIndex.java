@@ -0,0 +1,76 @@
+package com.lyders.properties;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/* which properties file each property was loaded from, kept when LogSourceFilePathsAndProperties=YES.
+ *
+ * Instead of a copy of every file's properties, each property name maps to the ids of the files that set it in load
+ * order, so the last id is the file whose value won. Most properties are only set by one file, so those all share one
+ * single-id array per file. The names are the same String instances as the keys of the merged properties since both
+ * keep the first instance they were given.
+ * */
+final class ProvenanceIndex implements Serializable {
+
+    private static final long serialVersionUID = 240517204195025183L;
+
+    private static final int[] NONE = new int[0];
+
+    private final List<String> paths = new ArrayList<>();
+    private final Map<String, int[]> chains = new HashMap<>();
+
+    /* record the properties of the next file in the load order
+     * */
+    void add(String path, Iterable<String> keys) {
+        int id = paths.size();
+        paths.add(path);
+        int[] single = {id};
+        for (String key : keys) {
+            int[] chain = chains.get(key);
+            if (chain == null) {
+                chains.put(key, single);
+            } else if (chain[chain.length - 1] != id) {
+                int[] longer = Arrays.copyOf(chain, chain.length + 1);
+                longer[chain.length] = id;
+                chains.put(key, longer);
+            }
+        }
+    }
+
+    int getSourceCount() {
+        return paths.size();
+    }
+
+    String getPath(int id) {
+        return paths.get(id);
+    }
+
+    List<String> getPaths() {
+        return Collections.unmodifiableList(paths);
+    }
+
+    /* the id of the file the final value of the given property came from, or -1
+     * */
+    int sourceOf(String key) {
+        int[] chain = chains.getOrDefault(key, NONE);
+        return chain.length > 0 ? chain[chain.length - 1] : -1;
+    }
+
+    /* the ids of every file that set the given property, in load order
+     * */
+    int[] chainOf(String key) {
+        return chains.getOrDefault(key, NONE);
+    }
+
+    /* every property name along with the ids of the files that set it
+     * */
+    Iterable<Map.Entry<String, int[]>> entries() {
+        return chains.entrySet();
+    }
+
+}
@@ -0,0 +1,229 @@
+package com.lyders.properties;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/* which properties reference which other properties through "${name}" placeholders, built once for each view.
+ *
+ * A property is resolved after the properties it references, each of which is resolved (and cached) once no matter how
+ * many properties reference it, which amounts to resolving them in topological order. Every property on a cycle is
+ * found up front by a depth-first search, since every cycle has at least one edge back to a property that is still
+ * being searched, so that resolving one fails with the cycle instead of recursing forever. The edges to names that are
+ * not set (yet) are kept as well, so that setting one of them later re-resolves the properties that reference it.
+ * */
+final class ReferenceGraph {
+
+    static final ReferenceGraph EMPTY = new ReferenceGraph(Collections.emptyMap());
+
+    private static final String[] NONE = new String[0];
+
+    // the names each property references, only for the properties that reference any
+    private final Map<String, String[]> references;
+    // the names of the properties that reference each name
+    private final Map<String, List<String>> referencedBy;
+    // each property that is on a cycle along with that cycle, e.g., "a -> b -> a"
+    private final Map<String, String> cycles;
+
+    private ReferenceGraph(Map<String, String[]> references) {
+        this.references = references;
+        this.referencedBy = new HashMap<>();
+        this.cycles = new HashMap<>();
+        references.forEach((name, referenced) -> {
+            for (String target : referenced) {
+                referencedBy.computeIfAbsent(target, t -> new ArrayList<>()).add(name);
+            }
+        });
+        findCycles(references.keySet(), null);
+    }
+
+    private ReferenceGraph(Map<String, String[]> references, Map<String, List<String>> referencedBy, Map<String, String> cycles) {
+        this.references = references;
+        this.referencedBy = referencedBy;
+        this.cycles = cycles;
+    }
+
+    /* the graph of the given compiled templates
+     * */
+    static ReferenceGraph of(Map<String, PropertyTemplate> templates) {
+        Map<String, String[]> references = new HashMap<>();
+        templates.forEach((name, template) -> {
+            if (template.hasReferences()) {
+                references.put(name, template.getReferences());
+            }
+        });
+        return references.isEmpty() ? EMPTY : new ReferenceGraph(references);
+    }
+
+    /* the graph after only the given names changed to the given templates (null for a name that no longer has any).
+     * Only the edges of the changed names are replaced, and cycles are only searched for again among the properties that
+     * reference them, since every cycle through a changed name is made of properties that reference it.
+     * */
+    ReferenceGraph withChanged(Map<String, PropertyTemplate> changed) {
+        Map<String, String[]> nextReferences = new HashMap<>(references);
+        Map<String, List<String>> nextReferencedBy = new HashMap<>(referencedBy);
+        // the lists of nextReferencedBy that were already copied, so that the ones of this graph are never changed
+        Set<String> copied = new HashSet<>();
+        changed.forEach((name, template) -> {
+            for (String target : references.getOrDefault(name, NONE)) {
+                if (copied.add(target)) {
+                    nextReferencedBy.put(target, new ArrayList<>(nextReferencedBy.get(target)));
+                }
+                List<String> dependents = nextReferencedBy.get(target);
+                dependents.remove(name);
+                if (dependents.isEmpty()) {
+                    nextReferencedBy.remove(target);
+                    copied.remove(target);
+                }
+            }
+            if (template != null && template.hasReferences()) {
+                nextReferences.put(name, template.getReferences());
+                for (String target : template.getReferences()) {
+                    if (copied.add(target)) {
+                        List<String> dependents = nextReferencedBy.get(target);
+                        nextReferencedBy.put(target, dependents != null ? new ArrayList<>(dependents) : new ArrayList<>());
+                    }
+                    nextReferencedBy.get(target).add(name);
+                }
+            } else {
+                nextReferences.remove(name);
+            }
+        });
+        if (nextReferences.isEmpty()) {
+            return EMPTY;
+        }
+        ReferenceGraph next = new ReferenceGraph(nextReferences, nextReferencedBy, new HashMap<>(cycles));
+        Set<String> affected = next.dependentsOf(changed.keySet());
+        next.cycles.keySet().removeAll(affected);
+        next.findCycles(affected, affected);
+        return next;
+    }
+
+    boolean isEmpty() {
+        return references.isEmpty();
+    }
+
+    /* the cycle the given property is on, or null if it is not on any
+     * */
+    String cycleOf(String name) {
+        return cycles.get(name);
+    }
+
+    /* the given names plus every property that references any of them, directly or through other properties
+     * */
+    Set<String> dependentsOf(Collection<String> names) {
+        Set<String> dependents = new HashSet<>(names);
+        if (references.isEmpty()) {
+            return dependents;
+        }
+        Deque<String> pending = new ArrayDeque<>(names);
+        while (!pending.isEmpty()) {
+            for (String dependent : referencedBy.getOrDefault(pending.pop(), Collections.emptyList())) {
+                if (dependents.add(dependent)) {
+                    pending.push(dependent);
+                }
+            }
+        }
+        return dependents;
+    }
+
+    /* the cycle the given property is on, found by a depth-first search from that property alone, or null if it is not
+     * on any. The references of each property are asked for only once it is reached (null for a property that references
+     * none), so that a shared segment's values are only compiled as far as the given property reaches.
+     * */
+    static String cycleThrough(String start, Function<String, String[]> referencesOf) {
+        String[] startReferences = referencesOf.apply(start);
+        if (startReferences == null) {
+            return null;
+        }
+        Set<String> done = new HashSet<>();
+        List<String> path = new ArrayList<>();
+        Deque<String[]> referenced = new ArrayDeque<>();
+        Deque<int[]> next = new ArrayDeque<>();
+        path.add(start);
+        referenced.push(startReferences);
+        next.push(new int[]{0});
+        while (!path.isEmpty()) {
+            int[] idx = next.peek();
+            if (idx[0] == referenced.peek().length) {
+                // every property reachable from here was searched without finding the start again
+                done.add(path.remove(path.size() - 1));
+                referenced.pop();
+                next.pop();
+                continue;
+            }
+            String target = referenced.peek()[idx[0]++];
+            if (target.equals(start)) {
+                return String.join(" -> ", path) + " -> " + start;
+            }
+            if (done.contains(target) || path.contains(target)) {
+                continue;
+            }
+            String[] targetReferences = referencesOf.apply(target);
+            if (targetReferences == null) {
+                done.add(target);
+                continue;
+            }
+            path.add(target);
+            referenced.push(targetReferences);
+            next.push(new int[]{0});
+        }
+        return null;
+    }
+
+    /* search for cycles starting from each of the given names, following references only to the given names (null for
+     * any name)
+     * */
+    private void findCycles(Collection<String> starts, Set<String> searched) {
+        Set<String> done = new HashSet<>();
+        // the path of the current search, with the index of the next reference to follow from each property on it
+        List<String> path = new ArrayList<>();
+        Map<String, Integer> onPath = new HashMap<>();
+        Deque<int[]> next = new ArrayDeque<>();
+        for (String start : starts) {
+            if (done.contains(start) || !references.containsKey(start)) {
+                continue;
+            }
+            path.add(start);
+            onPath.put(start, 0);
+            next.push(new int[]{0});
+            while (!path.isEmpty()) {
+                String name = path.get(path.size() - 1);
+                String[] referenced = references.getOrDefault(name, NONE);
+                int[] idx = next.peek();
+                if (idx[0] == referenced.length) {
+                    done.add(name);
+                    onPath.remove(name);
+                    path.remove(path.size() - 1);
+                    next.pop();
+                    continue;
+                }
+                String target = referenced[idx[0]++];
+                Integer cycleStart = onPath.get(target);
+                if (cycleStart != null) {
+                    markCycle(path.subList(cycleStart, path.size()), target);
+                } else if (!done.contains(target) && (searched == null || searched.contains(target))) {
+                    onPath.put(target, path.size());
+                    path.add(target);
+                    next.push(new int[]{0});
+                }
+            }
+        }
+    }
+
+    private void markCycle(List<String> cycle, String target) {
+        String description = String.join(" -> ", cycle) + " -> " + target;
+        for (String name : cycle) {
+            cycles.putIfAbsent(name, description);
+        }
+    }
+
+}
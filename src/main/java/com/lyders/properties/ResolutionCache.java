@@ -0,0 +1,386 @@
+package com.lyders.properties;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * The cache of values resolved by {@link ApplicationProperties#get(String, String, boolean, boolean)}, keyed by the
+ * property name plus the options it was resolved with, so that callers using different options or defaults never see
+ * each other's answers.
+ * <p>
+ * Each property name has one slot per combination of decodeEscapedNewlines and eval. A value that came from the
+ * property itself is shared by every default value; a value that came from the default value is only a hit for that
+ * same default value. A hit never allocates and never locks.
+ * <p>
+ * The number of property names is bounded: once it grows past the maximum size, names are evicted with the CLOCK
+ * algorithm (an approximation of least-recently-used where each hit only sets a "referenced" flag). Resolved values that
+ * contain environment variables or system properties remember the values they were built from, so that they can be
+ * dropped once those change.
+ */
+final class ResolutionCache {
+
+    static final int DEFAULT_MAX_SIZE = 10_000;
+
+    private static final int OPTION_VARIANTS = 4;
+    // how many earlier caches a cache takes values over from, so that a value survives this many put()s in a row
+    // without being looked up; older caches are dropped so that they can be collected
+    static final int MAX_INHERITED = 4;
+
+    private final int maxSize;
+    private final ConcurrentHashMap<String, Node> nodes = new ConcurrentHashMap<>();
+    // names with at least one value that depends on an environment variable or system property
+    private final Set<String> dependents = ConcurrentHashMap.newKeySet();
+    private final Object evictionLock = new Object();
+    private Iterator<Map.Entry<String, Node>> clockHand;
+    // the caches of the views this one replaced, newest first, whose values are taken over on first use
+    private volatile Inherited inherited;
+
+    // shared with the caches of the views that replace this one so that the counts cover the whole life of the properties
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    ResolutionCache(int maxSize, ResolutionCache previous) {
+        this.maxSize = maxSize > 0 ? maxSize : DEFAULT_MAX_SIZE;
+        this.hits = previous != null ? previous.hits : new LongAdder();
+        this.misses = previous != null ? previous.misses : new LongAdder();
+        this.evictions = previous != null ? previous.evictions : new LongAdder();
+    }
+
+    static int options(boolean decodeEscapedNewlines, boolean eval) {
+        return (decodeEscapedNewlines ? 1 : 0) | (eval ? 2 : 0);
+    }
+
+    /* the cached resolution of the given property for the given options and default value, or null on a miss
+     * */
+    Resolution lookup(String propertyName, String defaultValue, int options) {
+        Node node = nodes.get(propertyName);
+        if (node == null && inherited != null) {
+            node = inherit(propertyName);
+        }
+        Resolution resolution = node != null ? node.variants.get(options) : null;
+        if (resolution == null || (resolution.usesDefault && !Objects.equals(resolution.defaultValue, defaultValue))) {
+            misses.increment();
+            return null;
+        }
+        if (!node.referenced) {
+            node.referenced = true;
+        }
+        hits.increment();
+        return resolution;
+    }
+
+    /* cache a newly resolved value and return it
+     * */
+    String store(String propertyName, int options, Resolution resolution) {
+        Node node = nodes.get(propertyName);
+        if (node == null) {
+            Node created = new Node();
+            node = nodes.putIfAbsent(propertyName, created);
+            if (node == null) {
+                node = created;
+                if (nodes.size() > maxSize) {
+                    evict();
+                }
+            }
+        }
+        node.variants.set(options, resolution);
+        if (resolution.template != null) {
+            dependents.add(propertyName);
+        }
+        return resolution.value;
+    }
+
+    /* the parsed primitive forms of the value get(propertyName) resolves to, or null if they have not been parsed yet
+     * */
+    TypedValue getTypedValue(String propertyName) {
+        Node node = nodes.get(propertyName);
+        if (node == null && inherited != null) {
+            node = inherit(propertyName);
+        }
+        if (node == null) {
+            return null;
+        }
+        TypedValue typed = node.typed;
+        if (typed != null && !node.referenced) {
+            node.referenced = true;
+        }
+        return typed;
+    }
+
+    TypedValue storeTypedValue(String propertyName, TypedValue typed) {
+        Node node = nodes.get(propertyName);
+        if (node != null) {
+            node.typed = typed;
+        }
+        return typed;
+    }
+
+    private void evict() {
+        synchronized (evictionLock) {
+            while (nodes.size() > maxSize) {
+                if (clockHand == null || !clockHand.hasNext()) {
+                    clockHand = nodes.entrySet().iterator();
+                    if (!clockHand.hasNext()) {
+                        return;
+                    }
+                }
+                Map.Entry<String, Node> entry = clockHand.next();
+                Node node = entry.getValue();
+                if (node.referenced) {
+                    // second chance
+                    node.referenced = false;
+                } else if (nodes.remove(entry.getKey(), node)) {
+                    dependents.remove(entry.getKey());
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    /* keep every value cached by the given cache of the previous view except for the given names, e.g., the properties
+     * that were put() along with every property that references them. Nothing is copied up front: each value is taken
+     * over the first time it is looked up, so that publishing a view doesn't cost a copy of every cached value.
+     * */
+    void retainFrom(ResolutionCache previous, Set<String> stale) {
+        Inherited chain = new Inherited(previous, stale, null);
+        Inherited last = chain;
+        int depth = 1;
+        for (Inherited older = previous.inherited; older != null && depth < MAX_INHERITED; older = older.next, depth++) {
+            Set<String> olderStale = new HashSet<>(older.stale);
+            olderStale.addAll(stale);
+            last.next = new Inherited(older.cache, olderStale, null);
+            last = last.next;
+        }
+        inherited = chain;
+        // the previous cache no longer needs its own chain, so the chain never grows past MAX_INHERITED
+        previous.inherited = null;
+    }
+
+    /* take over the value the newest earlier cache has for the given property, unless it changed since
+     * */
+    private Node inherit(String propertyName) {
+        for (Inherited link = inherited; link != null; link = link.next) {
+            if (link.stale.contains(propertyName)) {
+                // it changed after this cache, so it changed after every older one too
+                return null;
+            }
+            Node node = link.cache.nodes.get(propertyName);
+            if (node != null) {
+                // shared rather than copied: the property resolves to the same values in both views, so whatever either
+                // of them stores in the node holds for the other one as well
+                Node existing = nodes.putIfAbsent(propertyName, node);
+                if (existing != null) {
+                    return existing;
+                }
+                if (link.cache.dependents.contains(propertyName)) {
+                    dependents.add(propertyName);
+                }
+                if (nodes.size() > maxSize) {
+                    evict();
+                }
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /* drop every cached value that was built from the given environment variable (env=true) or system property, along
+     * with the values of the properties that reference them
+     * */
+    int invalidate(boolean env, String name, ReferenceGraph graph) {
+        String source = env ? PropertyTemplate.PROPERTY_SOURCE_ENV : PropertyTemplate.PROPERTY_SOURCE_PROP;
+        return invalidateIf(resolution -> resolution.template.dependsOn(source, name), graph);
+    }
+
+    /* drop every cached value whose placeholders the given resolvers no longer resolve to the values it was built from,
+     * along with the values of the properties that reference them
+     * */
+    int invalidateChanged(PlaceholderResolverChain resolvers, ReferenceGraph graph) {
+        return invalidateIf(resolution -> resolution.template.hasChanged(resolvers, resolution.placeholderValues), graph);
+    }
+
+    private int invalidateIf(Predicate<Resolution> stale, ReferenceGraph graph) {
+        // the earlier caches may hold the invalidated values as well
+        inherited = null;
+        int invalidated = 0;
+        Set<String> invalidatedNames = new HashSet<>();
+        for (String propertyName : dependents) {
+            Node node = nodes.get(propertyName);
+            if (node == null) {
+                dependents.remove(propertyName);
+                continue;
+            }
+            for (int options = 0; options < OPTION_VARIANTS; options++) {
+                Resolution resolution = node.variants.get(options);
+                if (resolution != null && resolution.template != null && stale.test(resolution)
+                        && node.variants.compareAndSet(options, resolution, null)) {
+                    node.typed = null;
+                    invalidated++;
+                    invalidatedNames.add(propertyName);
+                }
+            }
+        }
+        if (invalidatedNames.isEmpty() || graph.isEmpty()) {
+            return invalidated;
+        }
+        for (String propertyName : graph.dependentsOf(invalidatedNames)) {
+            Node node = invalidatedNames.contains(propertyName) ? null : nodes.get(propertyName);
+            if (node == null) {
+                continue;
+            }
+            for (int options = 0; options < OPTION_VARIANTS; options++) {
+                if (node.variants.getAndSet(options, null) != null) {
+                    invalidated++;
+                }
+            }
+            node.typed = null;
+        }
+        return invalidated;
+    }
+
+    /* the values cached for the default options of get(propertyName), i.e., decoded and evaluated
+     * */
+    Map<String, String> getCachedProps() {
+        int options = options(true, true);
+        Map<String, String> copy = new HashMap<>(nodes.size() * 2);
+        nodes.forEach((name, node) -> {
+            Resolution resolution = node.variants.get(options);
+            if (resolution != null) {
+                copy.put(name, resolution.value);
+            }
+        });
+        return copy;
+    }
+
+    ResolutionCacheStats getStats() {
+        return new ResolutionCacheStats(hits.sum(), misses.sum(), evictions.sum(), nodes.size(), maxSize);
+    }
+
+    private static final class Inherited {
+        private final ResolutionCache cache;
+        // the names that changed since that cache's view
+        private final Set<String> stale;
+        private Inherited next;
+
+        Inherited(ResolutionCache cache, Set<String> stale, Inherited next) {
+            this.cache = cache;
+            this.stale = stale;
+            this.next = next;
+        }
+    }
+
+    private static final class Node {
+        private final AtomicReferenceArray<Resolution> variants = new AtomicReferenceArray<>(OPTION_VARIANTS);
+        private volatile TypedValue typed;
+        private volatile boolean referenced = true;
+    }
+
+    /* a resolved value along with what it was resolved from
+     * */
+    static final class Resolution {
+        private final String value;
+        private final boolean usesDefault;
+        private final String defaultValue;
+        // set when the value was evaluated from placeholders, along with the value each placeholder had at the time
+        private final PropertyTemplate template;
+        private final String[] placeholderValues;
+
+        Resolution(String value, boolean usesDefault, String defaultValue, PropertyTemplate template, String[] placeholderValues) {
+            this.value = value;
+            this.usesDefault = usesDefault;
+            this.defaultValue = defaultValue;
+            this.template = template;
+            this.placeholderValues = placeholderValues;
+        }
+
+        String getValue() {
+            return value;
+        }
+    }
+
+    /* a resolved value parsed once into every primitive type it can be, so that the typed getters can return it
+     * without parsing, boxing or allocating anything
+     * */
+    static final class TypedValue {
+        static final int PRESENT = 1;
+        static final int INT = 2;
+        static final int LONG = 4;
+        static final int DOUBLE = 8;
+
+        private final String value;
+        private final int valid;
+        private final long longValue;
+        private final double doubleValue;
+        private final boolean booleanValue;
+        // the types a "failed to convert" warning was already logged for, so that it is logged once instead of on every call
+        private volatile int warned;
+
+        TypedValue(String value) {
+            this.value = value;
+            int valid = 0;
+            long longValue = 0;
+            double doubleValue = 0;
+            if (value != null && !value.isEmpty()) {
+                valid |= PRESENT;
+                try {
+                    longValue = Long.parseLong(value);
+                    doubleValue = longValue;
+                    valid |= LONG | DOUBLE;
+                    if (longValue == (int) longValue) {
+                        valid |= INT;
+                    }
+                } catch (NumberFormatException e) {
+                    try {
+                        doubleValue = Double.parseDouble(value);
+                        valid |= DOUBLE;
+                    } catch (NumberFormatException e2) {
+                        // not a number
+                    }
+                }
+            }
+            this.valid = valid;
+            this.longValue = longValue;
+            this.doubleValue = doubleValue;
+            this.booleanValue = Boolean.parseBoolean(value);
+        }
+
+        String getValue() {
+            return value;
+        }
+
+        boolean isPresent() {
+            return (valid & PRESENT) != 0;
+        }
+
+        boolean is(int type) {
+            return (valid & type) == type;
+        }
+
+        long getLongValue() {
+            return longValue;
+        }
+
+        double getDoubleValue() {
+            return doubleValue;
+        }
+
+        boolean getBooleanValue() {
+            return booleanValue;
+        }
+
+        /* whether a value is present and this is the first time it failed to convert to the given type
+         * */
+        boolean shouldWarn(int type) {
+            if (!isPresent() || (warned & type) != 0) {
+                return false;
+            }
+            warned |= type;
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.lyders.properties;
+
+import lombok.Data;
+
+/* the counters of the cache of values resolved by ApplicationProperties.get() since the properties were loaded
+ * */
+@Data
+public class ResolutionCacheStats {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final int size;
+    private final int maxSize;
+
+    public double getHitRatio() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+}
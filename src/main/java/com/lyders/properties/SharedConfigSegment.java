@@ -0,0 +1,361 @@
+package com.lyders.properties;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A memory-mapped file through which one process publishes its merged properties to any number of other processes on
+ * the same host. The readers look values up straight from the mapped bytes, so they keep no copy of the properties on
+ * their heap.
+ * <p>
+ * Layout: a 64 byte header followed by a {@link ConfigSnapshotFile} image (string table, entries and hash index).
+ * <pre>
+ * 0   magic
+ * 4   format
+ * 8   sequence number: odd while the publisher is writing, incremented twice per publish
+ * 16  state: 0 while this file is current, 1 once the publisher moved to a bigger file at the same path
+ * 20  length of the snapshot image
+ * </pre>
+ * Readers use the sequence number as a seqlock: they read it, look the value up, and read it again; if it changed or was
+ * odd they look again. When the properties outgrow the file, the publisher writes a bigger file, moves it into place
+ * and then marks the old one as moved so that readers map the new one.
+ * <p>
+ * There must be only one publisher per file. A publisher that dies in the middle of a write leaves the sequence number
+ * odd, which readers report as an error once they have waited {@link #STALE_WRITE_TIMEOUT_NANOS} for it.
+ */
+final class SharedConfigSegment {
+
+    static final int MAGIC = 0x4150534D;
+    static final int FORMAT = 1;
+    static final int HEADER_SIZE = 64;
+    static final int MIN_CAPACITY = 1 << 20;
+    static final long STALE_WRITE_TIMEOUT_NANOS = 5_000_000_000L;
+
+    private static final int SEQUENCE_POS = 8;
+    private static final int STATE_POS = 16;
+    private static final int LENGTH_POS = 20;
+    private static final int STATE_CURRENT = 0;
+    private static final int STATE_MOVED = 1;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final Path file;
+    private final boolean writable;
+    private volatile Mapping mapping;
+
+    private SharedConfigSegment(Path file, boolean writable, Mapping mapping) {
+        this.file = file;
+        this.writable = writable;
+        this.mapping = mapping;
+    }
+
+    /* create the segment at the given path as its publisher, taking over from an earlier publisher whose readers are
+     * still attached to the file
+     * */
+    static SharedConfigSegment publish(Path file, ByteBuffer snapshot) throws IOException {
+        Mapping previous = null;
+        if (Files.isRegularFile(file)) {
+            try {
+                previous = Mapping.open(file, FileChannel.MapMode.READ_WRITE);
+            } catch (IOException e) {
+                // not a segment, so nobody can be attached to it
+            }
+        }
+        // keep counting from the previous sequence number so that the readers see a new version
+        long sequence = previous != null ? (previous.sequence() | 1) + 1 : 0;
+        SharedConfigSegment segment = new SharedConfigSegment(file, true, createFile(file, snapshot, sequence));
+        if (previous != null) {
+            INTS.setVolatile(previous.buf, STATE_POS, STATE_MOVED);
+        }
+        return segment;
+    }
+
+    /* map an existing segment read-only
+     * */
+    static SharedConfigSegment attach(Path file) throws IOException {
+        return new SharedConfigSegment(file, false, Mapping.open(file));
+    }
+
+    /* replace the published properties with the given snapshot image
+     * */
+    synchronized void update(ByteBuffer snapshot) throws IOException {
+        if (!writable) {
+            throw new IllegalStateException("Shared properties segment is read-only: " + file);
+        }
+        Mapping current = mapping;
+        int length = snapshot.remaining();
+        if (HEADER_SIZE + length > current.buf.capacity()) {
+            // readers still map the old file, so it is only marked as moved once the new one is in place
+            mapping = createFile(file, snapshot, current.sequence() + 2);
+            INTS.setVolatile(current.buf, STATE_POS, STATE_MOVED);
+            return;
+        }
+        long sequence = current.sequence();
+        LONGS.setVolatile(current.buf, SEQUENCE_POS, sequence + 1);
+        VarHandle.storeStoreFence();
+        ByteBuffer payload = current.buf.duplicate();
+        payload.position(HEADER_SIZE);
+        payload.put(snapshot.duplicate());
+        current.buf.putInt(LENGTH_POS, length);
+        LONGS.setVolatile(current.buf, SEQUENCE_POS, sequence + 2);
+    }
+
+    private static Mapping createFile(Path file, ByteBuffer snapshot, long sequence) throws IOException {
+        int length = snapshot.remaining();
+        // leave room to grow so that most updates can be written in place
+        long capacity = Math.max(MIN_CAPACITY, roundToPage(HEADER_SIZE + 2L * length));
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+                buf.putInt(0, MAGIC).putInt(4, FORMAT).putLong(SEQUENCE_POS, sequence).putInt(STATE_POS, STATE_CURRENT).putInt(LENGTH_POS, length);
+                ByteBuffer payload = buf.duplicate();
+                payload.position(HEADER_SIZE);
+                payload.put(snapshot.duplicate());
+                buf.force();
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return Mapping.open(file, FileChannel.MapMode.READ_WRITE);
+    }
+
+    private static long roundToPage(long size) {
+        return (size + 4095) & ~4095L;
+    }
+
+    /* the sequence number of the properties currently published; it changes whenever they do
+     * */
+    long getVersion() {
+        return awaitSequence(currentMapping());
+    }
+
+    /* the sequence number of the given mapping once no write is in progress
+     * */
+    private long awaitSequence(Mapping current) {
+        long sequence = current.sequence();
+        if ((sequence & 1) == 0) {
+            return sequence;
+        }
+        long start = System.nanoTime();
+        while (((sequence = current.sequence()) & 1) != 0) {
+            if (System.nanoTime() - start > STALE_WRITE_TIMEOUT_NANOS) {
+                throw new IllegalStateException(String.format("Shared properties segment '%s' has been in the middle of a write for too long; its publisher probably died", file));
+            }
+            Thread.onSpinWait();
+        }
+        return sequence;
+    }
+
+    /* the value of the given property straight from the mapped bytes, or null if there is none
+     * */
+    String get(String key) {
+        return read(snapshot -> snapshot.get(key));
+    }
+
+    /* whether the given property is published, even with a null value
+     * */
+    boolean containsKey(String key) {
+        return read(snapshot -> snapshot.indexOf(key) >= 0);
+    }
+
+    int size() {
+        return read(ConfigSnapshotFile::getEntryCount);
+    }
+
+    /* the published names that start with the given prefix, in sorted order, found by a binary search of the entries
+     * since they are published in that order; all from the same version
+     * */
+    List<String> keysWithPrefix(String prefix) {
+        return read(snapshot -> snapshot.keyIndex().keysWithPrefix(prefix));
+    }
+
+    int countWithPrefix(String prefix) {
+        return read(snapshot -> snapshot.keyIndex().countWithPrefix(prefix));
+    }
+
+    Set<String> childKeys(String dottedPrefix) {
+        return read(snapshot -> snapshot.keyIndex().childKeys(dottedPrefix));
+    }
+
+    private interface Reader<T> {
+        T read(ConfigSnapshotFile snapshot);
+    }
+
+    private <T> T read(Reader<T> reader) {
+        for (;;) {
+            Mapping current = currentMapping();
+            long sequence = awaitSequence(current);
+            T result;
+            RuntimeException failure = null;
+            try {
+                result = reader.read(current.snapshot(sequence));
+            } catch (IOException e) {
+                result = null;
+                failure = new IllegalStateException(String.format("Corrupt shared properties segment '%s': %s", file, e.getMessage()), e);
+            } catch (RuntimeException e) {
+                // most likely a torn read of bytes that were being written
+                result = null;
+                failure = e;
+            }
+            VarHandle.loadLoadFence();
+            if (current.sequence() == sequence) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return result;
+            }
+        }
+    }
+
+    /* the current mapping, following the publisher to a new file if it moved
+     * */
+    private Mapping currentMapping() {
+        Mapping current = mapping;
+        if (!writable && (int) INTS.getVolatile(current.buf, STATE_POS) == STATE_MOVED) {
+            synchronized (this) {
+                if (mapping == current) {
+                    try {
+                        mapping = Mapping.open(file);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(String.format("Failed to map the moved shared properties segment '%s': %s", file, e.getMessage()), e);
+                    }
+                }
+                current = mapping;
+            }
+        }
+        return current;
+    }
+
+    /* a read-only map over whatever is published at the time of each call. Lookups read the mapped bytes in place; an
+     * iteration first copies the entries of one published version (checked like any other read), so that it never sees
+     * a mix of the old and the new properties
+     * */
+    Map<String, String> asMap() {
+        return new AbstractMap<String, String>() {
+            @Override
+            public String get(Object key) {
+                return key instanceof String ? SharedConfigSegment.this.get((String) key) : null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return key instanceof String && SharedConfigSegment.this.containsKey((String) key);
+            }
+
+            @Override
+            public int size() {
+                return SharedConfigSegment.this.size();
+            }
+
+            @Override
+            public Set<Entry<String, String>> entrySet() {
+                return new AbstractSet<Entry<String, String>>() {
+                    @Override
+                    public Iterator<Entry<String, String>> iterator() {
+                        return Arrays.asList(entries()).iterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return SharedConfigSegment.this.size();
+                    }
+                };
+            }
+        };
+    }
+
+    /* every published entry, all from the same version
+     * */
+    @SuppressWarnings("unchecked")
+    private Map.Entry<String, String>[] entries() {
+        return read(snapshot -> {
+            Map.Entry<String, String>[] entries = new Map.Entry[snapshot.getEntryCount()];
+            for (int entry = 0; entry < entries.length; entry++) {
+                entries[entry] = new AbstractMap.SimpleImmutableEntry<>(snapshot.getKey(entry), snapshot.getValue(entry));
+            }
+            return entries;
+        });
+    }
+
+    private static final class Mapping {
+        private final MappedByteBuffer buf;
+        // the snapshot image parsed for the sequence number it was read at, reused until the sequence number changes
+        private volatile ParsedSnapshot parsed;
+
+        private Mapping(MappedByteBuffer buf) throws IOException {
+            this.buf = buf;
+            if (buf.capacity() < HEADER_SIZE || buf.getInt(0) != MAGIC || buf.getInt(4) != FORMAT) {
+                throw new IOException("Not a shared properties segment or an unsupported format");
+            }
+        }
+
+        static Mapping open(Path file) throws IOException {
+            return open(file, FileChannel.MapMode.READ_ONLY);
+        }
+
+        static Mapping open(Path file, FileChannel.MapMode mode) throws IOException {
+            StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                    ? new StandardOpenOption[]{StandardOpenOption.READ}
+                    : new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE};
+            try (FileChannel channel = FileChannel.open(file, options)) {
+                return new Mapping(channel.map(mode, 0, channel.size()));
+            }
+        }
+
+        long sequence() {
+            return (long) LONGS.getVolatile(buf, SEQUENCE_POS);
+        }
+
+        ConfigSnapshotFile snapshot(long sequence) throws IOException {
+            ParsedSnapshot current = parsed;
+            if (current != null && current.sequence == sequence) {
+                return current.snapshot;
+            }
+            int length = buf.getInt(LENGTH_POS);
+            if (length < 0 || HEADER_SIZE + length > buf.capacity()) {
+                throw new IOException("Invalid snapshot length: " + length);
+            }
+            ByteBuffer image = buf.duplicate();
+            image.position(HEADER_SIZE).limit(HEADER_SIZE + length);
+            ConfigSnapshotFile snapshot = ConfigSnapshotFile.wrap(image.slice());
+            parsed = new ParsedSnapshot(sequence, snapshot);
+            return snapshot;
+        }
+    }
+
+    private static final class ParsedSnapshot {
+        private final long sequence;
+        private final ConfigSnapshotFile snapshot;
+
+        ParsedSnapshot(long sequence, ConfigSnapshotFile snapshot) {
+            this.sequence = sequence;
+            this.snapshot = snapshot;
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.lyders.properties;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+
+/* picks the parser of a source by the extension of its file name: ".json" files are read by JsonSourceParser, ".yaml"
+ * and ".yml" files by YamlSourceParser and everything else as a .properties file by PropertiesFileParser. JSON and YAML
+ * files are read as UTF-8 through a buffered reader, so that they are streamed just like .properties files are.
+ * */
+final class SourceParser {
+
+    enum Format {PROPERTIES, JSON, YAML}
+
+    private SourceParser() {
+    }
+
+    static Format formatOf(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".json")) {
+            return Format.JSON;
+        } else if (name.endsWith(".yaml") || name.endsWith(".yml")) {
+            return Format.YAML;
+        }
+        return Format.PROPERTIES;
+    }
+
+    /* pass each entry of the given file to the given sink, returning the number of bytes parsed
+     * */
+    static int parse(Path file, BiConsumer<String, String> sink) throws IOException {
+        Format format = formatOf(file.getFileName().toString());
+        if (format == Format.PROPERTIES) {
+            return PropertiesFileParser.parse(file, sink);
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            parse(format, reader, sink);
+        }
+        return (int) Math.min(Files.size(file), Integer.MAX_VALUE);
+    }
+
+    /* pass each entry of the given stream of the given file (e.g., a class path resource inside a jar) to the given sink
+     * */
+    static int parse(String fileName, InputStream in, BiConsumer<String, String> sink) throws IOException {
+        Format format = formatOf(fileName);
+        if (format == Format.PROPERTIES) {
+            return PropertiesFileParser.parse(fileName, in, sink);
+        }
+        CountingInputStream counting = new CountingInputStream(in);
+        parse(format, new BufferedReader(new InputStreamReader(counting, StandardCharsets.UTF_8)), sink);
+        return (int) Math.min(counting.count, Integer.MAX_VALUE);
+    }
+
+    /* pass each entry of the given bytes of the given file to the given sink
+     * */
+    static int parse(String fileName, ByteBuffer buf, BiConsumer<String, String> sink) throws IOException {
+        Format format = formatOf(fileName);
+        if (format == Format.PROPERTIES) {
+            return PropertiesFileParser.parse(fileName, buf, sink);
+        }
+        int size = buf.remaining();
+        byte[] bytes;
+        int offset;
+        if (buf.hasArray()) {
+            bytes = buf.array();
+            offset = buf.arrayOffset() + buf.position();
+        } else {
+            bytes = new byte[size];
+            buf.duplicate().get(bytes);
+            offset = 0;
+        }
+        parse(format, new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes, offset, size), StandardCharsets.UTF_8)), sink);
+        return size;
+    }
+
+    private static void parse(Format format, Reader reader, BiConsumer<String, String> sink) throws IOException {
+        if (format == Format.JSON) {
+            JsonSourceParser.parse(reader, sink);
+        } else {
+            YamlSourceParser.parse(reader, sink);
+        }
+    }
+
+    /* counts the bytes read so that the size of a streamed source can be reported like the size of a file
+     * */
+    private static final class CountingInputStream extends java.io.FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+}
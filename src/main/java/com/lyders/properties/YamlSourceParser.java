@@ -0,0 +1,430 @@
+package com.lyders.properties;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/* a streaming reader for YAML source files that reads one line at a time and hands every scalar to the sink as soon as
+ * it has been read, named like JsonSourceParser names them, e.g., "db:\n  hosts:\n    - a" gives "db.hosts[0]=a". Only the
+ * names of the mappings and sequences around the current line are kept.
+ *
+ * This covers the YAML that configuration is written in: block mappings and sequences, plain, quoted, literal ('|') and
+ * folded ('>') scalars, flow collections (e.g., "[a, b]"), comments and several documents in one file, where a later
+ * document overrides an earlier one. Anchors, aliases, tags and complex keys are rejected, and so are inconsistently
+ * indented lines and unquoted values containing ': ', instead of guessing what they meant. Scalars are kept as they are
+ * written, except that null and '~' are an empty value, just like a key without a value.
+ * */
+final class YamlSourceParser {
+
+    private final BufferedReader in;
+    private final BiConsumer<String, String> sink;
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    // a line that was read ahead and still has to be parsed
+    private String pushedBack;
+    private int lineNumber;
+
+    private YamlSourceParser(Reader in, BiConsumer<String, String> sink) {
+        this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        this.sink = sink;
+    }
+
+    /* pass every scalar of the YAML document(s) read from the given reader to the given sink
+     * */
+    static void parse(Reader in, BiConsumer<String, String> sink) throws IOException {
+        new YamlSourceParser(in, sink).parse();
+    }
+
+    private void parse() throws IOException {
+        frames.push(new Frame(-1, "", false));
+        String raw;
+        while ((raw = nextLine()) != null) {
+            String content = stripComment(raw);
+            int indent = indentOf(content);
+            if (indent == content.length()) {
+                continue;
+            }
+            String text = content.substring(indent);
+            if (indent == 0 && (text.equals("---") || text.startsWith("--- ") || text.equals("..."))) {
+                if (text.length() > 3) {
+                    throw error("content after '---' is not supported");
+                }
+                closeAll();
+                frames.push(new Frame(-1, "", false));
+                continue;
+            } else if (indent == 0 && text.startsWith("%")) {
+                // a directive such as %YAML 1.2
+                continue;
+            }
+            boolean dash = isSequenceItem(text);
+            Frame top = frames.peek();
+            while (top.indent > indent || (top.indent == indent && !(dash && top.emptyIfChildless))) {
+                close(frames.pop());
+                top = frames.peek();
+            }
+            if (top.childIndent < 0) {
+                top.childIndent = indent;
+            } else if (indent != top.childIndent) {
+                throw error("inconsistent indentation");
+            }
+            if (dash) {
+                item(top, indent, text);
+            } else {
+                entry(top, indent, text);
+            }
+        }
+        closeAll();
+    }
+
+    /* "- value", "- key: value" or "-" followed by a more indented block
+     * */
+    private void item(Frame parent, int indent, String text) throws IOException {
+        if (parent.mapping) {
+            throw error("expected 'key: value' but found a sequence item");
+        }
+        parent.sequence = true;
+        parent.childless = false;
+        String name = parent.name + '[' + parent.nextIndex++ + ']';
+        String rest = text.substring(1);
+        int restIndent = indent + 1 + indentOf(rest);
+        rest = rest.trim();
+        if (rest.isEmpty()) {
+            frames.push(new Frame(indent, name, true));
+        } else if (isSequenceItem(rest)) {
+            throw error("a sequence on the same line as its parent sequence item is not supported");
+        } else if (separatorOf(rest) >= 0) {
+            Frame frame = new Frame(indent, name, false);
+            frame.childIndent = restIndent;
+            frames.push(frame);
+            entry(frame, restIndent, rest);
+        } else {
+            scalar(name, rest, indent);
+        }
+    }
+
+    /* "key: value" or "key:" followed by a more indented block
+     * */
+    private void entry(Frame parent, int indent, String text) throws IOException {
+        if (parent.sequence) {
+            throw error("expected a sequence item but found 'key: value'");
+        }
+        int separator = separatorOf(text);
+        if (separator < 0) {
+            throw error(String.format("expected 'key: value' but found '%s'", text));
+        }
+        String key = text.substring(0, separator).trim();
+        if (key.startsWith("?")) {
+            throw error("complex keys are not supported");
+        } else if (key.startsWith("\"") || key.startsWith("'")) {
+            key = unquote(key);
+        }
+        parent.mapping = true;
+        parent.childless = false;
+        String name = parent.name.isEmpty() ? key : parent.name + '.' + key;
+        String value = text.substring(separator + 1).trim();
+        if (value.isEmpty()) {
+            frames.push(new Frame(indent, name, true));
+        } else {
+            scalar(name, value, indent);
+        }
+    }
+
+    private void scalar(String name, String value, int indent) throws IOException {
+        char first = value.charAt(0);
+        if (first == '|' || first == '>') {
+            sink.accept(name, blockScalar(value, indent));
+        } else if (first == '[' || first == '{') {
+            StringBuilder flow = new StringBuilder(value);
+            int line = lineNumber;
+            while (!isBalanced(flow)) {
+                String next = nextLine();
+                if (next == null) {
+                    throw error("unterminated flow collection");
+                }
+                flow.append('\n').append(stripComment(next));
+            }
+            JsonSourceParser.parseFlow(new StringReader(flow.toString()), name, sink, line);
+        } else if (first == '"' || first == '\'') {
+            JsonSourceParser.parseFlow(new StringReader(value), name, sink, lineNumber);
+        } else if (first == '&' || first == '*' || first == '!') {
+            throw error("anchors, aliases and tags are not supported");
+        } else {
+            checkPlain(value);
+            sink.accept(name, "null".equals(value) || "~".equals(value) ? "" : plainScalar(value, indent));
+        }
+    }
+
+    /* a plain scalar along with the more indented lines that continue it, folded into one line
+     * */
+    private String plainScalar(String value, int indent) throws IOException {
+        StringBuilder sb = null;
+        int blankLines = 0;
+        String raw;
+        while ((raw = nextLine()) != null) {
+            String content = stripComment(raw);
+            int lineIndent = indentOf(content);
+            if (lineIndent == content.length()) {
+                blankLines++;
+                continue;
+            }
+            if (lineIndent <= indent) {
+                break;
+            }
+            checkPlain(content.trim());
+            if (sb == null) {
+                sb = new StringBuilder(value);
+            }
+            for (int i = 0; i < blankLines; i++) {
+                sb.append('\n');
+            }
+            sb.append(blankLines == 0 ? " " : "").append(content.trim());
+            blankLines = 0;
+        }
+        pushedBack = raw;
+        return sb != null ? sb.toString() : value;
+    }
+
+    /* a ": " in a plain scalar starts a mapping, which can't be the value of a key on the same line (e.g., "a: b: c")
+     * */
+    private void checkPlain(String text) throws IOException {
+        if (separatorOf(text) >= 0) {
+            throw error(String.format("a value containing ': ' has to be quoted: '%s'", text));
+        }
+    }
+
+    /* the lines of a '|' or '>' block scalar with the given header
+     * */
+    private String blockScalar(String header, int indent) throws IOException {
+        boolean folded = header.charAt(0) == '>';
+        char chomping = ' ';
+        int blockIndent = -1;
+        for (int i = 1; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (c == '-' || c == '+') {
+                chomping = c;
+            } else if (c >= '1' && c <= '9') {
+                blockIndent = indent + (c - '0');
+            } else if (c == ' ' || c == '\t') {
+                break;
+            } else {
+                throw error(String.format("invalid block scalar header '%s'", header));
+            }
+        }
+        List<String> lines = new ArrayList<>();
+        String raw;
+        while ((raw = nextLine()) != null) {
+            int lineIndent = indentOf(raw);
+            if (lineIndent == raw.length()) {
+                lines.add("");
+                continue;
+            }
+            if (blockIndent < 0) {
+                blockIndent = lineIndent;
+            }
+            if (lineIndent < blockIndent || lineIndent <= indent) {
+                break;
+            }
+            lines.add(raw.substring(blockIndent));
+        }
+        pushedBack = raw;
+
+        int trailing = 0;
+        while (trailing < lines.size() && lines.get(lines.size() - 1 - trailing).isEmpty()) {
+            trailing++;
+        }
+        List<String> body = lines.subList(0, lines.size() - trailing);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < body.size(); i++) {
+            String line = body.get(i);
+            if (i > 0) {
+                String previous = body.get(i - 1);
+                boolean fold = folded && !line.isEmpty() && !previous.isEmpty() && !line.startsWith(" ") && !previous.startsWith(" ");
+                if (fold) {
+                    sb.append(' ');
+                } else if (!folded || !previous.isEmpty() || line.isEmpty()) {
+                    sb.append('\n');
+                }
+            }
+            sb.append(line);
+        }
+        if (!body.isEmpty() && chomping != '-') {
+            sb.append('\n');
+        }
+        if (chomping == '+') {
+            for (int i = 0; i < trailing; i++) {
+                sb.append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private void close(Frame frame) {
+        if (frame.emptyIfChildless && frame.childless) {
+            sink.accept(frame.name, "");
+        }
+    }
+
+    private void closeAll() {
+        while (!frames.isEmpty()) {
+            close(frames.pop());
+        }
+    }
+
+    private String nextLine() throws IOException {
+        if (pushedBack != null) {
+            String line = pushedBack;
+            pushedBack = null;
+            return line;
+        }
+        String line = in.readLine();
+        if (line != null) {
+            lineNumber++;
+            if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+                line = line.substring(1);
+            }
+        }
+        return line;
+    }
+
+    private int indentOf(String line) throws IOException {
+        int indent = 0;
+        while (indent < line.length() && line.charAt(indent) == ' ') {
+            indent++;
+        }
+        if (indent < line.length() && line.charAt(indent) == '\t' && !line.trim().isEmpty()) {
+            throw error("tabs can't be used for indentation");
+        }
+        return indent;
+    }
+
+    private static boolean isSequenceItem(String text) {
+        return text.equals("-") || text.startsWith("- ");
+    }
+
+    /* the index of the ':' that separates a key from its value, or -1 if the given text is not a mapping entry
+     * */
+    private static int separatorOf(String text) {
+        int from = 0;
+        char first = text.charAt(0);
+        if (first == '[' || first == '{') {
+            return -1;
+        } else if (first == '"' || first == '\'') {
+            from = closingQuote(text, 0) + 1;
+            if (from == 0) {
+                return -1;
+            }
+            while (from < text.length() && text.charAt(from) == ' ') {
+                from++;
+            }
+            return from < text.length() && text.charAt(from) == ':' && (from + 1 == text.length() || text.charAt(from + 1) == ' ') ? from : -1;
+        }
+        for (int i = from; i < text.length(); i++) {
+            if (text.charAt(i) == ':' && (i + 1 == text.length() || text.charAt(i + 1) == ' ')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int closingQuote(String text, int start) {
+        char quote = text.charAt(start);
+        for (int i = start + 1; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quote == '"' && c == '\\') {
+                i++;
+            } else if (c == quote) {
+                if (quote == '\'' && i + 1 < text.length() && text.charAt(i + 1) == '\'') {
+                    i++;
+                } else {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private String unquote(String quoted) throws IOException {
+        String[] value = new String[1];
+        JsonSourceParser.parseFlow(new StringReader(quoted), "", (name, v) -> value[0] = v, lineNumber);
+        return value[0];
+    }
+
+    /* the given line without its comment and trailing whitespace; a '#' only starts a comment at the start of the line
+     * or after whitespace, and never inside a quoted scalar
+     * */
+    private static String stripComment(String line) {
+        int end = line.length();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            char before = i > 0 ? line.charAt(i - 1) : ' ';
+            boolean tokenStart = before == ' ' || before == '\t' || before == ':' || before == '[' || before == '{' || before == ',' || before == '-';
+            if ((c == '"' || c == '\'') && tokenStart) {
+                int close = closingQuote(line, i);
+                if (close < 0) {
+                    break;
+                }
+                i = close;
+            } else if (c == '#' && (before == ' ' || before == '\t' || i == 0)) {
+                end = i;
+                break;
+            }
+        }
+        while (end > 0 && (line.charAt(end - 1) == ' ' || line.charAt(end - 1) == '\t')) {
+            end--;
+        }
+        return line.substring(0, end);
+    }
+
+    /* whether every '[' and '{' of the given flow collection outside of quotes has been closed
+     * */
+    private static boolean isBalanced(CharSequence flow) {
+        String text = flow.toString();
+        int depth = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\'') {
+                int close = closingQuote(text, i);
+                if (close < 0) {
+                    return false;
+                }
+                i = close;
+            } else if (c == '[' || c == '{') {
+                depth++;
+            } else if (c == ']' || c == '}') {
+                depth--;
+            }
+        }
+        return depth <= 0;
+    }
+
+    private IOException error(String message) {
+        return new IOException(String.format("Invalid YAML at line %d: %s", lineNumber, message));
+    }
+
+    /* a mapping or sequence that is still being read, along with the indentation of the line that opened it
+     * */
+    private static final class Frame {
+        private final int indent;
+        private final String name;
+        // a key or sequence item without a value on its own line, which is an empty value unless a block follows it
+        private final boolean emptyIfChildless;
+        // the indentation of its first child, which every other child has to have as well; -1 until it is seen
+        private int childIndent = -1;
+        private boolean childless = true;
+        private boolean mapping;
+        private boolean sequence;
+        private int nextIndex;
+
+        Frame(int indent, String name, boolean emptyIfChildless) {
+            this.indent = indent;
+            this.name = name;
+            this.emptyIfChildless = emptyIfChildless;
+        }
+    }
+
+}
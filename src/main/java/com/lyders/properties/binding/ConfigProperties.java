@@ -0,0 +1,26 @@
+package com.lyders.properties.binding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class whose fields are filled from {@link com.lyders.properties.ApplicationProperties}. At compile time the
+ * {@link ConfigPropertiesProcessor} generates a class named after it plus "Binder" (e.g., "ServerConfigBinder" for
+ * "ServerConfig") in the same package, whose static bind() methods read, convert and validate every field without any
+ * reflection.
+ * <p>
+ * Every non-static, non-transient field is bound to the property named after the field, prefixed with
+ * {@link #prefix()} and a '.'. Use {@link ConfigProperty} on a field to change its key, give it a default value or
+ * make it required. A private field is set via its setter (e.g., "setPort" for "port"); any other field is set directly.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface ConfigProperties {
+
+    /* the prefix of the keys of all fields, e.g., "server" for "server.port"; empty for no prefix
+     * */
+    String prefix() default "";
+
+}
@@ -0,0 +1,311 @@
+package com.lyders.properties.binding;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a binder class for every class annotated with {@link ConfigProperties}. A generated binder looks like
+ * this:
+ * <pre>
+ * public final class ServerConfigBinder {
+ *     public static ServerConfig bind(ApplicationProperties properties) throws PropertyEvaluatorException
+ *     public static ServerConfig bind(ApplicationProperties properties, ServerConfig target) throws PropertyEvaluatorException
+ * }
+ * </pre>
+ * The supported field types are String, int, long, double, boolean, their boxed types and enums. A private field is set
+ * through its setter (e.g., one generated by Lombok), which has to be declared by the class itself. Anything else is a
+ * compile error on the field, so a mistake shows up when the class is compiled instead of at startup.
+ * <p>
+ * A value that fails to convert to a boxed or enum field leaves the field as it was, and like every other bad property
+ * it is reported with its key and value by the {@link PropertyBindingException} the binder throws.
+ */
+@SupportedAnnotationTypes("com.lyders.properties.binding.ConfigProperties")
+public class ConfigPropertiesProcessor extends AbstractProcessor {
+
+    static final String BINDER_SUFFIX = "Binder";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(ConfigProperties.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@ConfigProperties is only supported on classes");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            try {
+                generateBinder(type);
+            } catch (IOException e) {
+                error(type, String.format("Failed to generate the binder for %s: %s", type.getQualifiedName(), e.getMessage()));
+            }
+        }
+        return true;
+    }
+
+    private void generateBinder(TypeElement type) throws IOException {
+        if (type.getModifiers().contains(Modifier.PRIVATE)
+                || (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC))) {
+            error(type, "@ConfigProperties classes must be top-level or static nested classes that are not private");
+            return;
+        }
+        String prefix = type.getAnnotation(ConfigProperties.class).prefix();
+        String packageName = getPackage(type).getQualifiedName().toString();
+        String typeName = type.getQualifiedName().toString();
+        String binderName = binderName(type);
+
+        List<String> bindings = new ArrayList<>();
+        boolean valid = true;
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                continue;
+            }
+            if (modifiers.contains(Modifier.FINAL)) {
+                error(field, "@ConfigProperties fields must not be final");
+                valid = false;
+                continue;
+            }
+            String conversion = conversion(field.asType());
+            if (conversion == null) {
+                error(field, String.format("Unsupported @ConfigProperties field type: %s", field.asType()));
+                valid = false;
+                continue;
+            }
+            if (modifiers.contains(Modifier.PRIVATE) && !hasSetter(type, field)) {
+                error(field, String.format("Private @ConfigProperties field %s has no setter %s(%s)", field.getSimpleName(), setterName(field), field.asType()));
+                valid = false;
+                continue;
+            }
+            bindings.add(binding(field, prefix, conversion));
+        }
+        if (!valid) {
+            return;
+        }
+
+        StringBuilder src = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            src.append("package ").append(packageName).append(";\n\n");
+        }
+        src.append("import com.lyders.properties.ApplicationProperties;\n")
+                .append("import com.lyders.properties.PropertyEvaluatorException;\n")
+                .append("import com.lyders.properties.binding.Conversions;\n")
+                .append("import com.lyders.properties.binding.PropertyBindingException;\n\n")
+                .append("import java.util.ArrayList;\n")
+                .append("import java.util.List;\n\n")
+                .append("/* generated by ").append(ConfigPropertiesProcessor.class.getName()).append(" from ").append(typeName).append(" */\n")
+                .append("@javax.annotation.processing.Generated(\"").append(ConfigPropertiesProcessor.class.getName()).append("\")\n")
+                .append("public final class ").append(binderName).append(" {\n\n")
+                .append("    private ").append(binderName).append("() {\n    }\n\n");
+        if (hasNoArgConstructor(type)) {
+            src.append("    public static ").append(typeName).append(" bind(ApplicationProperties properties) throws PropertyEvaluatorException {\n")
+                    .append("        return bind(properties, new ").append(typeName).append("());\n")
+                    .append("    }\n\n");
+        }
+        src.append("    public static ").append(typeName).append(" bind(ApplicationProperties properties, ").append(typeName).append(" target) throws PropertyEvaluatorException {\n")
+                .append("        List<String> errors = new ArrayList<>();\n")
+                .append("        String value;\n");
+        for (String binding : bindings) {
+            src.append(binding);
+        }
+        src.append("        if (!errors.isEmpty()) {\n")
+                .append("            throw new PropertyBindingException(\"").append(typeName).append("\", errors);\n")
+                .append("        }\n")
+                .append("        return target;\n")
+                .append("    }\n\n")
+                .append("}\n");
+
+        String binderQualifiedName = packageName.isEmpty() ? binderName : packageName + "." + binderName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(binderQualifiedName, type).openWriter()) {
+            writer.write(src.toString());
+        }
+    }
+
+    /* the statements that read, convert and set a single field
+     * */
+    private static String binding(VariableElement field, String prefix, String conversion) {
+        String fieldName = field.getSimpleName().toString();
+        ConfigProperty property = field.getAnnotation(ConfigProperty.class);
+        String key = property != null && !property.key().isEmpty() ? property.key() : fieldName;
+        if (!prefix.isEmpty()) {
+            key = prefix + "." + key;
+        }
+        String defaultValue = property != null && !property.defaultValue().isEmpty() ? literal(property.defaultValue()) : "null";
+        String keyLiteral = literal(key);
+        String converted = String.format(conversion, keyLiteral);
+        // a boxed or enum conversion returns null when it fails, which leaves the field as it was
+        boolean nullOnFailure = field.asType().getKind() == TypeKind.DECLARED && !"value".equals(conversion);
+
+        StringBuilder src = new StringBuilder();
+        src.append("        value = properties.get(").append(keyLiteral).append(", ").append(defaultValue).append(");\n")
+                .append("        if (Conversions.isSet(value)) {\n");
+        if (nullOnFailure) {
+            src.append("            ").append(field.asType()).append(" converted = ").append(converted).append(";\n")
+                    .append("            if (converted != null) {\n")
+                    .append("                ").append(assignment(field, "converted")).append("\n")
+                    .append("            }\n");
+        } else {
+            src.append("            ").append(assignment(field, converted)).append("\n");
+        }
+        src.append("        }");
+        if (property != null && property.required()) {
+            src.append(" else {\n")
+                    .append("            Conversions.missing(").append(keyLiteral).append(", errors);\n")
+                    .append("        }");
+        }
+        return src.append("\n").toString();
+    }
+
+    private static String assignment(VariableElement field, String converted) {
+        return field.getModifiers().contains(Modifier.PRIVATE)
+                ? "target." + setterName(field) + "(" + converted + ");"
+                : "target." + field.getSimpleName() + " = " + converted + ";";
+    }
+
+    private static String setterName(VariableElement field) {
+        String fieldName = field.getSimpleName().toString();
+        return "set" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+    }
+
+    /* whether the given class declares a setter for the given private field that the binder can call: a method that is
+     * not private or static, named after the field and taking exactly the field's type
+     * */
+    private boolean hasSetter(TypeElement type, VariableElement field) {
+        String setterName = setterName(field);
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (method.getSimpleName().contentEquals(setterName) && !modifiers.contains(Modifier.PRIVATE)
+                    && !modifiers.contains(Modifier.STATIC) && method.getParameters().size() == 1
+                    && processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), field.asType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* the expression that converts "value" to the given type, with %1$s standing for the key, or null if the type is not supported
+     * */
+    private String conversion(TypeMirror fieldType) {
+        switch (fieldType.getKind()) {
+            case INT:
+                return "Conversions.toInt(%1$s, value, errors)";
+            case LONG:
+                return "Conversions.toLong(%1$s, value, errors)";
+            case DOUBLE:
+                return "Conversions.toDouble(%1$s, value, errors)";
+            case BOOLEAN:
+                return "Conversions.toBoolean(%1$s, value, errors)";
+            case DECLARED:
+                break;
+            default:
+                return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) fieldType).asElement();
+        if (element.getKind() == ElementKind.ENUM) {
+            return "Conversions.toEnum(" + element.getQualifiedName() + ".class, %1$s, value, errors)";
+        }
+        switch (element.getQualifiedName().toString()) {
+            case "java.lang.String":
+                return "value";
+            case "java.lang.Integer":
+                return "Conversions.toBoxedInt(%1$s, value, errors)";
+            case "java.lang.Long":
+                return "Conversions.toBoxedLong(%1$s, value, errors)";
+            case "java.lang.Double":
+                return "Conversions.toBoxedDouble(%1$s, value, errors)";
+            case "java.lang.Boolean":
+                return "Conversions.toBoxedBoolean(%1$s, value, errors)";
+            default:
+                return null;
+        }
+    }
+
+    private static boolean hasNoArgConstructor(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* the simple name of the binder for the given class, e.g., "Outer_InnerBinder" for the nested class Outer.Inner
+     * */
+    static String binderName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element enclosing = type.getEnclosingElement(); enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement()) {
+            name.insert(0, '_').insert(0, enclosing.getSimpleName());
+        }
+        return name.append(BINDER_SUFFIX).toString();
+    }
+
+    private static PackageElement getPackage(Element element) {
+        while (!(element instanceof PackageElement)) {
+            element = element.getEnclosingElement();
+        }
+        return (PackageElement) element;
+    }
+
+    private static String literal(String str) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : str.toCharArray()) {
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < ' ' || c > '~') {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private void error(Element element, String msg) {
+        Messager messager = processingEnv.getMessager();
+        messager.printMessage(Diagnostic.Kind.ERROR, msg, element);
+    }
+
+}
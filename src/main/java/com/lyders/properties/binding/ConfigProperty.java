@@ -0,0 +1,27 @@
+package com.lyders.properties.binding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Customizes how a field of a {@link ConfigProperties} class is bound.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface ConfigProperty {
+
+    /* the key of the property relative to the prefix of the class; the name of the field if empty
+     * */
+    String key() default "";
+
+    /* the value to use if the property is missing or empty; if this is also empty the field keeps its initial value
+     * */
+    String defaultValue() default "";
+
+    /* fail the binding if the property is missing or empty and there is no default value
+     * */
+    boolean required() default false;
+
+}
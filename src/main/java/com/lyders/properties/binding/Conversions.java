@@ -0,0 +1,113 @@
+package com.lyders.properties.binding;
+
+import java.util.List;
+
+/**
+ * The conversions called by the generated binders. Each one records a message in the given list instead of throwing so
+ * that a binder can report every bad property of an instance at once.
+ */
+public final class Conversions {
+
+    private Conversions() {
+    }
+
+    public static boolean isSet(String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    public static void missing(String key, List<String> errors) {
+        errors.add(String.format("Missing value for required property '%s'", key));
+    }
+
+    public static int toInt(String key, String value, List<String> errors) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return failed(key, value, "int", errors);
+        }
+    }
+
+    public static long toLong(String key, String value, List<String> errors) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return failed(key, value, "long", errors);
+        }
+    }
+
+    public static double toDouble(String key, String value, List<String> errors) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return failed(key, value, "double", errors);
+        }
+    }
+
+    /* unlike Boolean.parseBoolean(), anything other than "true" or "false" is an error instead of false
+     * */
+    public static boolean toBoolean(String key, String value, List<String> errors) {
+        String trimmed = value.trim();
+        if ("true".equalsIgnoreCase(trimmed)) {
+            return true;
+        } else if (!"false".equalsIgnoreCase(trimmed)) {
+            failed(key, value, "boolean", errors);
+        }
+        return false;
+    }
+
+    /* the boxed conversions return null instead of 0 or false when they fail, so that the binder leaves the field as it was
+     * */
+    public static Integer toBoxedInt(String key, String value, List<String> errors) {
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return failedBoxed(key, value, "Integer", errors);
+        }
+    }
+
+    public static Long toBoxedLong(String key, String value, List<String> errors) {
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return failedBoxed(key, value, "Long", errors);
+        }
+    }
+
+    public static Double toBoxedDouble(String key, String value, List<String> errors) {
+        try {
+            return Double.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return failedBoxed(key, value, "Double", errors);
+        }
+    }
+
+    public static Boolean toBoxedBoolean(String key, String value, List<String> errors) {
+        String trimmed = value.trim();
+        if ("true".equalsIgnoreCase(trimmed)) {
+            return Boolean.TRUE;
+        } else if ("false".equalsIgnoreCase(trimmed)) {
+            return Boolean.FALSE;
+        }
+        return failedBoxed(key, value, "Boolean", errors);
+    }
+
+    public static <E extends Enum<E>> E toEnum(Class<E> type, String key, String value, List<String> errors) {
+        try {
+            return Enum.valueOf(type, value.trim());
+        } catch (IllegalArgumentException e) {
+            errors.add(String.format("Failed to convert property '%s' value '%s' to %s", key, value, type.getSimpleName()));
+            return null;
+        }
+    }
+
+    private static int failed(String key, String value, String type, List<String> errors) {
+        errors.add(String.format("Failed to convert property '%s' value '%s' to %s", key, value, type));
+        return 0;
+    }
+
+    private static <T> T failedBoxed(String key, String value, String type, List<String> errors) {
+        failed(key, value, type, errors);
+        return null;
+    }
+
+}
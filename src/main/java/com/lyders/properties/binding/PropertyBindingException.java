@@ -0,0 +1,24 @@
+package com.lyders.properties.binding;
+
+import com.lyders.properties.PropertyEvaluatorException;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown by a generated binder when one or more properties are missing or cannot be converted. All of the problems
+ * found while binding an instance are reported at once.
+ */
+public class PropertyBindingException extends PropertyEvaluatorException {
+
+    private final List<String> errors;
+
+    public PropertyBindingException(String type, List<String> errors) {
+        super(String.format("Failed to bind %s: %s", type, String.join("; ", errors)));
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+}
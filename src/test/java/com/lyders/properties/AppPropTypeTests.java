@@ -6,6 +6,9 @@ import org.junitpioneer.jupiter.ClearSystemProperty;
 import org.junitpioneer.jupiter.SetEnvironmentVariable;
 import org.junitpioneer.jupiter.SetSystemProperty;
 
+import java.io.FileNotFoundException;
+import java.util.*;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /* Richard@Lyders.com created on 2/14/2021 */
@@ -155,4 +158,263 @@ class AppPropTypeTests {
         assertEquals(true, testBooleanViaProp);
     }
 
+    @Test
+    @SetSystemProperty(
+            key = "my-test-db-host",
+            value = "db.example.com")
+    @SetEnvironmentVariable(
+            key = "my-test-db-port",
+            value = "5432")
+    void stringTestsViaManyPlaceholders() throws PropertyEvaluatorException {
+        String testStringViaMany = props.get("test.string-via-many");
+        // a placeholder without a name is left as it is
+        assertEquals("jdbc:db.example.com:5432/db.example.com?${env:}", testStringViaMany);
+    }
+
+    @Test
+    void resolutionCacheKeepsOptionsAndDefaultsApart() throws PropertyEvaluatorException {
+        assertEquals("line1\\nline2", props.get("test.string-with-newline", null, false));
+        assertEquals("line1\nline2", props.get("test.string-with-newline"));
+        assertEquals("line1\\nline2", props.get("test.string-with-newline", null, false));
+
+        assertEquals("first-default", props.get("missing.with-default", "first-default"));
+        assertEquals("second-default", props.get("missing.with-default", "second-default"));
+
+        long hits = props.getResolutionCacheStats().getHitCount();
+        assertEquals("line1\nline2", props.get("test.string-with-newline"));
+        assertEquals(hits + 1, props.getResolutionCacheStats().getHitCount());
+    }
+
+    @Test
+    @SetSystemProperty(
+            key = "my-test-cache-prop",
+            value = "first")
+    void resolutionCacheInvalidatesChangedSystemProperties() throws PropertyEvaluatorException {
+        assertEquals("cached:first", props.get("test.string-via-cache-prop"));
+        System.setProperty("my-test-cache-prop", "second");
+        assertEquals("cached:first", props.get("test.string-via-cache-prop"));
+        assertTrue(props.invalidateChangedSystemValues() > 0);
+        assertEquals("cached:second", props.get("test.string-via-cache-prop"));
+        System.setProperty("my-test-cache-prop", "third");
+        assertTrue(props.invalidateSystemProperty("my-test-cache-prop") > 0);
+        assertEquals("cached:third", props.get("test.string-via-cache-prop"));
+    }
+
+    /*
+        test that a system property changed after the first get is seen by a value that is evaluated afterwards, while
+        the value that was already evaluated keeps its cached result until it is invalidated.
+    * */
+    @Test
+    @SetSystemProperty(
+            key = "my-test-live-prop",
+            value = "first")
+    void systemPropertiesAreReadLive() throws PropertyEvaluatorException {
+        props.put("test.live-1", "live:${prop:my-test-live-prop}");
+        assertEquals("live:first", props.get("test.live-1"));
+        System.setProperty("my-test-live-prop", "second");
+        props.put("test.live-2", "live:${prop:my-test-live-prop}");
+        assertEquals("live:second", props.get("test.live-2"));
+        assertEquals("live:first", props.get("test.live-1"));
+        assertTrue(props.invalidateSystemProperty("my-test-live-prop") > 0);
+        assertEquals("live:second", props.get("test.live-1"));
+    }
+
+    @Test
+    void resolutionCacheIsBounded() throws PropertyEvaluatorException, FileNotFoundException {
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig("typetests.properties", null, true, false);
+        cfg.setResolutionCacheMaxSize(10);
+        ApplicationProperties boundedProps = new ApplicationProperties(cfg);
+        for (int i = 0; i < 100; i++) {
+            boundedProps.put("bounded." + i, String.valueOf(i));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(String.valueOf(i), boundedProps.get("bounded." + i));
+        }
+        ResolutionCacheStats stats = boundedProps.getResolutionCacheStats();
+        assertTrue(stats.getSize() <= 10);
+        assertEquals(90, stats.getEvictionCount());
+        assertEquals(100, stats.getMissCount());
+    }
+
+    @Test
+    void primitiveValueTests() throws PropertyEvaluatorException {
+        assertEquals(123, props.getIntValue("test.int", 0));
+        assertEquals(1234567891234L, props.getLongValue("test.long", 0L));
+        assertEquals(12.5, props.getDoubleValue("test.double", 0.0));
+        assertEquals(123.0, props.getDoubleValue("test.int", 0.0));
+        assertTrue(props.getBooleanValue("test.boolean", false));
+
+        assertEquals(7, props.getIntValue("missing.int", 7));
+        assertEquals(8L, props.getLongValue("missing.long", 8L));
+        assertEquals(9.5, props.getDoubleValue("missing.double", 9.5));
+        assertTrue(props.getBooleanValue("missing.boolean", true));
+
+        // a value that does not fit or is not a number falls back to the default every time
+        assertEquals(-1, props.getIntValue("test.long", -1));
+        assertEquals(-1, props.getIntValue("test.string", -1));
+        assertEquals(-1, props.getIntValue("test.string", -1));
+        assertEquals(-1L, props.getLongValue("test.double", -1L));
+        assertFalse(props.getBooleanValue("test.string", true));
+    }
+
+    @Test
+    @SetSystemProperty(
+            key = "my-test-typed-prop",
+            value = "1")
+    void primitiveValueTestsViaProp() throws PropertyEvaluatorException {
+        assertEquals(991, props.getIntValue("test.int-via-typed-prop", 0));
+        System.setProperty("my-test-typed-prop", "2");
+        assertEquals(991, props.getIntValue("test.int-via-typed-prop", 0));
+        assertTrue(props.invalidateSystemProperty("my-test-typed-prop") > 0);
+        assertEquals(992, props.getIntValue("test.int-via-typed-prop", 0));
+    }
+
+    /*
+        test that a key set is resolved in one call, indexed by position, with the same values and typed values as the
+        single-key getters.
+    * */
+    @Test
+    void resolveKeySetInOneCall() throws PropertyEvaluatorException {
+        KeySet keys = KeySet.of("test.int", "test.long", "test.double", "test.boolean", "test.string", "missing.int", "test.string-with-newline");
+        KeyValues values = props.resolve(keys);
+        assertEquals(123, values.getIntValue(0, -1));
+        assertEquals(1234567891234L, values.getLongValue(1, -1L));
+        assertEquals(12.5, values.getDoubleValue(2, 0.0));
+        assertTrue(values.getBooleanValue(3, false));
+        assertEquals("a test string", values.get(4));
+        assertEquals(-1, values.getIntValue(4, -1));
+        assertNull(values.get("missing.int"));
+        assertEquals(7, values.getIntValue(5, 7));
+        assertEquals("line1\nline2", values.get("test.string-with-newline"));
+        assertNull(values.get("not.in.the.key.set"));
+        assertEquals(6, values.toMap().size());
+
+        String[] array = props.getAll(Arrays.asList("test.string", "missing.int", "test.int"));
+        assertArrayEquals(new String[]{"a test string", null, "123"}, array);
+        assertThrows(PropertyEvaluatorException.class, () -> props.resolve(KeySet.of("test.int", "test.string-via-prop-missing")));
+    }
+
+    /*
+        test that PreResolveValues=YES reports every value that fails to evaluate at once instead of on the first get().
+    * */
+    @Test
+    void preResolveValuesFailsOnEveryBadValue() {
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig("typetests.properties", null, true, false);
+        cfg.setPreResolveValues(ApplicationPropertiesConfig.PreResolveValues.YES);
+        PropertiesResolutionException e = assertThrows(PropertiesResolutionException.class, () -> new ApplicationProperties(cfg));
+        assertTrue(e.getErrors().size() > 1);
+        assertTrue(e.getMessage().contains("test.string-via-prop-missing"));
+    }
+
+    @Test
+    @SetSystemProperty(
+            key = "my-test-eager-prop",
+            value = "first")
+    void preResolveValuesMakesGetASingleLookup() throws PropertyEvaluatorException, FileNotFoundException {
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig("myapp.properties", "-unittest", true, false);
+        cfg.setPreResolveValues(ApplicationPropertiesConfig.PreResolveValues.YES);
+        ApplicationProperties eagerProps = new ApplicationProperties(cfg, "conf");
+        eagerProps.put("test.eager", "eager:${prop:my-test-eager-prop}\\n");
+        eagerProps.put("test.eager.port", "8080");
+
+        ResolutionCacheStats before = eagerProps.getResolutionCacheStats();
+        assertEquals("eager:first\n", eagerProps.get("test.eager"));
+        assertEquals("myapp conf directory unittest suffix", eagerProps.get("test"));
+        // the typed getters only parse the pre-resolved value
+        assertEquals(8080, eagerProps.getIntValue("test.eager.port", 0));
+        assertEquals(8080L, eagerProps.getLongValue("test.eager.port", 0L));
+        ResolutionCacheStats after = eagerProps.getResolutionCacheStats();
+        assertEquals(before.getHitCount() + before.getMissCount(), after.getHitCount() + after.getMissCount());
+
+        // other options and defaults still go through the cache
+        assertEquals("eager:${prop:my-test-eager-prop}\\n", eagerProps.get("test.eager", null, false, false));
+        assertEquals("default", eagerProps.get("missing.eager", "default"));
+
+        System.setProperty("my-test-eager-prop", "second");
+        assertEquals("eager:first\n", eagerProps.get("test.eager"));
+        assertEquals(1, eagerProps.invalidateSystemProperty("my-test-eager-prop"));
+        assertEquals("eager:second\n", eagerProps.get("test.eager"));
+
+        // a put() resolves again only the changed value and the values that reference it
+        eagerProps.put("test.eager.url", "http://host:${test.eager.port}");
+        assertEquals("http://host:8080", eagerProps.get("test.eager.url"));
+        eagerProps.put("test.eager.port", "9090");
+        assertEquals("http://host:9090", eagerProps.get("test.eager.url"));
+        assertEquals(9090, eagerProps.getIntValue("test.eager.port", 0));
+        assertEquals("eager:second\n", eagerProps.get("test.eager"));
+        eagerProps.remove("test.eager.port");
+        assertEquals(0, eagerProps.getIntValue("test.eager.port", 0));
+    }
+
+    /*
+        test that with PreResolveValues=YES a pre-resolved value is parsed once for all of the typed getters and warns only once when it is not a number.
+    * */
+    @Test
+    void preResolveValuesParsesTypedValuesOnce() throws PropertyEvaluatorException, FileNotFoundException {
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig("myapp.properties", "-unittest", true, false);
+        cfg.setPreResolveValues(ApplicationPropertiesConfig.PreResolveValues.YES);
+        ApplicationProperties eagerProps = new ApplicationProperties(cfg, "conf");
+        eagerProps.put("test.eager.name", "not-a-number");
+
+        assertEquals(-1, eagerProps.getIntValue("test.eager.name", -1));
+        assertEquals(-1, eagerProps.getIntValue("test.eager.name", -1));
+        assertEquals(-1, eagerProps.resolve(KeySet.of("test.eager.name")).getIntValue(0, -1));
+        ResolutionCache.TypedValue typed = eagerProps.getTypedValue("test.eager.name");
+        assertSame(typed, eagerProps.getTypedValue("test.eager.name"));
+        // the first getIntValue() already logged the warning
+        assertFalse(typed.shouldWarn(ResolutionCache.TypedValue.INT));
+
+        eagerProps.put("test.eager.name", "42");
+        assertEquals(42, eagerProps.getIntValue("test.eager.name", -1));
+        assertNotSame(typed, eagerProps.getTypedValue("test.eager.name"));
+    }
+
+    @Test
+    void prefixLookups() throws FileNotFoundException {
+        ApplicationProperties prefixProps = new ApplicationProperties(new ApplicationPropertiesConfig("typetests.properties", null, true, false));
+        prefixProps.put("kafka.consumer.group.id", "group");
+        prefixProps.put("kafka.consumer.timeout", "10");
+        prefixProps.put("kafka.producer.acks", "all");
+        prefixProps.put("kafka", "root");
+        prefixProps.put("kafkaesque", "not a child");
+
+        assertEquals(Arrays.asList("kafka.consumer.group.id", "kafka.consumer.timeout"), new ArrayList<>(prefixProps.getByPrefix("kafka.consumer.").keySet()));
+        assertEquals(new HashSet<>(Arrays.asList("consumer", "producer")), prefixProps.childKeys("kafka"));
+        assertEquals(new HashSet<>(Arrays.asList("group", "timeout")), prefixProps.childKeys("kafka.consumer."));
+        assertTrue(prefixProps.childKeys("test").contains("int-via-env"));
+
+        Map<String, String> consumer = prefixProps.subset("kafka.consumer");
+        assertEquals(2, consumer.size());
+        assertEquals("group", consumer.get("group.id"));
+        assertEquals(new HashSet<>(Arrays.asList("group.id", "timeout")), consumer.keySet());
+        // the subset is a live view
+        prefixProps.put("kafka.consumer.client.id", "client");
+        assertEquals("client", consumer.get("client.id"));
+        assertEquals(3, consumer.size());
+        assertThrows(UnsupportedOperationException.class, () -> consumer.put("x", "y"));
+
+        // writes mixed with prefix lookups, across many chunks of the index, find the same names as sorting them all
+        TreeMap<String, String> expected = new TreeMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            String key = String.format("bulk.%04d", random.nextInt(3000));
+            if (random.nextInt(4) == 0) {
+                prefixProps.remove(key);
+                expected.remove(key);
+            } else {
+                prefixProps.put(key, "v" + i);
+                expected.put(key, "v" + i);
+            }
+            if (i % 500 == 0) {
+                assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(prefixProps.getByPrefix("bulk.").keySet()));
+            }
+        }
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(prefixProps.getByPrefix("bulk.").entrySet()));
+        assertEquals(new ArrayList<>(expected.subMap("bulk.1", "bulk.2").keySet()), new ArrayList<>(prefixProps.getByPrefix("bulk.1").keySet()));
+        assertEquals(expected.size(), prefixProps.subset("bulk").size());
+        prefixProps.putAll(Collections.singletonMap("bulk.9999.x", "deep"));
+        assertTrue(prefixProps.childKeys("bulk").contains("9999"));
+        assertEquals(expected.size() + 1, prefixProps.childKeys("bulk").size());
+    }
+
 }
@@ -1,18 +1,49 @@
 package com.lyders.properties;
 
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import javax.servlet.*;
 import javax.servlet.descriptor.JspConfigDescriptor;
 import javax.sound.midi.SysexMessage;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
+import java.net.URLClassLoader;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.lyders.properties.ApplicationProperties.*;
 import static com.lyders.properties.ApplicationProperties.PATH_TYPE.SERVLET_PREFIX;
@@ -289,6 +320,33 @@ public class ApplicationPropertiesTests {
         assertTrue(sources.containsKey(suffixedPropFilePath));
     }
 
+    /*
+        test that the provenance index tells which file each value came from and every file that set it.
+    * */
+    @Test
+    public void sourceOfAndOverrideChain() throws FileNotFoundException, PropertyEvaluatorException {
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig("myapp.properties", "-unittest", LoadClassPathRootPropertiesAsDefaults.YES, LogSourceFilePathsAndProperties.YES);
+        ApplicationProperties properties = new ApplicationProperties(cfg, "conf");
+        String suffixedPropFilePath = Paths.get(System.getProperty("user.dir"), "conf", "myapp-unittest.properties").toString();
+
+        assertEquals(suffixedPropFilePath, properties.sourceOf("test"));
+        List<String> chain = properties.overrideChain("test");
+        assertEquals(4, chain.size());
+        assertTrue(chain.get(0).endsWith("myapp.properties"));
+        assertEquals(suffixedPropFilePath, chain.get(3));
+        assertEquals(properties.get("test"), properties.getSources().get(suffixedPropFilePath).getProperty("test"));
+        assertTrue(properties.getSources().get(chain.get(0)).getProperty("classpath-myapp-properties") != null);
+        assertNull(properties.sourceOf("missing"));
+        assertTrue(properties.overrideChain("missing").isEmpty());
+
+        List<String> printed = new ArrayList<>();
+        properties.printAllSourcesAndProperties(printed::add);
+        assertTrue(printed.contains("    test (overridden by " + suffixedPropFilePath + ")"));
+        assertTrue(printed.contains("    test=" + properties.get("test")));
+
+        assertNull(new ApplicationProperties(new ApplicationPropertiesConfig("myapp.properties", "-unittest"), "conf").sourceOf("test"));
+    }
+
     @Test
     public void printApplicationPropertiesToString() throws FileNotFoundException {
         String propFile = "myapp.properties";
@@ -318,4 +376,953 @@ public class ApplicationPropertiesTests {
         assertEquals(expectedServletDetaultPropertiesFilePath, path);
     }
 
+
+    /*
+        test that loading all of the properties files in parallel still applies the overrides in the order the paths were given.
+    * */
+    @Test
+    public void loadSourcesInParallelKeepsOverrideOrder() throws FileNotFoundException, PropertyEvaluatorException {
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig("myapp.properties", "-unittest", LoadClassPathRootPropertiesAsDefaults.YES, LogSourceFilePathsAndProperties.YES);
+        cfg.setLoadSourcesInParallel(LoadSourcesInParallel.YES);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            cfg.setLoadExecutor(executor);
+            ApplicationProperties properties = new ApplicationProperties(cfg, "conf");
+            ApplicationProperties sequentialProperties = new ApplicationProperties(new ApplicationPropertiesConfig("myapp.properties", "-unittest", LoadClassPathRootPropertiesAsDefaults.YES), "conf");
+
+            assertEquals("myapp conf directory unittest suffix", properties.get("test"));
+            assertEquals("classpath-myapp.properties", properties.get("classpath-myapp-properties"));
+            assertEquals(new HashMap<>(sequentialProperties), new HashMap<>(properties));
+            assertEquals(4, properties.getSources().size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /*
+        test that loading in parallel reports the same missing file as loading sequentially.
+    * */
+    @Test
+    public void loadSourcesInParallelFromFileSystemThatDoesNotExist() {
+        String gibberish = "gibberish";
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.YES, gibberish, "conf", gibberish + "2");
+        cfg.setLoadSourcesInParallel(LoadSourcesInParallel.YES);
+
+        Exception exception = assertThrows(FileNotFoundException.class, () -> {
+            ApplicationProperties properties = new ApplicationProperties(cfg);
+        });
+
+        String expectedMessage2 = String.format(FAILED_TO_LOAD_PROPERTIES_FROM_CLASS_PATH_MSG_TEMPLATE, ApplicationProperties.PATH_TYPE.FILEPATH_PREFIX, DEFAULT_PROPERTIES_FILENAME, gibberish);
+        assertEquals(expectedMessage2, exception.getMessage());
+    }
+
+    /*
+        test that the merged properties are written to a snapshot file, read back from it, and reloaded from the properties files once one of them changes.
+    * */
+    @Test
+    public void loadFromSnapshotUntilSourceChanges(@TempDir Path tempDir) throws IOException, PropertyEvaluatorException {
+        Path propFile = tempDir.resolve(DEFAULT_PROPERTIES_FILENAME);
+        Files.write(propFile, Arrays.asList("a=1", "b=base"));
+        Files.write(tempDir.resolve("application-unittest.properties"), Collections.singletonList("b=suffix"));
+        Path snapshotFile = tempDir.resolve("application.snapshot");
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig(null, "-unittest", LoadClassPathRootPropertiesAsDefaults.NO, tempDir.toString());
+        cfg.setSnapshotFilePath(snapshotFile.toString());
+
+        ApplicationProperties properties = new ApplicationProperties(cfg);
+        assertEquals("1", properties.get("a"));
+        assertTrue(Files.exists(snapshotFile));
+
+        ConfigSnapshotFile snapshot = ConfigSnapshotFile.open(snapshotFile);
+        assertEquals(properties.getCfg().getSourcesKey(), snapshot.getConfigKey());
+        assertTrue(snapshot.isFresh());
+        assertEquals("suffix", snapshot.get("b"));
+        assertNull(snapshot.get("missing"));
+
+        ApplicationProperties fromSnapshot = new ApplicationProperties(cfg);
+        assertEquals(new HashMap<>(properties), new HashMap<>(fromSnapshot));
+
+        Files.write(propFile, Arrays.asList("a=22", "b=base"));
+        assertFalse(ConfigSnapshotFile.open(snapshotFile).isFresh());
+        ApplicationProperties reloaded = new ApplicationProperties(cfg);
+        assertEquals("22", reloaded.get("a"));
+        assertEquals("suffix", reloaded.get("b"));
+        assertTrue(ConfigSnapshotFile.open(snapshotFile).isFresh());
+    }
+
+    /*
+        test that a changed properties file is reloaded when WatchSourcesForChanges=YES and that values cached by get() before the change are dropped.
+    * */
+    @Test
+    public void reloadChangedFileWhenWatchingSources(@TempDir Path tempDir) throws IOException, PropertyEvaluatorException, InterruptedException {
+        Path propFile = tempDir.resolve(DEFAULT_PROPERTIES_FILENAME);
+        Path suffixedPropFile = tempDir.resolve("application-unittest.properties");
+        Files.write(propFile, Arrays.asList("a=1", "b=base"));
+        Files.write(suffixedPropFile, Collections.singletonList("b=suffix"));
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig(null, "-unittest", LoadClassPathRootPropertiesAsDefaults.NO, tempDir.toString());
+        cfg.setWatchSourcesForChanges(WatchSourcesForChanges.YES);
+
+        try (ApplicationProperties properties = new ApplicationProperties(cfg)) {
+            assertEquals("1", properties.get("a"));
+            assertEquals("suffix", properties.get("b"));
+
+            Files.write(propFile, Arrays.asList("a=2", "b=base2", "c=new"));
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!"2".equals(properties.get("a")) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals("2", properties.get("a"));
+            // the suffixed file still overrides the reloaded base file
+            assertEquals("suffix", properties.get("b"));
+            assertEquals("new", properties.get("c"));
+            assertEquals("new", properties.get("c", null, true, true));
+        }
+    }
+
+    /*
+        test that values set and properties removed through the Map methods survive a reload of a changed file.
+    * */
+    @Test
+    public void mapWritesSurviveReload(@TempDir Path tempDir) throws IOException, PropertyEvaluatorException, InterruptedException {
+        Path propFile = tempDir.resolve(DEFAULT_PROPERTIES_FILENAME);
+        Files.write(propFile, Arrays.asList("a=1", "override=file", "gone=file"));
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, tempDir.toString());
+        cfg.setWatchSourcesForChanges(WatchSourcesForChanges.YES);
+
+        try (ApplicationProperties properties = new ApplicationProperties(cfg)) {
+            properties.put("override", "api");
+            properties.put("added", "api");
+            properties.remove("gone");
+
+            Files.write(propFile, Arrays.asList("a=2", "override=file2", "gone=file2"));
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!"2".equals(properties.get("a")) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals("2", properties.get("a"));
+            assertEquals("api", properties.get("override"));
+            assertEquals("api", properties.get("added"));
+            assertFalse(properties.containsKey("gone"));
+        }
+    }
+
+    /*
+        test that every change made through the inherited Map methods is seen by get(), and that the Map methods read the same view as get().
+    * */
+    @Test
+    public void mapMethodsArePublishedToGet(@TempDir Path tempDir) throws IOException, PropertyEvaluatorException {
+        Files.write(tempDir.resolve(DEFAULT_PROPERTIES_FILENAME), Arrays.asList("a=1", "b=2"));
+        ApplicationProperties properties = new ApplicationProperties(new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, tempDir.toString()));
+        assertEquals("1", properties.get("a"));
+
+        assertNull(properties.putIfAbsent("c", "3"));
+        assertEquals("3", properties.get("c"));
+        assertEquals("12", properties.merge("a", "2", String::concat));
+        assertEquals("12", properties.get("a"));
+        assertEquals("2", properties.replace("b", "22"));
+        assertEquals("22", properties.get("b"));
+        properties.compute("d", (k, v) -> "4");
+        assertEquals("4", properties.get("d"));
+        properties.computeIfPresent("d", (k, v) -> null);
+        assertNull(properties.get("d"));
+        properties.replaceAll((k, v) -> v + "!");
+        assertEquals("12!", properties.get("a"));
+        assertTrue(properties.remove("c", "3!"));
+        assertNull(properties.get("c"));
+
+        assertEquals(2, properties.size());
+        assertEquals("22!", properties.getOrDefault("b", null));
+        Map.Entry<String, String> entry = properties.entrySet().iterator().next();
+        assertThrows(UnsupportedOperationException.class, () -> entry.setValue("x"));
+        assertThrows(UnsupportedOperationException.class, () -> properties.keySet().remove("a"));
+        assertThrows(UnsupportedOperationException.class, () -> properties.values().clear());
+        assertEquals("12!", properties.get("a"));
+
+        // a null name is rejected before anything changes, so the Map methods and get() still agree
+        assertThrows(NullPointerException.class, () -> properties.put(null, "x"));
+        Map<String, String> withNullName = new HashMap<>();
+        withNullName.put("e", "5");
+        withNullName.put(null, "x");
+        assertThrows(NullPointerException.class, () -> properties.putAll(withNullName));
+        assertThrows(NullPointerException.class, () -> properties.merge(null, "x", String::concat));
+        assertNull(properties.remove(null));
+        assertFalse(properties.containsKey(null));
+        assertNull(properties.get("e"));
+        assertEquals(2, properties.size());
+        assertEquals(properties.size(), new HashMap<>(properties).size());
+    }
+
+    /*
+        test that a configured listener receives the load timings of each properties file, every lookup, the evaluation of
+        placeholders and typed conversion failures.
+    * */
+    @Test
+    public void listenerReceivesLoadAndLookupEvents() throws FileNotFoundException, PropertyEvaluatorException {
+        List<String> loaded = Collections.synchronizedList(new ArrayList<>());
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        List<String> gets = Collections.synchronizedList(new ArrayList<>());
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig("myapp.properties", "-unittest", LoadClassPathRootPropertiesAsDefaults.YES);
+        cfg.setListener(new ApplicationPropertiesListener() {
+            @Override
+            public void onSourceLoaded(String path, long durationNanos, long bytes, int keyCount) {
+                assertTrue(bytes > 0);
+                assertTrue(keyCount > 0);
+                loaded.add(path);
+            }
+
+            @Override
+            public void onInitialized(long durationNanos, int sourceCount, int keyCount) {
+                events.add("initialized:" + sourceCount);
+            }
+
+            @Override
+            public void onGet(String propertyName, boolean hit) {
+                gets.add(propertyName + (hit ? ":hit" : ":miss"));
+            }
+
+            @Override
+            public void onEvaluated(String propertyName, long durationNanos) {
+                events.add("evaluated:" + propertyName);
+            }
+
+            @Override
+            public void onConversionFailed(String propertyName, String value, String type) {
+                events.add("failed:" + propertyName + ":" + type);
+            }
+        });
+        ApplicationProperties properties = new ApplicationProperties(cfg, "conf");
+        properties.put("listener.eval", "${prop:java.version}");
+        properties.put("listener.nan", "not-a-number");
+
+        properties.get("listener.eval");
+        properties.get("listener.eval");
+        assertEquals(-1, properties.getIntValue("listener.nan", -1));
+
+        assertEquals(4, loaded.size());
+        assertEquals(Arrays.asList("initialized:4", "evaluated:listener.eval", "failed:listener.nan:int"), events);
+        assertEquals(Arrays.asList("listener.eval:miss", "listener.eval:hit", "listener.nan:miss"), gets);
+    }
+
+    /*
+        test that each instance registers its own MBean when asked to, and unregisters it when closed.
+    * */
+    @Test
+    public void registerMBeanPerInstance() throws Exception {
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig("myapp.properties", "-unittest", LoadClassPathRootPropertiesAsDefaults.YES);
+        cfg.setRegisterMBean(RegisterMBean.YES);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ApplicationProperties properties = new ApplicationProperties(cfg, "conf");
+        ApplicationProperties other = new ApplicationProperties(cfg, "conf");
+        try {
+            ObjectName name = properties.getMBeanName();
+            assertNotNull(name);
+            assertNotEquals(name, other.getMBeanName());
+            assertEquals(ApplicationProperties.MBEAN_DOMAIN, name.getDomain());
+
+            properties.get("test");
+            properties.get("test");
+            assertEquals(4, server.getAttribute(name, "SourceCount"));
+            assertEquals(properties.size(), server.getAttribute(name, "KeyCount"));
+            assertEquals(2L, server.getAttribute(name, "GetCount"));
+            assertEquals(1L, server.getAttribute(name, "GetMissCount"));
+            assertEquals(1L, server.getAttribute(name, "CacheHitCount"));
+            assertTrue((Long) server.getAttribute(name, "InitTimeNanos") > 0);
+            assertTrue((Long) server.getAttribute(name, "SourceBytes") > 0);
+            String[] sources = (String[]) server.getAttribute(name, "Sources");
+            assertEquals(4, sources.length);
+            assertTrue(sources[0].matches(".*: \\d+ ns, \\d+ bytes, \\d+ keys"), sources[0]);
+
+            properties.close();
+            assertFalse(server.isRegistered(name));
+            assertNull(properties.getMBeanName());
+        } finally {
+            properties.close();
+            other.close();
+        }
+    }
+
+    /*
+        test that instances share the parsed class path properties files with ShareClassPathSources=YES, and that they
+        don't by default.
+    * */
+    @Test
+    public void shareClassPathSourcesBetweenInstances() throws FileNotFoundException {
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig("myapp.properties", "-unittest", LoadClassPathRootPropertiesAsDefaults.YES);
+        cfg.setShareClassPathSources(ShareClassPathSources.YES);
+        ApplicationProperties first = new ApplicationProperties(cfg, "conf");
+        ApplicationProperties second = new ApplicationProperties(cfg, "conf");
+        PropertiesSource source = first.loadPropertiesFromClassPath("", "myapp.properties");
+        assertSame(source, second.loadPropertiesFromClassPath("", "myapp.properties"));
+        assertThrows(UnsupportedOperationException.class, () -> source.getProperties().put("test", "changed"));
+
+        ApplicationPropertiesConfig defaultCfg = new ApplicationPropertiesConfig("myapp.properties", "-unittest", LoadClassPathRootPropertiesAsDefaults.YES);
+        ApplicationProperties unshared = new ApplicationProperties(defaultCfg, "conf");
+        PropertiesSource unsharedSource = unshared.loadPropertiesFromClassPath("", "myapp.properties");
+        assertNotSame(source, unsharedSource);
+        assertEquals(source.getProperties(), unsharedSource.getProperties());
+    }
+
+    /*
+        test that a shared class path properties file is parsed again once it changes.
+    * */
+    @Test
+    public void sharedClassPathSourceIsReparsedWhenChanged(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("shared.properties");
+        Files.write(file, "shared=first\n".getBytes());
+        URL url = file.toUri().toURL();
+        int[] parsed = {0};
+        ClassPathSourceCache.Parser parser = () -> {
+            parsed[0]++;
+            Map<String, String> properties = new LinkedHashMap<>();
+            int size = PropertiesFileParser.parse(file, properties::put);
+            return new PropertiesSource(url.toString(), PATH_TYPE.CLASSPATH_PREFIX, properties, size);
+        };
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[0])) {
+            assertEquals("first", ClassPathSourceCache.get(classLoader, url, parser).getProperties().get("shared"));
+            assertEquals("first", ClassPathSourceCache.get(classLoader, url, parser).getProperties().get("shared"));
+            assertEquals(1, parsed[0]);
+
+            Files.write(file, "shared=second\n".getBytes());
+            assertEquals("second", ClassPathSourceCache.get(classLoader, url, parser).getProperties().get("shared"));
+            assertEquals(2, parsed[0]);
+        }
+    }
+
+    /*
+        test that a process attached to a shared segment sees the properties of the publisher through get() and the Map
+        methods alike, including later changes and changes too big to be written in place.
+    * */
+    @Test
+    public void attachToSharedSegment(@TempDir Path tempDir) throws IOException, PropertyEvaluatorException, InterruptedException {
+        Files.write(tempDir.resolve(DEFAULT_PROPERTIES_FILENAME), Arrays.asList("a=1", "b=${prop:user.name}", "port=8080", "db.url=jdbc:x", "db.user=sa"));
+        Path segmentFile = tempDir.resolve("application.segment");
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, tempDir.toString());
+        cfg.setSharedSegmentFilePath(segmentFile.toString());
+
+        ApplicationPropertiesConfig attachCfg = new ApplicationPropertiesConfig(cfg);
+        attachCfg.setSharedSegmentMode(SharedSegmentMode.ATTACH);
+        assertThrows(FileNotFoundException.class, () -> new ApplicationProperties(attachCfg));
+
+        cfg.setSharedSegmentMode(SharedSegmentMode.PUBLISH);
+        ApplicationProperties publisher = new ApplicationProperties(cfg);
+        ApplicationProperties attached = new ApplicationProperties(attachCfg);
+        // the inherited Map methods read the segment too
+        assertEquals(5, attached.size());
+        assertFalse(attached.isEmpty());
+        assertTrue(attached.containsKey("port"));
+        assertEquals("1", attached.getOrDefault("a", null));
+        assertEquals(new HashMap<>(publisher), new HashMap<>(attached));
+        List<String> printed = new ArrayList<>();
+        attached.printAllProperties(printed::add);
+        assertTrue(printed.contains("port: 8080"));
+        assertThrows(UnsupportedOperationException.class, () -> attached.putIfAbsent("c", "3"));
+        assertThrows(UnsupportedOperationException.class, () -> attached.merge("a", "2", String::concat));
+        assertEquals("1", attached.get("a"));
+        assertEquals(System.getProperty("user.name"), attached.get("b"));
+        assertEquals(8080, attached.getIntValue("port", 0));
+        assertEquals(new HashSet<>(Arrays.asList("url", "user")), attached.subset("db").keySet());
+        // the prefix lookups binary search the segment's sorted entries
+        assertEquals(Arrays.asList("db.url", "db.user"), new ArrayList<>(attached.getByPrefix("db.").keySet()));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "port", "db")), attached.childKeys(""));
+        assertEquals(2, attached.subset("db").size());
+        assertTrue(attached.getByPrefix("x").isEmpty());
+        assertNull(attached.get("missing"));
+        assertThrows(UnsupportedOperationException.class, () -> attached.put("a", "2"));
+
+        // the publisher writes its changes to the segment in the background
+        publisher.put("a", "2");
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!"2".equals(attached.get("a")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals("2", attached.get("a"));
+
+        // too big for the file, so the publisher moves to a bigger one
+        char[] big = new char[SharedConfigSegment.MIN_CAPACITY];
+        Arrays.fill(big, 'x');
+        publisher.put("big", new String(big));
+        publisher.put("port", "9090");
+        deadline = System.currentTimeMillis() + 10_000;
+        while (!"9090".equals(attached.get("port")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(new String(big), attached.get("big"));
+        assertEquals(9090, attached.getIntValue("port", 0));
+
+        // a new publisher takes over from the old one
+        ApplicationProperties republisher = new ApplicationProperties(cfg);
+        assertNull(attached.get("big"));
+        assertEquals("1", attached.get("a"));
+        assertEquals(new HashMap<>(republisher), new HashMap<>(attached.getByPrefix("")));
+    }
+
+    /*
+        test that a process attached to a shared segment evaluates references, finds a circular reference and drops the
+        values that depend on an invalidated system property, while only compiling the values it resolves.
+    * */
+    @Test
+    public void resolveReferencesInSharedSegment(@TempDir Path tempDir) throws IOException, PropertyEvaluatorException {
+        Files.write(tempDir.resolve(DEFAULT_PROPERTIES_FILENAME), Arrays.asList("host=db", "port=${prop:my-attached-port}",
+                "url=jdbc:${host}:${port}", "loop.a=x${loop.b}", "loop.b=y${loop.a}", "other=${host}"));
+        Path segmentFile = tempDir.resolve("application.segment");
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, tempDir.toString());
+        cfg.setSharedSegmentFilePath(segmentFile.toString());
+        cfg.setSharedSegmentMode(SharedSegmentMode.PUBLISH);
+        ApplicationPropertiesConfig attachCfg = new ApplicationPropertiesConfig(cfg);
+        attachCfg.setSharedSegmentMode(SharedSegmentMode.ATTACH);
+        System.setProperty("my-attached-port", "5432");
+        try (ApplicationProperties publisher = new ApplicationProperties(cfg);
+             ApplicationProperties attached = new ApplicationProperties(attachCfg)) {
+            assertEquals("jdbc:db:5432", attached.get("url"));
+            PropertyEvaluatorException e = assertThrows(PropertyEvaluatorException.class, () -> attached.get("loop.a"));
+            assertTrue(e.getMessage().contains("loop.a -> loop.b -> loop.a"), e.getMessage());
+            assertThrows(PropertyEvaluatorException.class, () -> attached.get("loop.b"));
+
+            System.setProperty("my-attached-port", "5433");
+            assertEquals("jdbc:db:5432", attached.get("url"));
+            // "url" is dropped along with "port", since it was resolved through it
+            assertEquals(2, attached.invalidateSystemProperty("my-attached-port"));
+            assertEquals("jdbc:db:5433", attached.get("url"));
+            assertEquals("db", attached.get("other"));
+        } finally {
+            System.clearProperty("my-attached-port");
+        }
+    }
+
+    /*
+        test that a null value is published to the shared segment like any other value and doesn't stop later updates.
+    * */
+    @Test
+    public void publishNullValueToSharedSegment(@TempDir Path tempDir) throws IOException, PropertyEvaluatorException, InterruptedException {
+        Files.write(tempDir.resolve(DEFAULT_PROPERTIES_FILENAME), Collections.singletonList("a=1"));
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, tempDir.toString());
+        cfg.setSharedSegmentFilePath(tempDir.resolve("application.segment").toString());
+        ApplicationPropertiesConfig attachCfg = new ApplicationPropertiesConfig(cfg);
+        attachCfg.setSharedSegmentMode(SharedSegmentMode.ATTACH);
+        cfg.setSharedSegmentMode(SharedSegmentMode.PUBLISH);
+        ApplicationProperties publisher = new ApplicationProperties(cfg);
+        ApplicationProperties attached = new ApplicationProperties(attachCfg);
+
+        publisher.put("n", null);
+        publisher.put("a", "2");
+        assertEquals("2", publisher.get("a"));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!"2".equals(attached.get("a")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals("2", attached.get("a"));
+        assertNull(attached.get("n"));
+        assertTrue(attached.containsKey("n"));
+        assertFalse(attached.containsKey("missing"));
+        assertEquals(2, attached.size());
+        assertEquals(new HashMap<>(publisher), new HashMap<>(attached));
+
+        // close() writes whatever has not reached the segment yet
+        publisher.put("c", "3");
+        publisher.close();
+        assertEquals("3", attached.get("c"));
+    }
+
+    /*
+        test that subscribers receive coalesced old and new values on the change executor, and that a slow subscriber
+        does not hold up the others.
+    * */
+    @Test
+    public void subscribeToChanges(@TempDir Path tempDir) throws IOException, InterruptedException {
+        Files.write(tempDir.resolve(DEFAULT_PROPERTIES_FILENAME), Arrays.asList("a=1", "db.url=jdbc:x", "other=1"));
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, tempDir.toString());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            cfg.setChangeExecutor(executor);
+            cfg.setChangeDebounceMillis(200);
+            ApplicationProperties properties = new ApplicationProperties(cfg);
+            Thread caller = Thread.currentThread();
+            BlockingQueue<List<PropertyChange>> keyChanges = new LinkedBlockingQueue<>();
+            BlockingQueue<List<PropertyChange>> prefixChanges = new LinkedBlockingQueue<>();
+            CountDownLatch release = new CountDownLatch(1);
+            PropertiesSubscription keySubscription = properties.subscribe("a", changes -> {
+                assertNotSame(caller, Thread.currentThread());
+                keyChanges.add(changes);
+            });
+            properties.subscribeToPrefix("db.", changes -> prefixChanges.add(changes));
+            properties.subscribe("other", changes -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            properties.put("other", "2");
+            properties.put("a", "2");
+            properties.put("a", "3");
+            properties.putAll(Collections.singletonMap("db.user", "sa"));
+            properties.remove("db.url");
+
+            assertEquals(Collections.singletonList(new PropertyChange("a", "1", "3")), keyChanges.poll(5, TimeUnit.SECONDS));
+            List<PropertyChange> dbChanges = prefixChanges.poll(5, TimeUnit.SECONDS);
+            assertEquals(Arrays.asList(new PropertyChange("db.user", null, "sa"), new PropertyChange("db.url", "jdbc:x", null)), dbChanges);
+            release.countDown();
+
+            // a change that is undone before it is delivered is not delivered at all
+            properties.put("a", "4");
+            properties.put("a", "3");
+            keySubscription.close();
+            properties.put("a", "5");
+            assertNull(keyChanges.poll(500, TimeUnit.MILLISECONDS));
+            assertTrue(keySubscription.isClosed());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /*
+        test that subscribers that block on the default change executor don't hold up the others, however few CPUs there are.
+    * */
+    @Test
+    public void blockingSubscribersDoNotStallDefaultChangeExecutor(@TempDir Path tempDir) throws IOException, InterruptedException {
+        Files.write(tempDir.resolve(DEFAULT_PROPERTIES_FILENAME), Collections.singletonList("a=1"));
+        ApplicationProperties properties = new ApplicationProperties(new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, tempDir.toString()));
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<List<PropertyChange>> changes = new LinkedBlockingQueue<>();
+        try {
+            for (int i = 0; i < Runtime.getRuntime().availableProcessors() + 1; i++) {
+                properties.subscribe("blocked." + i, blocked -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                properties.put("blocked." + i, "x");
+            }
+            properties.subscribe("a", changes::add);
+            properties.put("a", "2");
+            assertEquals(Collections.singletonList(new PropertyChange("a", "1", "2")), changes.poll(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    /*
+        test that loading asynchronously completes with the same properties as the constructor, fails with the same
+        exception, and can wait for properties that only show up in a changed file later.
+    * */
+    @Test
+    public void loadAsync(@TempDir Path tempDir) throws Exception {
+        Path propFile = tempDir.resolve(DEFAULT_PROPERTIES_FILENAME);
+        Files.write(propFile, Collections.singletonList("a=1"));
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, tempDir.toString());
+
+        ApplicationProperties properties = ApplicationProperties.loadAsync(cfg).get(10, TimeUnit.SECONDS);
+        assertEquals("1", properties.get("a"));
+
+        List<Exception> failures = Collections.synchronizedList(new ArrayList<>());
+        ApplicationPropertiesConfig missingCfg = new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, tempDir.resolve("missing").toString());
+        missingCfg.setListener(new ApplicationPropertiesListener() {
+            @Override
+            public void onSourceFailed(Exception e) {
+                failures.add(e);
+            }
+        });
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> ApplicationProperties.loadAsync(missingCfg, Runnable::run).get());
+        assertTrue(e.getCause() instanceof FileNotFoundException);
+        assertEquals(1, failures.size());
+
+        e = assertThrows(ExecutionException.class,
+                () -> ApplicationProperties.loadAsync(cfg, null, Arrays.asList("a", "b")).get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof PropertyEvaluatorException);
+
+        cfg.setWatchSourcesForChanges(WatchSourcesForChanges.YES);
+        CompletableFuture<ApplicationProperties> ready = ApplicationProperties.loadAsync(cfg, null, Arrays.asList("a", "b"));
+        Thread.sleep(200);
+        assertFalse(ready.isDone());
+        Files.write(propFile, Arrays.asList("a=1", "b=2"));
+        try (ApplicationProperties awaited = ready.get(10, TimeUnit.SECONDS)) {
+            assertEquals("2", awaited.get("b"));
+        }
+
+        // giving up on the wait stops watching the files of the instance that was never handed out
+        AtomicInteger reloads = new AtomicInteger();
+        cfg.setListener(new ApplicationPropertiesListener() {
+            @Override
+            public void onSourceLoaded(String path, long durationNanos, long bytes, int keyCount) {
+                reloads.incrementAndGet();
+            }
+        });
+        ready = ApplicationProperties.loadAsync(cfg, null, Arrays.asList("a", "c")).orTimeout(200, TimeUnit.MILLISECONDS);
+        e = assertThrows(ExecutionException.class, ready::get);
+        assertTrue(e.getCause() instanceof TimeoutException);
+        Thread.sleep(100);
+        int loaded = reloads.get();
+        Files.write(propFile, Arrays.asList("a=1", "b=2", "c=3"));
+        Thread.sleep(500);
+        assertEquals(loaded, reloads.get());
+    }
+
+    /*
+        test that "http:" properties files are fetched with conditional requests, cached on disk and read from the
+        cache when the server is down.
+    * */
+    @Test
+    public void loadFromHttpWithDiskCache(@TempDir Path tempDir) throws Exception {
+        Map<String, String> files = new HashMap<>();
+        files.put("/config/myapp.properties", "a=1\nb=base\n");
+        files.put("/config/myapp-unittest.properties", "b=suffix\n");
+        List<String> requests = Collections.synchronizedList(new ArrayList<>());
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            String body = files.get(path);
+            String etag = body != null ? "\"" + body.hashCode() + "\"" : null;
+            boolean notModified = etag != null && etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"));
+            requests.add(path + (notModified ? " 304" : ""));
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else if (notModified) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("ETag", etag);
+                exchange.sendResponseHeaders(200, bytes.length);
+                exchange.getResponseBody().write(bytes);
+            }
+            exchange.close();
+        });
+        server.start();
+        String url = "http://localhost:" + server.getAddress().getPort() + "/config";
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig("myapp.properties", "-unittest", LoadClassPathRootPropertiesAsDefaults.NO, url);
+        cfg.setHttpCacheDirectory(tempDir.toString());
+        cfg.setHttpTimeoutMillis(2000);
+        try {
+
+            ApplicationProperties properties = new ApplicationProperties(cfg);
+            assertEquals("1", properties.get("a"));
+            assertEquals("suffix", properties.get("b"));
+            assertEquals(2, requests.size());
+
+            // an http file can't be checked for changes, so no snapshot is written
+            ApplicationPropertiesConfig snapshotCfg = new ApplicationPropertiesConfig(cfg);
+            Path snapshotFile = tempDir.resolve("http.snapshot");
+            snapshotCfg.setSnapshotFilePath(snapshotFile.toString());
+            assertEquals("1", new ApplicationProperties(snapshotCfg).get("a"));
+            assertFalse(Files.exists(snapshotFile));
+
+            requests.clear();
+            new ApplicationProperties(cfg);
+            assertEquals(new HashSet<>(Arrays.asList("/config/myapp.properties 304", "/config/myapp-unittest.properties 304")), new HashSet<>(requests));
+
+            files.put("/config/myapp.properties", "a=2\n");
+            assertEquals("2", new ApplicationProperties(cfg).get("a"));
+
+            // a cached copy that can't be read is fetched again as a whole instead of failing the load
+            try (Stream<Path> cacheFiles = Files.list(tempDir)) {
+                for (Path meta : cacheFiles.filter(f -> f.toString().endsWith(".meta")).collect(Collectors.toList())) {
+                    Files.write(meta, Collections.singletonList("expires=not-a-number"));
+                }
+            }
+            requests.clear();
+            assertEquals("2", new ApplicationProperties(cfg).get("a"));
+            assertEquals(new HashSet<>(Arrays.asList("/config/myapp.properties", "/config/myapp-unittest.properties")), new HashSet<>(requests));
+
+            ApplicationPropertiesConfig missingCfg = new ApplicationPropertiesConfig("missing.properties", null, LoadClassPathRootPropertiesAsDefaults.NO, url);
+            missingCfg.setHttpCacheDirectory(tempDir.toString());
+            assertThrows(FileNotFoundException.class, () -> new ApplicationProperties(missingCfg));
+        } finally {
+            server.stop(0);
+        }
+        // the server is down, so the cached copies are used
+        ApplicationProperties cached = new ApplicationProperties(cfg);
+        assertEquals("2", cached.get("a"));
+        assertEquals("suffix", cached.get("b"));
+    }
+
+    /*
+        test that every file of a "dir:" directory is loaded in the order of the file names, including one-file-per-key
+        Kubernetes mounts, and that swapping the "..data" symlink is picked up when watching.
+    * */
+    @Test
+    public void loadFromDirectoryWithDataSymlinkSwap(@TempDir Path tempDir) throws IOException, PropertyEvaluatorException, InterruptedException {
+        Path mount = tempDir.resolve("configmap");
+        Path first = Files.createDirectories(mount.resolve("..2024_01_01"));
+        Files.write(first.resolve("db.url"), "jdbc:first\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(first.resolve("a.properties"), Arrays.asList("name=a", "shared=a"));
+        Files.write(first.resolve("b.properties"), Collections.singletonList("shared=b"));
+        Files.createSymbolicLink(mount.resolve("..data"), first.getFileName());
+        for (String name : Arrays.asList("db.url", "a.properties", "b.properties")) {
+            Files.createSymbolicLink(mount.resolve(name), Paths.get("..data", name));
+        }
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, "dir:" + mount);
+        cfg.setWatchSourcesForChanges(WatchSourcesForChanges.YES);
+
+        try (ApplicationProperties properties = new ApplicationProperties(cfg)) {
+            assertEquals("jdbc:first", properties.get("db.url"));
+            assertEquals("a", properties.get("name"));
+            assertEquals("b", properties.get("shared"));
+            assertNull(properties.get("..data"));
+
+            Path second = Files.createDirectories(mount.resolve("..2024_01_02"));
+            Files.write(second.resolve("db.url"), "jdbc:second".getBytes(StandardCharsets.UTF_8));
+            Files.write(second.resolve("a.properties"), Collections.singletonList("name=a2"));
+            Files.write(second.resolve("b.properties"), Collections.singletonList("shared=b2"));
+            Path tmpLink = Files.createSymbolicLink(mount.resolve("..data_tmp"), second.getFileName());
+            Files.move(tmpLink, mount.resolve("..data"), StandardCopyOption.ATOMIC_MOVE);
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!"jdbc:second".equals(properties.get("db.url")) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals("jdbc:second", properties.get("db.url"));
+            assertEquals("a2", properties.get("name"));
+            assertEquals("b2", properties.get("shared"));
+        }
+        assertThrows(FileNotFoundException.class, () -> new ApplicationProperties(new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, "dir:" + tempDir.resolve("missing"))));
+    }
+
+    /*
+        test that a snapshot of a "dir:" directory is written, and goes out of date once a file in the directory is
+        edited in place, added or removed.
+    * */
+    @Test
+    public void snapshotOfDirectoryUntilFileChanges(@TempDir Path tempDir) throws IOException, PropertyEvaluatorException {
+        Path mount = Files.createDirectories(tempDir.resolve("configmap"));
+        Path dbUrl = mount.resolve("db.url");
+        Files.write(dbUrl, "jdbc:first".getBytes(StandardCharsets.UTF_8));
+        Files.write(mount.resolve("a.properties"), Collections.singletonList("name=a"));
+        Path snapshotFile = tempDir.resolve("application.snapshot");
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, "dir:" + mount);
+        cfg.setSnapshotFilePath(snapshotFile.toString());
+
+        ApplicationProperties properties = new ApplicationProperties(cfg);
+        assertEquals("jdbc:first", properties.get("db.url"));
+        assertTrue(ConfigSnapshotFile.open(snapshotFile).isFresh());
+        assertEquals(new HashMap<>(properties), new HashMap<>(new ApplicationProperties(cfg)));
+
+        // the same size, so only the content tells the edit apart
+        Files.write(dbUrl, "jdbc:other".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(dbUrl, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+        assertFalse(ConfigSnapshotFile.open(snapshotFile).isFresh());
+        assertEquals("jdbc:other", new ApplicationProperties(cfg).get("db.url"));
+        assertTrue(ConfigSnapshotFile.open(snapshotFile).isFresh());
+
+        Files.write(mount.resolve("b.properties"), Collections.singletonList("name=b"));
+        assertFalse(ConfigSnapshotFile.open(snapshotFile).isFresh());
+        assertEquals("b", new ApplicationProperties(cfg).get("name"));
+
+        Files.delete(mount.resolve("b.properties"));
+        assertFalse(ConfigSnapshotFile.open(snapshotFile).isFresh());
+        assertEquals("a", new ApplicationProperties(cfg).get("name"));
+    }
+
+    /*
+        test that placeholders are resolved by the configured resolvers in order, that each name is looked up once no
+        matter how many values use it, and that a placeholder whose source has no resolver is kept as it is.
+    * */
+    @Test
+    public void resolvePlaceholdersWithConfiguredResolvers(@TempDir Path tempDir) throws IOException, PropertyEvaluatorException {
+        Path secret = tempDir.resolve("db-password");
+        Files.write(secret, "s3cret\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(tempDir.resolve(DEFAULT_PROPERTIES_FILENAME), Arrays.asList(
+                "db.password=${file:" + secret + "}", "db.user=${base64:c2E=}", "home=${env:APP_HOME}",
+                "region=${vault:region}", "region.copy=${vault:region}", "user=${prop:user.name}", "missing=${vault:missing}"));
+        Map<String, Integer> lookups = new HashMap<>();
+        PlaceholderResolver vault = new PlaceholderResolver() {
+            @Override
+            public String getSource() {
+                return "vault";
+            }
+
+            @Override
+            public String resolve(String name) {
+                lookups.merge(name, 1, Integer::sum);
+                return "region".equals(name) ? "eu-west-1" : null;
+            }
+        };
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, tempDir.toString());
+        cfg.setPlaceholderResolvers(Arrays.asList(
+                PlaceholderResolvers.inMemory("env", Collections.singletonMap("APP_HOME", "/opt/app")),
+                vault, PlaceholderResolvers.inMemory("vault", Collections.singletonMap("missing", "fallback")),
+                PlaceholderResolvers.files(), PlaceholderResolvers.base64()));
+        ApplicationProperties properties = new ApplicationProperties(cfg);
+
+        assertEquals("s3cret", properties.get("db.password"));
+        assertEquals("sa", properties.get("db.user"));
+        assertEquals("/opt/app", properties.get("home"));
+        assertEquals("eu-west-1", properties.get("region"));
+        assertEquals("eu-west-1", properties.get("region.copy"));
+        assertEquals(1, lookups.get("region"));
+        assertEquals("fallback", properties.get("missing"));
+        assertEquals("${prop:user.name}", properties.get("user"));
+
+        Files.write(secret, "rotated".getBytes(StandardCharsets.UTF_8));
+        assertEquals("s3cret", properties.get("db.password"));
+        assertTrue(properties.invalidateChangedSystemValues() > 0);
+        assertEquals("rotated", properties.get("db.password"));
+        assertEquals(2, lookups.get("region"));
+
+        // files and base64 are only resolved when configured
+        ApplicationProperties defaults = new ApplicationProperties(new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, tempDir.toString()));
+        assertEquals("${file:" + secret + "}", defaults.get("db.password"));
+        assertEquals("${base64:c2E=}", defaults.get("db.user"));
+        assertEquals(System.getProperty("user.name"), defaults.get("user"));
+    }
+
+    /*
+        test that "${name}" references to other properties are resolved, that a shared value is evaluated once for every
+        property that references it, that put() only re-resolves the properties that depend on the changed one and
+        publishes nothing when the value is the same, and that a cycle fails with the names on it until put() breaks it.
+    * */
+    @Test
+    public void resolveReferencesToOtherProperties(@TempDir Path tempDir) throws IOException, PropertyEvaluatorException {
+        Files.write(tempDir.resolve(DEFAULT_PROPERTIES_FILENAME), Arrays.asList(
+                "db.host=db.example.com", "db.port=5432", "db.url=jdbc:${db.host}:${db.port}/app", "db.replica=${db.url}?replica",
+                "unrelated=${prop:user.name}", "unset=${not.set}", "a=${b}", "b=${c}", "c=${a}", "via.cycle=${a}"));
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, tempDir.toString());
+        ApplicationProperties properties = new ApplicationProperties(cfg);
+
+        assertEquals("jdbc:db.example.com:5432/app?replica", properties.get("db.replica"));
+        assertEquals("${not.set}", properties.get("unset"));
+        assertEquals(System.getProperty("user.name"), properties.get("unrelated"));
+        long hits = properties.getResolutionCacheStats().getHitCount();
+        assertEquals("jdbc:db.example.com:5432/app", properties.get("db.url", null, false));
+        assertEquals(hits + 1, properties.getResolutionCacheStats().getHitCount());
+
+        properties.put("db.host", "db2.example.com");
+        hits = properties.getResolutionCacheStats().getHitCount();
+        assertEquals(System.getProperty("user.name"), properties.get("unrelated"));
+        assertEquals(hits + 1, properties.getResolutionCacheStats().getHitCount());
+        assertEquals("jdbc:db2.example.com:5432/app?replica", properties.get("db.replica"));
+        properties.put("not.set", "now-set");
+        assertEquals("now-set", properties.get("unset"));
+        properties.put("db.port", "5432");
+        assertEquals("5432", properties.putIfAbsent("db.port", "1"));
+        hits = properties.getResolutionCacheStats().getHitCount();
+        assertEquals("jdbc:db2.example.com:5432/app?replica", properties.get("db.replica"));
+        assertEquals(hits + 1, properties.getResolutionCacheStats().getHitCount());
+
+        PropertyEvaluatorException e = assertThrows(PropertyEvaluatorException.class, () -> properties.get("a"));
+        assertTrue(e.getMessage().matches(".*circular reference ([abc]) -> [abc] -> [abc] -> \\1"), e.getMessage());
+        e = assertThrows(PropertyEvaluatorException.class, () -> properties.get("via.cycle"));
+        assertTrue(e.getMessage().contains("circular reference"), e.getMessage());
+        properties.put("c", "done");
+        assertEquals("done", properties.get("a"));
+        assertEquals("done", properties.get("via.cycle"));
+        properties.put("x", "${y}");
+        properties.put("y", "${x}");
+        e = assertThrows(PropertyEvaluatorException.class, () -> properties.get("x"));
+        assertTrue(e.getMessage().contains("circular reference x -> y -> x") || e.getMessage().contains("circular reference y -> x -> y"), e.getMessage());
+
+        cfg.setPreResolveValues(PreResolveValues.YES);
+        PropertiesResolutionException failed = assertThrows(PropertiesResolutionException.class, () -> new ApplicationProperties(cfg));
+        assertEquals(4, failed.getErrors().size());
+    }
+
+    /*
+        test that export() writes the resolved or raw properties as .properties, JSON and env files with every special
+        character escaped, and the same bytes to a stream or channel as to a writer.
+    * */
+    @Test
+    public void exportPropertiesJsonAndEnv(@TempDir Path tempDir) throws IOException, PropertyEvaluatorException {
+        Files.write(tempDir.resolve(DEFAULT_PROPERTIES_FILENAME), Collections.singletonList("b.key=x=y:z"));
+        ApplicationProperties properties = new ApplicationProperties(new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, tempDir.toString()));
+        properties.put("a space key", " leading");
+        properties.put("multi", "line1\nline2\\nline3");
+        properties.put("quote", "say \"hi\" to $HOME");
+        properties.put("unicode", "h\u00e9llo \u2603");
+        properties.put("ref", "${b.key}!");
+        properties.put("empty", "");
+
+        StringWriter out = new StringWriter();
+        properties.export(out, ExportFormat.PROPERTIES, true, true);
+        Properties reloaded = new Properties();
+        reloaded.load(new StringReader(out.toString()));
+        assertEquals(7, reloaded.size());
+        assertEquals(" leading", reloaded.getProperty("a space key"));
+        assertEquals("line1\nline2\nline3", reloaded.getProperty("multi"));
+        assertEquals("x=y:z!", reloaded.getProperty("ref"));
+        assertEquals("h\u00e9llo \u2603", reloaded.getProperty("unicode"));
+        assertEquals("", reloaded.getProperty("empty"));
+        assertTrue(out.toString().startsWith("a\\ space\\ key=\\ leading\n"));
+
+        out = new StringWriter();
+        properties.export(out, ExportFormat.JSON, false, true);
+        String json = out.toString();
+        assertTrue(json.startsWith("{\n  \"a space key\": \" leading\",\n  \"b.key\": \"x=y:z\","), json);
+        assertTrue(json.contains("\"multi\": \"line1\\nline2\\\\nline3\""), json);
+        assertTrue(json.contains("\"quote\": \"say \\\"hi\\\" to $HOME\""), json);
+        assertTrue(json.contains("\"ref\": \"${b.key}!\""), json);
+        assertTrue(json.endsWith("\"unicode\": \"h\u00e9llo \u2603\"\n}\n"), json);
+
+        out = new StringWriter();
+        properties.export(out, ExportFormat.ENV, true, true);
+        List<String> env = Arrays.asList(out.toString().split("\n(?=[A-Z_]+=)"));
+        assertTrue(env.contains("B_KEY=x=y:z") || env.contains("B_KEY=\"x=y:z\""), out.toString());
+        assertTrue(env.contains("QUOTE=\"say \\\"hi\\\" to \\$HOME\""), out.toString());
+        assertTrue(env.contains("MULTI=\"line1\nline2\nline3\""), out.toString());
+        assertTrue(env.contains("EMPTY="), out.toString());
+
+        String expected = json;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        properties.export(bytes, ExportFormat.JSON, false, true);
+        assertEquals(expected, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        Path file = tempDir.resolve("export.json");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            properties.export(channel, ExportFormat.JSON, false, true);
+        }
+        assertEquals(expected, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    /*
+        test that a null value is exported as an empty value (or null in JSON) and that names that collide as environment variables are both written.
+    * */
+    @Test
+    public void exportNullValuesAndCollidingEnvNames(@TempDir Path tempDir) throws IOException, PropertyEvaluatorException {
+        Files.write(tempDir.resolve(DEFAULT_PROPERTIES_FILENAME), Arrays.asList("db.url=first", "db-url=second"));
+        ApplicationProperties properties = new ApplicationProperties(new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, tempDir.toString()));
+        properties.put("none", null);
+
+        StringWriter out = new StringWriter();
+        properties.export(out, ExportFormat.PROPERTIES, true, true);
+        assertEquals("db-url=second\ndb.url=first\nnone=\n", out.toString());
+
+        out = new StringWriter();
+        properties.export(out, ExportFormat.JSON, false, true);
+        assertTrue(out.toString().endsWith("\"none\": null\n}\n"), out.toString());
+
+        out = new StringWriter();
+        properties.export(out, ExportFormat.ENV, true, true);
+        assertEquals("DB_URL=second\nDB_URL=first\nNONE=\n", out.toString());
+    }
+
+    /*
+        test that a JSON base file and a YAML suffixed file are flattened to dotted keys and merged like properties files, with the suffixed file taking precedence.
+    * */
+    @Test
+    public void loadJsonAndYamlSources(@TempDir Path tempDir) throws IOException, PropertyEvaluatorException {
+        Files.write(tempDir.resolve("myapp.json"), Collections.singletonList("{\"db\": {\"url\": \"jdbc:base\", \"pool\": {\"size\": 5}}, \"hosts\": [\"a\", \"b\"]}"));
+        Files.write(tempDir.resolve("myapp-unittest.json"), Collections.singletonList("{\"db\": {\"pool\": {\"size\": 10}}}"));
+        Files.write(tempDir.resolve("other.yaml"), Arrays.asList("db:", "  url: jdbc:${prop:db.suffix}", "hosts:", "  - c"));
+        Files.write(tempDir.resolve("other-unittest.yaml"), Collections.singletonList("extra: [1, 2]"));
+
+        ApplicationProperties json = new ApplicationProperties(new ApplicationPropertiesConfig("myapp.json", "-unittest", LoadClassPathRootPropertiesAsDefaults.NO, tempDir.toString()));
+        assertEquals("jdbc:base", json.get("db.url"));
+        assertEquals(10, json.getIntValue("db.pool.size", 0));
+        assertEquals("a", json.get("hosts[0]"));
+        assertEquals("b", json.get("hosts[1]"));
+
+        ApplicationProperties yaml = new ApplicationProperties(new ApplicationPropertiesConfig("other.yaml", "-unittest", LoadClassPathRootPropertiesAsDefaults.NO, tempDir.toString()));
+        assertEquals("jdbc:${prop:db.suffix}", yaml.get("db.url", null, false, false));
+        assertEquals("c", yaml.get("hosts[0]"));
+        assertEquals("2", yaml.get("extra[1]"));
+
+        // the same goes for the files of a "dir:" directory
+        Path mount = Files.createDirectory(tempDir.resolve("mount"));
+        Files.copy(tempDir.resolve("myapp.json"), mount.resolve("app.json"));
+        Files.copy(tempDir.resolve("other.yaml"), mount.resolve("other.yml"));
+        ApplicationProperties dir = new ApplicationProperties(new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, "dir:" + mount));
+        assertEquals("5", dir.get("db.pool.size"));
+        assertEquals("c", dir.get("hosts[0]"));
+        assertNull(dir.get("app.json"));
+    }
+
 }
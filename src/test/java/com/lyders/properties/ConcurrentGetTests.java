@@ -0,0 +1,177 @@
+package com.lyders.properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.lyders.properties.ApplicationPropertiesConfig.LoadClassPathRootPropertiesAsDefaults;
+import static com.lyders.properties.ApplicationPropertiesConfig.SharedSegmentMode;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentGetTests {
+
+    static final int THREADS = 16;
+    static final int KEYS = 200;
+    static final int GETS_PER_THREAD = 50_000;
+    static final int UPDATES = 2_000;
+
+    /*
+        test that many threads calling get() on the same keys all see the loaded values and that every evaluated value ends up in the cache.
+    * */
+    @Test
+    void concurrentGetsCacheEveryValue() throws Exception {
+        ApplicationProperties properties = emptyProperties();
+        Map<String, String> values = new ConcurrentHashMap<>();
+        for (int k = 0; k < KEYS; k++) {
+            values.put("key." + k, "value-" + k + "-${prop:java.version}");
+        }
+        properties.putAll(values);
+        String javaVersion = System.getProperty("java.version");
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < GETS_PER_THREAD; i++) {
+                int k = (i * 31 + thread) % KEYS;
+                assertEquals("value-" + k + "-" + javaVersion, properties.get("key." + k));
+            }
+        });
+
+        Map<String, String> cachedProps = properties.getCachedProps();
+        for (int k = 0; k < KEYS; k++) {
+            assertEquals("value-" + k + "-" + javaVersion, cachedProps.get("key." + k));
+        }
+    }
+
+    /*
+        test that readers racing with a writer never see an older value after a newer one, and that the last update is never lost from the cache.
+    * */
+    @Test
+    void concurrentGetsNeverLoseUpdates() throws Exception {
+        ApplicationProperties properties = emptyProperties();
+        properties.put("counter", "0");
+        CountDownLatch done = new CountDownLatch(1);
+
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= UPDATES; i++) {
+                properties.put("counter", String.valueOf(i));
+            }
+            done.countDown();
+        });
+        writer.start();
+        runConcurrently(THREADS, thread -> {
+            int last = 0;
+            while (done.getCount() > 0) {
+                int current = Integer.parseInt(properties.get("counter"));
+                assertTrue(current >= last, String.format("read %d after %d", current, last));
+                last = current;
+            }
+        });
+        writer.join();
+
+        assertEquals(String.valueOf(UPDATES), properties.get("counter"));
+        assertEquals(String.valueOf(UPDATES), properties.getCachedProps().get("counter"));
+    }
+
+    /*
+        test that iterating over an instance attached to a shared segment while the publisher updates it in place always
+        sees the entries of a single version.
+    * */
+    @Test
+    void concurrentIterationOfSharedSegmentIsConsistent(@TempDir Path tempDir) throws Exception {
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO, "conf");
+        cfg.setSharedSegmentFilePath(tempDir.resolve("application.segment").toString());
+        ApplicationPropertiesConfig attachCfg = new ApplicationPropertiesConfig(cfg);
+        attachCfg.setSharedSegmentMode(SharedSegmentMode.ATTACH);
+        cfg.setSharedSegmentMode(SharedSegmentMode.PUBLISH);
+        ApplicationProperties publisher = new ApplicationProperties(cfg);
+        publisher.putAll(versionedValues(0));
+        ApplicationProperties attached = new ApplicationProperties(attachCfg);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (attached.get("key.0") == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        CountDownLatch done = new CountDownLatch(1);
+
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= UPDATES / 4; i++) {
+                publisher.putAll(versionedValues(i));
+            }
+            done.countDown();
+        });
+        writer.start();
+        runConcurrently(THREADS / 4, thread -> {
+            while (done.getCount() > 0) {
+                Set<String> versions = new HashSet<>();
+                for (Map.Entry<String, String> entry : attached.entrySet()) {
+                    if (entry.getKey().startsWith("key.")) {
+                        versions.add(entry.getValue());
+                    }
+                }
+                assertEquals(1, versions.size(), versions::toString);
+            }
+        });
+        writer.join();
+
+        // the last update reaches the segment shortly after it was published
+        deadline = System.currentTimeMillis() + 10_000;
+        while (!new HashMap<>(publisher).equals(new HashMap<>(attached)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(new HashMap<>(publisher), new HashMap<>(attached));
+    }
+
+    private static Map<String, String> versionedValues(int version) {
+        Map<String, String> values = new HashMap<>();
+        for (int k = 0; k < KEYS; k++) {
+            values.put("key." + k, String.valueOf(version));
+        }
+        return values;
+    }
+
+    interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runConcurrently(int threads, ThreadBody body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CyclicBarrier start = new CyclicBarrier(threads);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    try {
+                        start.await();
+                        body.run(thread);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failure.get() != null) {
+            fail(failure.get());
+        }
+    }
+
+    static ApplicationProperties emptyProperties() throws FileNotFoundException {
+        return new ApplicationProperties(new ApplicationPropertiesConfig(null, null, LoadClassPathRootPropertiesAsDefaults.NO), "conf");
+    }
+
+}
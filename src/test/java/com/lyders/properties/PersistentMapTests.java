@@ -0,0 +1,230 @@
+package com.lyders.properties;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentMapTests {
+
+    /* a key with a chosen hash, so that tests can put keys into the same slot or the same collision node
+     * */
+    private static final class Key {
+        private final int hash;
+        private final int id;
+
+        Key(int hash, int id) {
+            this.hash = hash;
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+
+        @Override
+        public String toString() {
+            return "Key" + id + "/" + hash;
+        }
+    }
+
+    /*
+        test that keys with the same hash are kept apart, and that removing them one by one leaves the others reachable.
+    * */
+    @Test
+    void collidingKeys() {
+        Key a = new Key(42, 1);
+        Key b = new Key(42, 2);
+        Key c = new Key(42, 3);
+        Key other = new Key(42 | (1 << 5), 4);
+        PersistentMap<Key, String> map = PersistentMap.<Key, String>empty().with(a, "a").with(b, "b").with(c, "c").with(other, "other");
+        assertEquals(4, map.size());
+        assertEquals("a", map.get(a));
+        assertEquals("b", map.get(b));
+        assertEquals("c", map.get(c));
+        assertFalse(map.containsKey(new Key(42, 5)));
+
+        map = map.with(b, "b2");
+        assertEquals(4, map.size());
+        assertEquals("b2", map.get(b));
+
+        map = map.without(a).without(c);
+        assertEquals(2, map.size());
+        assertEquals("b2", map.get(b));
+        assertEquals("other", map.get(other));
+        assertFalse(map.containsKey(a));
+        map = map.without(b);
+        assertEquals(Collections.singletonMap(other, "other"), map);
+        assertTrue(map.without(other).isEmpty());
+    }
+
+    /*
+        test that a branch that drops to one entry is collapsed, and that the entry stays reachable and is iterated.
+    * */
+    @Test
+    void withoutCollapsesBranches() {
+        // the same lowest 5 and 10 bits, so these are two levels down below one slot of the root
+        Key a = new Key(7, 1);
+        Key b = new Key(7 | (1 << 15), 2);
+        Key c = new Key(3, 3);
+        PersistentMap<Key, String> map = PersistentMap.<Key, String>empty().with(a, "a").with(b, "b").with(c, "c");
+
+        PersistentMap<Key, String> withoutB = map.without(b);
+        assertEquals(2, withoutB.size());
+        assertEquals("a", withoutB.get(a));
+        assertNull(withoutB.get(b));
+        Map<Key, String> expected = new HashMap<>();
+        expected.put(a, "a");
+        expected.put(c, "c");
+        assertEquals(expected, withoutB);
+        assertEquals(expected, new HashMap<>(withoutB));
+
+        PersistentMap<Key, String> single = withoutB.without(c);
+        assertEquals(Collections.singletonMap(a, "a"), single);
+        assertEquals("a", single.get(a));
+        assertEquals(Collections.singletonMap(a, "a"), new HashMap<>(single));
+
+        // the earlier maps are not changed by any of this
+        assertEquals(3, map.size());
+        assertEquals("b", map.get(b));
+    }
+
+    /*
+        test that removing and adding a key again gives the same size and iteration order as before, and that a change
+        that leaves the map as it was returns the same map.
+    * */
+    @Test
+    void removeAndAddAgain() {
+        PersistentMap<String, String> map = PersistentMap.empty();
+        for (int i = 0; i < 1000; i++) {
+            map = map.with("key." + i, String.valueOf(i));
+        }
+        List<String> order = new ArrayList<>(map.keySet());
+
+        PersistentMap<String, String> readded = map.without("key.500").without("key.7").with("key.7", "7").with("key.500", "500");
+        assertEquals(1000, readded.size());
+        assertEquals(order, new ArrayList<>(readded.keySet()));
+        assertEquals(map, readded);
+        assertEquals(map.hashCode(), readded.hashCode());
+
+        assertSame(map, map.with("key.1", map.get("key.1")));
+        assertSame(map, map.without("missing"));
+        assertSame(map, PersistentMap.of(map));
+    }
+
+    /*
+        test that null values are kept, that a null key is rejected by with() and is never found.
+    * */
+    @Test
+    void nullKeysAndValues() {
+        PersistentMap<String, String> map = PersistentMap.<String, String>empty().with("a", null);
+        assertTrue(map.containsKey("a"));
+        assertNull(map.get("a"));
+        assertEquals(1, map.size());
+
+        assertThrows(NullPointerException.class, () -> map.with(null, "x"));
+        assertThrows(NullPointerException.class, () -> PersistentMap.of(Collections.singletonMap(null, "x")));
+        assertFalse(map.containsKey(null));
+        assertNull(map.get(null));
+        assertSame(map, map.without(null));
+        assertThrows(UnsupportedOperationException.class, () -> map.put("b", "x"));
+        assertThrows(UnsupportedOperationException.class, () -> map.entrySet().iterator().next().setValue("x"));
+    }
+
+    /*
+        test random with() and without() calls against a HashMap, with keys spread over all of the hash bits, over a few
+        of them and over colliding hashes, and that every earlier version of the map keeps its entries.
+    * */
+    @Test
+    void matchesHashMap() {
+        Random random = new Random(42);
+        for (int round = 0; round < 60; round++) {
+            int keyCount = 50 + random.nextInt(1000);
+            Key[] keys = new Key[keyCount];
+            for (int i = 0; i < keyCount; i++) {
+                int hash;
+                switch (round % 4) {
+                    case 0:
+                        hash = random.nextInt(8);
+                        break;
+                    case 1:
+                        hash = random.nextInt(1 << 20);
+                        break;
+                    case 2:
+                        // the same lowest bits, so they differ only deep down or not at all
+                        hash = (random.nextInt(4) << 27) | (i % 3);
+                        break;
+                    default:
+                        hash = random.nextInt();
+                }
+                keys[i] = new Key(hash, i);
+            }
+            Map<Key, String> expected = new HashMap<>();
+            for (int i = random.nextInt(keyCount); i > 0; i--) {
+                expected.put(keys[random.nextInt(keyCount)], value(random));
+            }
+            PersistentMap<Key, String> map = PersistentMap.of(expected);
+            List<PersistentMap<Key, String>> versions = new ArrayList<>();
+            List<Map<Key, String>> expectedVersions = new ArrayList<>();
+            for (int op = 0; op < 2000; op++) {
+                Key key = keys[random.nextInt(keyCount)];
+                if (random.nextInt(3) == 0) {
+                    map = map.without(key);
+                    expected.remove(key);
+                } else {
+                    String value = value(random);
+                    map = map.with(key, value);
+                    expected.put(key, value);
+                }
+                if (op % 500 == 0) {
+                    versions.add(map);
+                    expectedVersions.add(new HashMap<>(expected));
+                }
+            }
+            assertSameEntries(expected, map, keys);
+            for (int v = 0; v < versions.size(); v++) {
+                assertSameEntries(expectedVersions.get(v), versions.get(v), keys);
+            }
+            for (Key key : keys) {
+                map = map.without(key);
+            }
+            assertTrue(map.isEmpty());
+            assertFalse(map.entrySet().iterator().hasNext());
+        }
+    }
+
+    private static String value(Random random) {
+        return random.nextInt(10) == 0 ? null : "v" + random.nextInt(5);
+    }
+
+    private static void assertSameEntries(Map<Key, String> expected, PersistentMap<Key, String> map, Key[] keys) {
+        assertEquals(expected.size(), map.size());
+        for (Key key : keys) {
+            assertEquals(expected.containsKey(key), map.containsKey(key), key::toString);
+            assertTrue(Objects.equals(expected.get(key), map.get(key)), key::toString);
+        }
+        Map<Key, String> iterated = new HashMap<>();
+        int count = 0;
+        for (Map.Entry<Key, String> entry : map.entrySet()) {
+            iterated.put(entry.getKey(), entry.getValue());
+            count++;
+        }
+        assertEquals(expected.size(), count);
+        assertEquals(expected, iterated);
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+    }
+}
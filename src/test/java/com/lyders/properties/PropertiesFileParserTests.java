@@ -0,0 +1,114 @@
+package com.lyders.properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PropertiesFileParserTests {
+
+    static final String TRICKY_PROPERTIES = "# a comment\n"
+            + "! another comment \\\n"
+            + "   \n"
+            + "simple=value\n"
+            + "colon:value2\n"
+            + "space value3\n"
+            + "  leading.whitespace   =   trimmed  \n"
+            + "continued=first \\\n"
+            + "    second \\\r\n"
+            + "    third\r\n"
+            + "escaped\\=key\\:x = a\\tb\\nc\\\\d\n"
+            + "unicode=caf\\u00e9 \\u2603\n"
+            + "utf8=caf\u00e9 \u2603\n"
+            + "empty=\n"
+            + "novalue\n"
+            + "#not.a.key=1\n"
+            + "last.line.without.newline=yes \\";
+
+    /*
+        test that every entry is parsed the same as java.util.Properties would parse it from a UTF-8 reader.
+    * */
+    @Test
+    void parsesLikeJavaUtilProperties(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("tricky.properties");
+        Files.write(file, TRICKY_PROPERTIES.getBytes(StandardCharsets.UTF_8));
+
+        Properties expected = new Properties();
+        expected.load(new StringReader(TRICKY_PROPERTIES));
+
+        Map<String, String> actual = new LinkedHashMap<>();
+        PropertiesFileParser.parse(file, actual::put);
+
+        assertEquals(expected, toProperties(actual));
+        assertEquals("first second third", actual.get("continued"));
+        assertEquals("caf\u00e9 \u2603", actual.get("unicode"));
+        assertEquals("caf\u00e9 \u2603", actual.get("utf8"));
+        assertEquals("a\tb\nc\\d", actual.get("escaped=key:x"));
+    }
+
+    /*
+        test that a legacy ISO-8859-1 encoded stream is still read correctly.
+    * */
+    @Test
+    void fallsBackToIso88591ForInvalidUtf8() throws IOException {
+        byte[] latin1 = "name=caf\u00e9\n".getBytes(StandardCharsets.ISO_8859_1);
+        Map<String, String> actual = new LinkedHashMap<>();
+        PropertiesFileParser.parse("latin1.properties", new ByteArrayInputStream(latin1), actual::put);
+        assertEquals("caf\u00e9", actual.get("name"));
+    }
+
+    /*
+        test that a malformed unicode escape fails with the name of the file and the line it starts on, counting continued
+        lines and every kind of line break.
+    * */
+    @Test
+    void rejectsMalformedUnicodeEscape(@TempDir Path tempDir) throws IOException {
+        byte[] malformed = "bad=\\u12g4\n".getBytes(StandardCharsets.UTF_8);
+        IOException e = assertThrows(IOException.class, () -> PropertiesFileParser.parse("bad.properties", new ByteArrayInputStream(malformed), (k, v) -> {
+        }));
+        assertEquals("Invalid properties file bad.properties at line 1: Malformed \\uxxxx encoding.", e.getMessage());
+        assertTrue(e.getCause() instanceof IllegalArgumentException);
+
+        Path file = tempDir.resolve("bad.properties");
+        Files.write(file, "# comment\r\nok=1\rcontinued=a \\\n  b\n\n  bad.key = \\u00\nafter=2\n".getBytes(StandardCharsets.UTF_8));
+        e = assertThrows(IOException.class, () -> PropertiesFileParser.parse(file, (k, v) -> {
+        }));
+        assertEquals(String.format("Invalid properties file %s at line 6: Malformed \\uxxxx encoding.", file), e.getMessage());
+    }
+
+    /*
+        test that a file too large to be read into a heap buffer is memory-mapped and parsed the same way.
+    * */
+    @Test
+    void parsesMappedFile(@TempDir Path tempDir) throws IOException {
+        StringBuilder content = new StringBuilder(TRICKY_PROPERTIES).append('\n');
+        for (int i = 0; content.length() < PropertiesFileParser.MAP_THRESHOLD; i++) {
+            content.append("key.").append(i).append('=').append("value ").append(i).append('\n');
+        }
+        Path file = tempDir.resolve("large.properties");
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+
+        Properties expected = new Properties();
+        expected.load(new StringReader(content.toString()));
+        Map<String, String> actual = new LinkedHashMap<>();
+        assertEquals(Files.size(file), PropertiesFileParser.parse(file, actual::put));
+        assertEquals(expected, toProperties(actual));
+    }
+
+    private static Properties toProperties(Map<String, String> map) {
+        Properties properties = new Properties();
+        properties.putAll(map);
+        return properties;
+    }
+
+}
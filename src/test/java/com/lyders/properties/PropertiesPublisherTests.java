@@ -0,0 +1,144 @@
+package com.lyders.properties;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PropertiesPublisherTests {
+
+    private final Map<String, String> merged = new HashMap<>();
+    private final List<Collection<String>> published = new ArrayList<>();
+
+    private PropertiesPublisher publisher(boolean keepWrites, PropertiesPublisher.PreResolver preResolver) {
+        return new PropertiesPublisher(merged, ResolutionCache.DEFAULT_MAX_SIZE, keepWrites, preResolver,
+                (previous, next, changedKeys) -> published.add(changedKeys));
+    }
+
+    /*
+        test that a view is built from all of the merged properties, or from the previous view and only the changed names,
+        and that the previous view is never changed.
+    * */
+    @Test
+    void publishAllOrChanged() {
+        PropertiesPublisher publisher = publisher(false, null);
+        merged.put("a", "1");
+        merged.put("b", "2");
+        assertTrue(publisher.publish().isEmpty());
+        PropertiesView first = publisher.getView();
+        assertEquals(merged, first.getValues());
+
+        merged.put("a", "changed");
+        merged.remove("b");
+        // a name that is not passed as changed is not looked at
+        merged.put("c", "not published");
+        publisher.publishWrites(Arrays.asList("a", "b"));
+        PropertiesView second = publisher.getView();
+        assertNotSame(first, second);
+        assertEquals(Collections.singletonMap("a", "changed"), second.getValues());
+        assertEquals("1", first.getValues().get("a"));
+        assertEquals("2", first.getValues().get("b"));
+        assertEquals(Arrays.asList(null, Arrays.asList("a", "b")), published);
+
+        publisher.publish();
+        assertEquals(merged, publisher.getView().getValues());
+    }
+
+    /*
+        test that the changes made through the Map methods are applied again on top of the reloaded files, with a value
+        set after a removal winning and a removal after a set winning, and only when writes are kept.
+    * */
+    @Test
+    void reloadKeepsWrites() {
+        PropertiesPublisher publisher = publisher(true, null);
+        Map<String, String> file = new HashMap<>();
+        file.put("from.file", "file");
+        file.put("removed", "file");
+        file.put("set", "file");
+        file.put("set.then.removed", "file");
+        merged.putAll(file);
+        publisher.publish();
+
+        merged.remove("removed");
+        merged.put("set", "written");
+        merged.put("added", "written");
+        publisher.publishWrites(Arrays.asList("removed", "set", "added"));
+        merged.put("set.then.removed", "written");
+        publisher.publishWrites(Collections.singleton("set.then.removed"));
+        merged.remove("set.then.removed");
+        publisher.publishWrites(Collections.singleton("set.then.removed"));
+        merged.put("removed", "written again");
+        publisher.publishWrites(Collections.singleton("removed"));
+
+        // a reloaded file merges every file again and then applies the writes
+        file.put("from.file", "reloaded");
+        merged.clear();
+        merged.putAll(file);
+        publisher.publishReloaded();
+        Map<String, String> expected = new HashMap<>();
+        expected.put("from.file", "reloaded");
+        expected.put("removed", "written again");
+        expected.put("set", "written");
+        expected.put("added", "written");
+        assertEquals(expected, publisher.getView().getValues());
+        assertEquals(expected, merged);
+
+        PropertiesPublisher notKeeping = publisher(false, null);
+        merged.put("set", "written");
+        notKeeping.publishWrites(Collections.singleton("set"));
+        merged.clear();
+        merged.putAll(file);
+        notKeeping.publishReloaded();
+        assertEquals(file, notKeeping.getView().getValues());
+    }
+
+    /*
+        test that the pre-resolver is asked to resolve only the changed names and the properties that reference them
+        when those are known, and that its errors are returned.
+    * */
+    @Test
+    void preResolveStaleNames() {
+        List<Set<String>> stale = new ArrayList<>();
+        PropertyEvaluatorException failure = new PropertyEvaluatorException("failed");
+        PropertiesPublisher publisher = publisher(false, (next, previous, staleNames, errors) -> {
+            stale.add(staleNames);
+            if (next.getValues().containsKey("fail")) {
+                errors.add(failure);
+            }
+            return new HashMap<>(next.getValues());
+        });
+        merged.put("host", "db");
+        merged.put("url", "jdbc:${host}");
+        merged.put("other", "x");
+        assertTrue(publisher.publish().isEmpty());
+        assertEquals(merged, publisher.getView().getResolved());
+
+        merged.put("host", "db2");
+        publisher.publishWrites(Collections.singleton("host"));
+        merged.put("fail", "y");
+        assertEquals(Collections.singletonList(failure), publisher.publishWrites(Collections.singleton("fail")));
+        assertEquals(Arrays.asList(null, new HashSet<>(Arrays.asList("host", "url")), Collections.singleton("fail")), stale);
+    }
+
+    /*
+        test that a view published as it is replaces the current one without telling the listener.
+    * */
+    @Test
+    void setView() {
+        PropertiesPublisher publisher = publisher(false, null);
+        PropertiesView view = new PropertiesView(Collections.singletonMap("a", "1"));
+        publisher.setView(view);
+        assertSame(view, publisher.getView());
+        assertTrue(published.isEmpty());
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.lyders.properties;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceParserTests {
+
+    /*
+        test that nested JSON objects and arrays are flattened to dotted and indexed names and that scalars are kept as written.
+    * */
+    @Test
+    void flattensJson() throws IOException {
+        String json = "\uFEFF{\n"
+                + "  \"db\": {\"url\": \"jdbc:h2:mem\", \"port\": 5432, \"ssl\": true, \"password\": null},\n"
+                + "  \"hosts\": [\"a\", {\"name\": \"b\"}, [1.5e3]],\n"
+                + "  \"empty\": {}, \"none\": [],\n"
+                + "  \"escaped\": \"tab\\there \\u00e9 \\\"q\\\"\"\n"
+                + "}";
+        Map<String, String> actual = new LinkedHashMap<>();
+        JsonSourceParser.parse(new StringReader(json), actual::put);
+
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("db.url", "jdbc:h2:mem");
+        expected.put("db.port", "5432");
+        expected.put("db.ssl", "true");
+        expected.put("db.password", "");
+        expected.put("hosts[0]", "a");
+        expected.put("hosts[1].name", "b");
+        expected.put("hosts[2][0]", "1.5e3");
+        expected.put("escaped", "tab\there \u00e9 \"q\"");
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void rejectsMalformedJson() {
+        IOException e = assertThrows(IOException.class, () -> JsonSourceParser.parse(new StringReader("{\n\"a\": 1,\n\"b\" 2}"), (k, v) -> {
+        }));
+        assertEquals("Invalid JSON at line 3: expected ':'", e.getMessage());
+        assertThrows(IOException.class, () -> JsonSourceParser.parse(new StringReader("{\"a\": tru}"), (k, v) -> {
+        }));
+        assertThrows(IOException.class, () -> JsonSourceParser.parse(new StringReader("\"not an object\""), (k, v) -> {
+        }));
+    }
+
+    /*
+        test that YAML mappings, sequences, block and flow collections and quoted, literal and folded scalars are flattened like JSON.
+    * */
+    @Test
+    void flattensYaml() throws IOException {
+        String yaml = "%YAML 1.2\n"
+                + "---\n"
+                + "# a comment\n"
+                + "db:\n"
+                + "  url: jdbc:h2:mem  # the test database\n"
+                + "  port: 5432\n"
+                + "  password:\n"
+                + "  name: ~\n"
+                + "hosts:\n"
+                + "- a\n"
+                + "- name: b\n"
+                + "  port: 80\n"
+                + "-\n"
+                + "  - nested\n"
+                + "quoted: 'it''s # not a comment'\n"
+                + "\"double key\": \"caf\\u00e9\"\n"
+                + "flow: {a: 1, b: [x, 'y z'],\n"
+                + "  c: http://host:8080}\n"
+                + "literal: |\n"
+                + "  line 1\n"
+                + "    indented\n"
+                + "\n"
+                + "folded: >-\n"
+                + "  one\n"
+                + "  two\n"
+                + "\n"
+                + "  three\n"
+                + "plain: a long\n"
+                + "  value\n"
+                + "...\n";
+        Map<String, String> actual = new LinkedHashMap<>();
+        YamlSourceParser.parse(new StringReader(yaml), actual::put);
+
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("db.url", "jdbc:h2:mem");
+        expected.put("db.port", "5432");
+        expected.put("db.password", "");
+        expected.put("db.name", "");
+        expected.put("hosts[0]", "a");
+        expected.put("hosts[1].name", "b");
+        expected.put("hosts[1].port", "80");
+        expected.put("hosts[2][0]", "nested");
+        expected.put("quoted", "it's # not a comment");
+        expected.put("double key", "caf\u00e9");
+        expected.put("flow.a", "1");
+        expected.put("flow.b[0]", "x");
+        expected.put("flow.b[1]", "y z");
+        expected.put("flow.c", "http://host:8080");
+        expected.put("literal", "line 1\n  indented\n");
+        expected.put("folded", "one two\nthree");
+        expected.put("plain", "a long value");
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void rejectsUnsupportedYaml() {
+        IOException e = assertThrows(IOException.class, () -> YamlSourceParser.parse(new StringReader("a: 1\nb: &anchor 2\n"), (k, v) -> {
+        }));
+        assertEquals("Invalid YAML at line 2: anchors, aliases and tags are not supported", e.getMessage());
+        assertThrows(IOException.class, () -> YamlSourceParser.parse(new StringReader("a:\n  - 1\n  b: 2\n"), (k, v) -> {
+        }));
+        assertThrows(IOException.class, () -> YamlSourceParser.parse(new StringReader("a: [1, 2\n"), (k, v) -> {
+        }));
+        e = assertThrows(IOException.class, () -> YamlSourceParser.parse(new StringReader("a:\n  b: 1\n c: 2\n"), (k, v) -> {
+        }));
+        assertEquals("Invalid YAML at line 3: inconsistent indentation", e.getMessage());
+        assertThrows(IOException.class, () -> YamlSourceParser.parse(new StringReader("a:\n    b: 1\n  c: 2\n"), (k, v) -> {
+        }));
+        e = assertThrows(IOException.class, () -> YamlSourceParser.parse(new StringReader("a: b: c\n"), (k, v) -> {
+        }));
+        assertEquals("Invalid YAML at line 1: a value containing ': ' has to be quoted: 'b: c'", e.getMessage());
+        assertThrows(IOException.class, () -> YamlSourceParser.parse(new StringReader("a: long\n  b: c\n"), (k, v) -> {
+        }));
+    }
+
+    @Test
+    void picksParserByExtension() {
+        assertEquals(SourceParser.Format.JSON, SourceParser.formatOf("/etc/app/application.JSON"));
+        assertEquals(SourceParser.Format.YAML, SourceParser.formatOf("application-dev.yml"));
+        assertEquals(SourceParser.Format.YAML, SourceParser.formatOf("application.yaml"));
+        assertEquals(SourceParser.Format.PROPERTIES, SourceParser.formatOf("application.properties"));
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.lyders.properties.binding;
+
+import com.lyders.properties.ApplicationProperties;
+import com.lyders.properties.ApplicationPropertiesConfig;
+import com.lyders.properties.PropertyEvaluatorException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfigBindingTests {
+
+    ApplicationProperties props;
+
+    @BeforeEach
+    void beforeEach() throws FileNotFoundException {
+        ApplicationPropertiesConfig cfg = new ApplicationPropertiesConfig("typetests.properties", null, true, false);
+        props = new ApplicationProperties(cfg);
+        props.put("test.binding.host", "localhost");
+        props.put("test.binding.port", "8080");
+        props.put("test.binding.enabled", "TRUE");
+        props.put("test.binding.maxConnections", "16");
+        props.put("test.binding.mode", "FAST");
+        props.put("test.binding.name", "server-1");
+    }
+
+    @Test
+    void bindAllFieldTypes() throws PropertyEvaluatorException {
+        ServerConfig config = ServerConfigBinder.bind(props);
+        assertEquals("localhost", config.getHost());
+        assertEquals(8080, config.getPort());
+        // the default from the annotation
+        assertEquals(250L, config.getTimeoutMillis());
+        // the initial value of the field
+        assertEquals(0.5, config.getRatio());
+        assertTrue(config.isEnabled());
+        assertEquals(Integer.valueOf(16), config.getMaxConnections());
+        assertEquals(ServerConfig.Mode.FAST, config.getMode());
+        // set via the Lombok setter of the private field
+        assertEquals("server-1", config.getName());
+        assertEquals("unchanged", config.getNotBound());
+    }
+
+    @Test
+    void bindReportsEveryError() {
+        props.put("test.binding.port", "eighty");
+        props.put("test.binding.enabled", "yes");
+        props.remove("test.binding.name");
+        PropertyBindingException e = assertThrows(PropertyBindingException.class, () -> ServerConfigBinder.bind(props));
+        assertEquals(3, e.getErrors().size());
+        assertTrue(e.getMessage().contains("'test.binding.port'"));
+        assertTrue(e.getMessage().contains("'test.binding.enabled'"));
+        assertTrue(e.getMessage().contains("'test.binding.name'"));
+    }
+
+    /*
+        test that a boxed field whose value can't be converted fails the binding with its key and value, and is left as
+        it was instead of being set to 0.
+    * */
+    @Test
+    void bindReportsUnparsableBoxedField() {
+        props.put("test.binding.maxConnections", "many");
+        ServerConfig target = new ServerConfig();
+        target.setMaxConnections(4);
+        PropertyBindingException e = assertThrows(PropertyBindingException.class, () -> ServerConfigBinder.bind(props, target));
+        assertEquals(1, e.getErrors().size());
+        assertEquals("Failed to convert property 'test.binding.maxConnections' value 'many' to Integer", e.getErrors().get(0));
+        assertEquals(Integer.valueOf(4), target.getMaxConnections());
+    }
+
+}
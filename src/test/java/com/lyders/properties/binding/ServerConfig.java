@@ -0,0 +1,24 @@
+package com.lyders.properties.binding;
+
+import lombok.Data;
+
+/* a config class bound by the generated ServerConfigBinder in ConfigBindingTests */
+@Data
+@ConfigProperties(prefix = "test.binding")
+public class ServerConfig {
+
+    enum Mode {FAST, SAFE}
+
+    String host;
+    int port;
+    @ConfigProperty(key = "timeout-millis", defaultValue = "250")
+    long timeoutMillis;
+    double ratio = 0.5;
+    boolean enabled;
+    Integer maxConnections;
+    Mode mode = Mode.SAFE;
+    @ConfigProperty(key = "name", required = true)
+    private String name;
+    transient String notBound = "unchanged";
+
+}